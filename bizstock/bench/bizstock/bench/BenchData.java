@@ -0,0 +1,141 @@
+package bizstock.bench;
+
+import bizstock.util.DatabaseConnection;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Datos de prueba reproducibles: los mismos productos y movimientos en cada
+ * corrida (Random con semilla fija y fechas fijas). Los productos se llaman
+ * "BENCH-nnnnnn" para poder borrarlos sin tocar los datos reales; usan la
+ * categoría, la marca y el usuario 1 del script bizstock.sql.
+ */
+public final class BenchData {
+
+  static final String PREFIX = "BENCH-";
+  static final int    STOCK  = 1_000_000;   // alcanza para las salidas de registerOut
+
+  private final int products;
+  private final int historyProducts;   // los primeros N tienen historial
+  private final int movementsEach;
+
+  private final List<Integer> ids = new ArrayList<>();
+
+  BenchData(int products, int historyProducts, int movementsEach) {
+    this.products = products;
+    this.historyProducts = Math.min(historyProducts, products);
+    this.movementsEach = movementsEach;
+  }
+
+  /** Ids de los productos de prueba, en orden. */
+  List<Integer> ids() { return ids; }
+
+  /** Ids de los productos con historial de movimientos. */
+  List<Integer> historyIds() { return ids.subList(0, historyProducts); }
+
+  /** Crea los datos si no están ya con el tamaño pedido. */
+  void ensure() throws Exception {
+    try (Connection cn = DatabaseConnection.getConnection()) {
+      if (loadIds(cn) == products) {
+        System.out.println("Datos de prueba: " + products + " productos ya cargados");
+        return;
+      }
+
+      cn.setAutoCommit(false);
+      try {
+        delete(cn);
+        insertProducts(cn);
+        cn.commit();
+        loadIds(cn);
+        insertMovements(cn);
+        cn.commit();
+      } catch (Exception ex) {
+        cn.rollback();
+        throw ex;
+      } finally {
+        cn.setAutoCommit(true);
+      }
+      System.out.println("Datos de prueba: " + products + " productos, "
+          + historyProducts * movementsEach + " movimientos");
+    }
+  }
+
+  private int loadIds(Connection cn) throws Exception {
+    ids.clear();
+    String sql = "SELECT id FROM product WHERE name LIKE '" + PREFIX + "%' ORDER BY name";
+    try (Statement st = cn.createStatement();
+         ResultSet rs = st.executeQuery(sql)) {
+      while (rs.next()) ids.add(rs.getInt("id"));
+    }
+    return ids.size();
+  }
+
+  private void delete(Connection cn) throws Exception {
+    String bench = "SELECT id FROM product WHERE name LIKE '" + PREFIX + "%'";
+    try (Statement st = cn.createStatement()) {
+      // Subconsulta materializada: MySQL no deja leer la tabla que se borra
+      st.executeUpdate("DELETE FROM inventory_movement WHERE product_id IN (SELECT id FROM (" + bench + ") b)");
+      st.executeUpdate("DELETE FROM stock_daily WHERE product_id IN (SELECT id FROM (" + bench + ") b)");
+      st.executeUpdate("DELETE FROM product WHERE name LIKE '" + PREFIX + "%'");
+    }
+  }
+
+  private void insertProducts(Connection cn) throws Exception {
+    String sql = """
+      INSERT INTO product
+      (name, description, price, quantity, reorder_level, critical_level, category_id, brand_id, is_active)
+      VALUES (?, ?, ?, ?, ?, ?, 1, 1, 1)
+    """;
+    Random rnd = new Random(Harness.SEED);
+
+    try (PreparedStatement ps = cn.prepareStatement(sql)) {
+      for (int i = 0; i < products; i++) {
+        int reorder = 5 + rnd.nextInt(20);
+        ps.setString(1, String.format("%s%06d", PREFIX, i));
+        ps.setString(2, "Producto de prueba " + i);
+        ps.setBigDecimal(3, BigDecimal.valueOf(100 + rnd.nextInt(100_000), 2));
+        // Unos pocos en alerta, como en un catálogo real
+        ps.setInt(4, i < historyProducts ? STOCK : (i % 50 == 0 ? rnd.nextInt(reorder) : reorder + rnd.nextInt(500)));
+        ps.setInt(5, reorder);
+        ps.setInt(6, reorder / 2);
+        ps.addBatch();
+        if (i % 1000 == 999) ps.executeBatch();
+      }
+      ps.executeBatch();
+    }
+  }
+
+  private void insertMovements(Connection cn) throws Exception {
+    String sql = """
+      INSERT INTO inventory_movement (product_id, user_id, movement_type, quantity, note, created_at)
+      VALUES (?, 1, ?, ?, ?, ?)
+    """;
+    Random rnd = new Random(Harness.SEED + 1);
+    LocalDateTime base = LocalDateTime.of(2025, 1, 1, 8, 0);
+
+    try (PreparedStatement ps = cn.prepareStatement(sql)) {
+      int n = 0;
+      for (int p = 0; p < historyProducts; p++) {
+        for (int m = 0; m < movementsEach; m++) {
+          ps.setInt(1, ids.get(p));
+          ps.setString(2, rnd.nextBoolean() ? "IN" : "OUT");
+          ps.setInt(3, 1 + rnd.nextInt(20));
+          ps.setString(4, "bench");
+          ps.setTimestamp(5, Timestamp.valueOf(base.plusMinutes(m * 37L)));
+          ps.addBatch();
+          if (++n % 1000 == 0) ps.executeBatch();
+        }
+      }
+      ps.executeBatch();
+    }
+  }
+}
@@ -0,0 +1,76 @@
+package bizstock.bench;
+
+import bizstock.dao.DaoBench;
+import bizstock.util.PdfExporterBench;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Punto de entrada de los benchmarks.
+ *
+ *   java -cp out:lib/* bizstock.bench.BenchMain [opciones]
+ *
+ *   --filter REGEX     solo los benchmarks cuyo id (nombre:param=valor:threads=n) coincide
+ *   --out ARCHIVO      resultados en JSON (por defecto bench-results.json)
+ *   --warmup N         iteraciones de calentamiento (3)
+ *   --iterations N     iteraciones medidas (5)
+ *   --time MS          duración de cada iteración de throughput (1000)
+ *   --products N       productos de prueba (10000)
+ *   --no-db            solo los benchmarks que no usan la BD
+ */
+public final class BenchMain {
+
+  private BenchMain() {}
+
+  public static void main(String[] args) throws Exception {
+    Pattern filter = null;
+    Path out = Path.of("bench-results.json");
+    int warmup = 3;
+    int iterations = 5;
+    long timeMs = 1000;
+    int products = 10_000;
+    boolean db = true;
+
+    for (int i = 0; i < args.length; i++) {
+      switch (args[i]) {
+        case "--filter"     -> filter = Pattern.compile(args[++i]);
+        case "--out"        -> out = Path.of(args[++i]);
+        case "--warmup"     -> warmup = Integer.parseInt(args[++i]);
+        case "--iterations" -> iterations = Integer.parseInt(args[++i]);
+        case "--time"       -> timeMs = Long.parseLong(args[++i]);
+        case "--products"   -> products = Integer.parseInt(args[++i]);
+        case "--no-db"      -> db = false;
+        default -> throw new IllegalArgumentException("Opción desconocida: " + args[i]);
+      }
+    }
+
+    List<Benchmark> all = new ArrayList<>();
+    BenchData data = new BenchData(products, 100, 500);
+    if (db) {
+      data.ensure();
+      all.addAll(DaoBench.benchmarks(data.historyIds()));
+      all.addAll(InventoryServiceBench.benchmarks(data.historyIds()));
+    }
+    all.addAll(PdfExporterBench.benchmarks());
+
+    Harness harness = new Harness(warmup, iterations, timeMs);
+    List<Harness.Result> results = new ArrayList<>();
+    for (Benchmark b : all) {
+      if (filter != null && !filter.matcher(b.id()).find()) continue;
+      if (b.needsDb && !db) continue;
+
+      System.out.print(b.id() + " ... ");
+      System.out.flush();
+      Harness.Result r = harness.run(b);
+      results.add(r);
+      System.out.printf("%.3f ± %.3f %s%n", r.mean(), r.error(), r.unit());
+    }
+
+    Harness.writeJson(out, results);
+    System.out.println("Resultados en " + out.toAbsolutePath());
+    System.exit(0);   // los hilos del pool, el journal, etc. no deben retener la JVM
+  }
+}
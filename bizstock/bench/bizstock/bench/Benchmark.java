@@ -0,0 +1,79 @@
+package bizstock.bench;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/** Un benchmark: la operación a medir, cuántos hilos la corren y cómo se mide. */
+public final class Benchmark {
+
+  /**
+   * THROUGHPUT: cada iteración corre la operación sin parar durante el tiempo
+   * de la iteración y reporta ops/s. SINGLE_SHOT: cada iteración es una sola
+   * llamada y reporta ms/op (para operaciones que tardan segundos).
+   */
+  public enum Mode { THROUGHPUT, SINGLE_SHOT }
+
+  /** La operación. rnd es propio de cada hilo y con semilla fija. */
+  public interface Op {
+    void run(Random rnd) throws Exception;
+  }
+
+  /** Preparación antes de la primera iteración (no se mide). */
+  public interface Setup {
+    void run() throws Exception;
+  }
+
+  final String name;
+  final Mode mode;
+  final int threads;
+  final boolean needsDb;
+  final Op op;
+  final Map<String, String> params = new LinkedHashMap<>();
+  Setup setup = () -> {};
+  Setup teardown = () -> {};
+
+  private static volatile Object sink;
+
+  /** Evita que el JIT descarte un resultado que nadie usa. */
+  public static void consume(Object o) { sink = o; }
+
+  private Benchmark(String name, Mode mode, int threads, boolean needsDb, Op op) {
+    this.name = name;
+    this.mode = mode;
+    this.threads = threads;
+    this.needsDb = needsDb;
+    this.op = op;
+  }
+
+  public static Benchmark throughput(String name, int threads, boolean needsDb, Op op) {
+    return new Benchmark(name, Mode.THROUGHPUT, threads, needsDb, op);
+  }
+
+  public static Benchmark singleShot(String name, boolean needsDb, Op op) {
+    return new Benchmark(name, Mode.SINGLE_SHOT, 1, needsDb, op);
+  }
+
+  public Benchmark param(String key, Object value) {
+    params.put(key, String.valueOf(value));
+    return this;
+  }
+
+  public Benchmark setup(Setup setup) {
+    this.setup = setup;
+    return this;
+  }
+
+  /** Limpieza después de la última iteración, aunque haya fallado. */
+  public Benchmark teardown(Setup teardown) {
+    this.teardown = teardown;
+    return this;
+  }
+
+  /** Nombre con parámetros e hilos, el que se usa para filtrar. */
+  public String id() {
+    StringBuilder sb = new StringBuilder(name);
+    params.forEach((k, v) -> sb.append(':').append(k).append('=').append(v));
+    return sb.append(":threads=").append(threads).toString();
+  }
+}
@@ -0,0 +1,295 @@
+package bizstock.bench;
+
+import bizstock.service.GroupCommitExecutor;
+import bizstock.service.InventoryService;
+import bizstock.service.MovementJournal;
+import bizstock.util.LatencyHistogram;
+
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Simulador de cajas: N terminales registran salidas (y algunas entradas)
+ * contra la BD local sin interfaz, para ver cuántas soporta antes de que la
+ * latencia de registerOut se dispare.
+ *
+ *   java -cp out:lib/* bizstock.bench.CheckoutLoadSimulator [opciones]
+ *
+ *   --terminals N    terminales simultáneas (16)
+ *   --seconds N      duración medida (30), después de --warmup N segundos (5)
+ *   --skew S         uniform | zipf (zipf)
+ *   --zipf-s X       exponente de Zipf; más alto, más concentrado (1.0)
+ *   --out-ratio X    fracción de salidas (0.9); el resto son entradas
+ *   --max-qty N      unidades por movimiento, 1..N (3)
+ *   --think-ms N     pausa entre movimientos de una terminal (0)
+ *   --products N     productos de prueba (10000)
+ *   --json ARCHIVO   además del reporte, el resultado en JSON
+ *
+ * Cuenta aparte los "No puedes sacar mas de lo disponible", los lock wait
+ * timeout (1205) y los deadlocks (1213) de MySQL. Los percentiles se
+ * reportan con todas las llamadas y también separando exitosas y fallidas.
+ */
+public final class CheckoutLoadSimulator {
+
+  private final InventoryService service = new InventoryService();
+
+  // Las llamadas que terminan con error (lock wait timeout, deadlock...) van
+  // aparte: son justamente la cola lenta, así que también se reportan
+  private final LatencyHistogram outLatency = new LatencyHistogram();
+  private final LatencyHistogram inLatency  = new LatencyHistogram();
+  private final LatencyHistogram outFailed  = new LatencyHistogram();
+  private final LatencyHistogram inFailed   = new LatencyHistogram();
+  private final LongAdder insufficient = new LongAdder();
+  private final LongAdder lockWaits    = new LongAdder();
+  private final LongAdder deadlocks    = new LongAdder();
+  private final LongAdder otherErrors  = new LongAdder();
+
+  private volatile boolean measuring;
+  private volatile boolean stop;
+
+  public static void main(String[] args) throws Exception {
+    int terminals = 16;
+    int seconds = 30;
+    int warmup = 5;
+    boolean zipf = true;
+    double zipfS = 1.0;
+    double outRatio = 0.9;
+    int maxQty = 3;
+    long thinkMs = 0;
+    int products = 10_000;
+    Path json = null;
+
+    for (int i = 0; i < args.length; i++) {
+      switch (args[i]) {
+        case "--terminals" -> terminals = Integer.parseInt(args[++i]);
+        case "--seconds"   -> seconds = Integer.parseInt(args[++i]);
+        case "--warmup"    -> warmup = Integer.parseInt(args[++i]);
+        case "--skew"      -> zipf = parseSkew(args[++i]);
+        case "--zipf-s"    -> zipfS = Double.parseDouble(args[++i]);
+        case "--out-ratio" -> outRatio = Double.parseDouble(args[++i]);
+        case "--max-qty"   -> maxQty = Integer.parseInt(args[++i]);
+        case "--think-ms"  -> thinkMs = Long.parseLong(args[++i]);
+        case "--products"  -> products = Integer.parseInt(args[++i]);
+        case "--json"      -> json = Path.of(args[++i]);
+        default -> throw new IllegalArgumentException("Opción desconocida: " + args[i]);
+      }
+    }
+
+    BenchData data = new BenchData(products, 100, 500);
+    data.ensure();
+    ProductPicker picker = zipf ? new ProductPicker(data.ids(), zipfS) : new ProductPicker(data.ids(), 0);
+
+    CheckoutLoadSimulator sim = new CheckoutLoadSimulator();
+    String params = String.format(Locale.ROOT,
+        "terminales=%d skew=%s out=%.2f maxQty=%d thinkMs=%d productos=%d"
+            + " stockMode=%s journal=%s groupCommit=%s locks=%s",
+        terminals, zipf ? "zipf(" + zipfS + ")" : "uniform", outRatio, maxQty, thinkMs, products,
+        sim.service.getStockUpdateMode(), MovementJournal.isEnabled(), GroupCommitExecutor.isEnabled(),
+        System.getProperty("bizstock.locks.enabled", "true"));
+    System.out.println("Simulando " + params);
+
+    double elapsed = sim.run(terminals, warmup, seconds, picker, outRatio, maxQty, thinkMs);
+    sim.report(elapsed);
+    if (json != null) sim.writeJson(json, params, terminals, elapsed);
+    System.exit(0);
+  }
+
+  private static boolean parseSkew(String s) {
+    return switch (s) {
+      case "zipf" -> true;
+      case "uniform" -> false;
+      default -> throw new IllegalArgumentException("--skew debe ser uniform o zipf");
+    };
+  }
+
+  /** Corre las terminales y devuelve los segundos medidos. */
+  private double run(int terminals, int warmup, int seconds, ProductPicker picker,
+                     double outRatio, int maxQty, long thinkMs) throws Exception {
+    CountDownLatch start = new CountDownLatch(1);
+    List<Thread> threads = new ArrayList<>(terminals);
+
+    for (int t = 0; t < terminals; t++) {
+      Random rnd = new Random(Harness.SEED + t);
+      Thread th = new Thread(() -> {
+        try {
+          start.await();
+        } catch (InterruptedException ex) {
+          return;
+        }
+        while (!stop) {
+          int productId = picker.next(rnd);
+          int qty = 1 + rnd.nextInt(maxQty);
+          boolean out = rnd.nextDouble() < outRatio;
+          movement(productId, qty, out);
+          if (thinkMs > 0) {
+            try {
+              Thread.sleep(thinkMs);
+            } catch (InterruptedException ex) {
+              return;
+            }
+          }
+        }
+      }, "terminal-" + t);
+      threads.add(th);
+      th.start();
+    }
+
+    start.countDown();
+    Thread.sleep(warmup * 1000L);
+    measuring = true;
+    long t0 = System.nanoTime();
+
+    for (int s = 1; s <= seconds; s++) {
+      Thread.sleep(1000);
+      if (s % 5 == 0 || s == seconds) {
+        System.out.printf("  %3ds  salidas=%d entradas=%d fallidas=%d  p99 salida=%.2fms%n",
+            s, outLatency.getCount(), inLatency.getCount(), outFailed.getCount() + inFailed.getCount(),
+            all(outLatency, outFailed).getPercentile(99) / 1e6);
+      }
+    }
+
+    measuring = false;
+    double elapsed = (System.nanoTime() - t0) / 1e9;
+    stop = true;
+    for (Thread th : threads) th.join();
+    return elapsed;
+  }
+
+  private void movement(int productId, int qty, boolean out) {
+    long t0 = System.nanoTime();
+    try {
+      if (out) service.registerOut(productId, qty, 1, "simulador");
+      else service.registerIn(productId, qty, 1, "simulador");
+      if (measuring) (out ? outLatency : inLatency).recordSince(t0);
+    } catch (Exception ex) {
+      if (measuring) {
+        (out ? outFailed : inFailed).recordSince(t0);
+        classify(ex);
+      }
+    }
+  }
+
+  /** Exitosas y fallidas juntas. */
+  private static LatencyHistogram all(LatencyHistogram ok, LatencyHistogram failed) {
+    LatencyHistogram h = new LatencyHistogram();
+    h.add(ok);
+    h.add(failed);
+    return h;
+  }
+
+  private void classify(Exception ex) {
+    if (ex instanceof IllegalArgumentException && String.valueOf(ex.getMessage()).startsWith("No puedes sacar")) {
+      insufficient.increment();
+      return;
+    }
+    for (Throwable c = ex; c != null; c = c.getCause()) {
+      if (c instanceof SQLException sql) {
+        if (sql.getErrorCode() == 1205) { lockWaits.increment(); return; }
+        if (sql.getErrorCode() == 1213) { deadlocks.increment(); return; }
+      }
+    }
+    otherErrors.increment();
+    if (otherErrors.sum() <= 5) ex.printStackTrace();
+  }
+
+  // ─── Reporte ───────────────────────────────────────────────────────────────
+
+  private void report(double elapsed) {
+    long ok = outLatency.getCount() + inLatency.getCount();
+    System.out.println();
+    System.out.printf("Throughput: %.1f movimientos/s (%d en %.1fs)%n", ok / elapsed, ok, elapsed);
+    System.out.println("registerOut (todas):    " + all(outLatency, outFailed).summary());
+    System.out.println("registerOut (exitosas): " + outLatency.summary());
+    System.out.println("registerOut (fallidas): " + outFailed.summary());
+    System.out.println("registerIn  (todas):    " + all(inLatency, inFailed).summary());
+    System.out.println("registerIn  (exitosas): " + inLatency.summary());
+    System.out.println("registerIn  (fallidas): " + inFailed.summary());
+    System.out.println("Sin stock suficiente: " + insufficient.sum());
+    System.out.println("Lock wait timeout (1205): " + lockWaits.sum());
+    System.out.println("Deadlocks (1213): " + deadlocks.sum());
+    System.out.println("Otros errores: " + otherErrors.sum());
+  }
+
+  private void writeJson(Path file, String params, int terminals, double elapsed) throws Exception {
+    long ok = outLatency.getCount() + inLatency.getCount();
+    try (Writer w = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+      w.write("{\n");
+      w.write("  \"params\": \"" + params + "\",\n");
+      w.write("  \"terminals\": " + terminals + ",\n");
+      w.write("  \"seconds\": " + elapsed + ",\n");
+      w.write("  \"throughput\": " + ok / elapsed + ",\n");
+      w.write("  \"registerOut\": " + latencyJson(all(outLatency, outFailed)) + ",\n");
+      w.write("  \"registerOutOk\": " + latencyJson(outLatency) + ",\n");
+      w.write("  \"registerOutFailed\": " + latencyJson(outFailed) + ",\n");
+      w.write("  \"registerIn\": " + latencyJson(all(inLatency, inFailed)) + ",\n");
+      w.write("  \"registerInOk\": " + latencyJson(inLatency) + ",\n");
+      w.write("  \"registerInFailed\": " + latencyJson(inFailed) + ",\n");
+      w.write("  \"insufficientStock\": " + insufficient.sum() + ",\n");
+      w.write("  \"lockWaitTimeouts\": " + lockWaits.sum() + ",\n");
+      w.write("  \"deadlocks\": " + deadlocks.sum() + ",\n");
+      w.write("  \"otherErrors\": " + otherErrors.sum() + "\n");
+      w.write("}\n");
+    }
+  }
+
+  private static String latencyJson(LatencyHistogram h) {
+    return String.format(Locale.ROOT,
+        "{\"count\": %d, \"meanMs\": %.4f, \"p50Ms\": %.4f, \"p99Ms\": %.4f, \"p999Ms\": %.4f, \"maxMs\": %.4f}",
+        h.getCount(), h.getMean() / 1e6, h.getPercentile(50) / 1e6, h.getPercentile(99) / 1e6,
+        h.getPercentile(99.9) / 1e6, h.getMax() / 1e6);
+  }
+
+  // ─── Elección de productos ─────────────────────────────────────────────────
+
+  /**
+   * Uniforme (s = 0) o Zipf: el producto de rango k sale con probabilidad
+   * proporcional a 1/k^s. Los rangos se asignan a los productos en un orden
+   * barajado con semilla fija, así los más vendidos no son los ids más bajos.
+   * next() solo hace una búsqueda binaria sobre la distribución acumulada.
+   */
+  static final class ProductPicker {
+    private final int[] ids;
+    private final double[] cdf;   // null = uniforme
+
+    ProductPicker(List<Integer> productIds, double s) {
+      List<Integer> shuffled = new ArrayList<>(productIds);
+      Collections.shuffle(shuffled, new Random(Harness.SEED));
+      ids = new int[shuffled.size()];
+      for (int i = 0; i < ids.length; i++) ids[i] = shuffled.get(i);
+
+      if (s <= 0) {
+        cdf = null;
+        return;
+      }
+      cdf = new double[ids.length];
+      double acc = 0;
+      for (int k = 0; k < ids.length; k++) {
+        acc += 1.0 / Math.pow(k + 1, s);
+        cdf[k] = acc;
+      }
+      for (int k = 0; k < ids.length; k++) cdf[k] /= acc;
+    }
+
+    int next(Random rnd) {
+      if (cdf == null) return ids[rnd.nextInt(ids.length)];
+      double u = rnd.nextDouble();
+      int lo = 0, hi = cdf.length - 1;
+      while (lo < hi) {
+        int mid = (lo + hi) >>> 1;
+        if (cdf[mid] < u) lo = mid + 1;
+        else hi = mid;
+      }
+      return ids[lo];
+    }
+  }
+}
@@ -0,0 +1,175 @@
+package bizstock.bench;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Corre los benchmarks (calentamiento y luego iteraciones medidas, todo en la
+ * misma JVM) y escribe los resultados en el JSON de JMH (-rf json), así se
+ * pueden comparar con las mismas herramientas.
+ */
+final class Harness {
+
+  static final long SEED = 42;
+
+  private final int  warmupIterations;
+  private final int  measurementIterations;
+  private final long iterationMs;
+
+  Harness(int warmupIterations, int measurementIterations, long iterationMs) {
+    this.warmupIterations = warmupIterations;
+    this.measurementIterations = measurementIterations;
+    this.iterationMs = iterationMs;
+  }
+
+  record Result(Benchmark benchmark, double[] scores, String unit, int warmup, int measured) {
+    double mean() {
+      double sum = 0;
+      for (double s : scores) sum += s;
+      return sum / scores.length;
+    }
+
+    /** Media ± error al 99,9 % como en JMH (t de Student aproximada por la normal). */
+    double error() {
+      if (scores.length < 2) return Double.NaN;
+      double m = mean();
+      double var = 0;
+      for (double s : scores) var += (s - m) * (s - m);
+      return 3.29 * Math.sqrt(var / (scores.length - 1)) / Math.sqrt(scores.length);
+    }
+  }
+
+  Result run(Benchmark b) throws Exception {
+    b.setup.run();
+    try {
+      boolean single = b.mode == Benchmark.Mode.SINGLE_SHOT;
+      Random rnd = new Random(SEED);
+
+      for (int i = 0; i < warmupIterations; i++) {
+        if (single) singleShot(b, rnd); else throughput(b, i);
+      }
+      double[] scores = new double[measurementIterations];
+      for (int i = 0; i < measurementIterations; i++) {
+        scores[i] = single ? singleShot(b, rnd) : throughput(b, warmupIterations + i);
+      }
+      return new Result(b, scores, single ? "ms/op" : "ops/s", warmupIterations, measurementIterations);
+    } finally {
+      b.teardown.run();
+    }
+  }
+
+  private double singleShot(Benchmark b, Random rnd) throws Exception {
+    long t0 = System.nanoTime();
+    b.op.run(rnd);
+    return (System.nanoTime() - t0) / 1e6;
+  }
+
+  /** Todos los hilos arrancan juntos y cuentan operaciones hasta el mismo plazo. */
+  private double throughput(Benchmark b, int iteration) throws Exception {
+    CountDownLatch start = new CountDownLatch(1);
+    long[] ops = new long[b.threads];
+    AtomicReference<Exception> failure = new AtomicReference<>();
+    long[] window = new long[2];
+    Thread[] threads = new Thread[b.threads];
+
+    for (int t = 0; t < b.threads; t++) {
+      int index = t;
+      Random rnd = new Random(SEED + 1000L * iteration + index);
+      threads[t] = new Thread(() -> {
+        try {
+          start.await();
+          long deadline = window[1];
+          long n = 0;
+          while (System.nanoTime() < deadline) {
+            b.op.run(rnd);
+            n++;
+          }
+          ops[index] = n;
+        } catch (Exception ex) {
+          failure.compareAndSet(null, ex);
+        }
+      }, "bench-" + index);
+      threads[t].start();
+    }
+
+    window[0] = System.nanoTime();
+    window[1] = window[0] + iterationMs * 1_000_000;
+    start.countDown();
+    for (Thread t : threads) t.join();
+    long elapsed = System.nanoTime() - window[0];
+
+    if (failure.get() != null) throw failure.get();
+    long total = 0;
+    for (long n : ops) total += n;
+    return total * 1e9 / elapsed;
+  }
+
+  // ─── JSON ──────────────────────────────────────────────────────────────────
+
+  static void writeJson(Path file, List<Result> results) throws IOException {
+    try (Writer w = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+      w.write("[\n");
+      for (int i = 0; i < results.size(); i++) {
+        Result r = results.get(i);
+        Benchmark b = r.benchmark();
+        w.write("  {\n");
+        w.write("    \"benchmark\": " + str(b.name) + ",\n");
+        w.write("    \"mode\": " + str(b.mode == Benchmark.Mode.THROUGHPUT ? "thrpt" : "ss") + ",\n");
+        w.write("    \"threads\": " + b.threads + ",\n");
+        w.write("    \"forks\": 0,\n");
+        w.write("    \"jdkVersion\": " + str(System.getProperty("java.version")) + ",\n");
+        w.write("    \"vmName\": " + str(System.getProperty("java.vm.name")) + ",\n");
+        w.write("    \"warmupIterations\": " + r.warmup() + ",\n");
+        w.write("    \"measurementIterations\": " + r.measured() + ",\n");
+        w.write("    \"params\": {");
+        List<String> params = new ArrayList<>();
+        for (Map.Entry<String, String> e : b.params.entrySet()) params.add(str(e.getKey()) + ": " + str(e.getValue()));
+        w.write(String.join(", ", params));
+        w.write("},\n");
+        w.write("    \"primaryMetric\": {\n");
+        w.write("      \"score\": " + num(r.mean()) + ",\n");
+        w.write("      \"scoreError\": " + num(r.error()) + ",\n");
+        w.write("      \"scoreUnit\": " + str(r.unit()) + ",\n");
+        List<String> raw = new ArrayList<>();
+        for (double s : r.scores()) raw.add(num(s));
+        w.write("      \"rawData\": [[" + String.join(", ", raw) + "]]\n");
+        w.write("    },\n");
+        w.write("    \"secondaryMetrics\": {}\n");
+        w.write(i + 1 < results.size() ? "  },\n" : "  }\n");
+      }
+      w.write("]\n");
+    }
+  }
+
+  private static String num(double d) {
+    return Double.isNaN(d) ? "\"NaN\"" : Double.toString(d);
+  }
+
+  private static String str(String s) {
+    StringBuilder sb = new StringBuilder(s.length() + 2).append('"');
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      switch (c) {
+        case '"'  -> sb.append("\\\"");
+        case '\\' -> sb.append("\\\\");
+        case '\n' -> sb.append("\\n");
+        case '\r' -> sb.append("\\r");
+        case '\t' -> sb.append("\\t");
+        default   -> {
+          if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+          else sb.append(c);
+        }
+      }
+    }
+    return sb.append('"').toString();
+  }
+}
@@ -0,0 +1,39 @@
+package bizstock.bench;
+
+import bizstock.service.GroupCommitExecutor;
+import bizstock.service.InventoryService;
+import bizstock.service.MovementJournal;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * registerIn/registerOut con 1, 8 y 64 hilos sobre productos al azar del
+ * conjunto con stock alto. Los modos activos (-Dbizstock.stock.mode,
+ * journal, registro agrupado, locks) quedan en los parámetros del resultado.
+ * Cada operación deja un movimiento real en la BD.
+ */
+final class InventoryServiceBench {
+
+  private InventoryServiceBench() {}
+
+  static List<Benchmark> benchmarks(List<Integer> productIds) {
+    List<Benchmark> list = new ArrayList<>();
+    InventoryService service = new InventoryService();
+
+    for (int threads : new int[] {1, 8, 64}) {
+      list.add(withModes(Benchmark.throughput("InventoryService.registerIn", threads, true,
+          rnd -> service.registerIn(productIds.get(rnd.nextInt(productIds.size())), 1, 1, "bench")), service));
+      list.add(withModes(Benchmark.throughput("InventoryService.registerOut", threads, true,
+          rnd -> service.registerOut(productIds.get(rnd.nextInt(productIds.size())), 1, 1, "bench")), service));
+    }
+    return list;
+  }
+
+  private static Benchmark withModes(Benchmark b, InventoryService service) {
+    return b.param("stockMode", service.getStockUpdateMode())
+            .param("journal", MovementJournal.isEnabled())
+            .param("groupCommit", GroupCommitExecutor.isEnabled())
+            .param("locks", System.getProperty("bizstock.locks.enabled", "true"));
+  }
+}
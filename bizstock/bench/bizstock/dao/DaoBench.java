@@ -0,0 +1,62 @@
+package bizstock.dao;
+
+import bizstock.bench.Benchmark;
+import bizstock.util.DatabaseConnection;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Benchmarks de los DAO. Está en bizstock.dao para poder llamar a
+ * ProductDAO.map, que es del paquete.
+ */
+public final class DaoBench {
+
+  private DaoBench() {}
+
+  public static List<Benchmark> benchmarks(List<Integer> historyIds) {
+    List<Benchmark> list = new ArrayList<>();
+    ProductDAO productDAO = new ProductDAO();
+    InventoryMovementDAO movementDAO = new InventoryMovementDAO();
+
+    // map sobre filas ya traídas por Connector/J: mide solo la conversión a Product
+    ResultSet[] rows = new ResultSet[1];
+    Connection[] cn = new Connection[1];
+    list.add(Benchmark.throughput("ProductDAO.map", 1, true, rnd -> {
+          ResultSet rs = rows[0];
+          if (!rs.next()) {
+            rs.beforeFirst();
+            rs.next();
+          }
+          Benchmark.consume(productDAO.map(rs));
+        })
+        .param("rows", 1000)
+        .setup(() -> {
+          cn[0] = DatabaseConnection.getConnection();
+          Statement st = cn[0].createStatement(ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY);
+          rows[0] = st.executeQuery("""
+            SELECT id, name, description, price, quantity, reorder_level, critical_level,
+                   category_id, brand_id, is_active
+            FROM product WHERE is_active = 1 ORDER BY id LIMIT 1000
+          """);
+        })
+        .teardown(() -> {
+          if (rows[0] != null) rows[0].getStatement().close();
+          if (cn[0] != null) cn[0].close();
+        }));
+
+    list.add(Benchmark.throughput("ProductDAO.findAllActive", 1, true,
+            rnd -> Benchmark.consume(productDAO.findAllActive()))
+        .param("catalog", ProductCatalog.isEnabled()));
+
+    for (int threads : new int[] {1, 8}) {
+      list.add(Benchmark.throughput("InventoryMovementDAO.findByProduct", threads, true,
+              rnd -> Benchmark.consume(movementDAO.findByProduct(historyIds.get(rnd.nextInt(historyIds.size())), 50)))
+          .param("limit", 50));
+    }
+    return list;
+  }
+}
@@ -0,0 +1,53 @@
+package bizstock.util;
+
+import bizstock.bench.Benchmark;
+import bizstock.model.Product;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * PdfExporter.writePdf con 1.000 y 100.000 filas generadas en memoria (no
+ * usa la BD). Está en bizstock.util porque writePdf es del paquete. Cada
+ * llamada es una medición (ms/op) y el PDF se borra al terminar.
+ */
+public final class PdfExporterBench {
+
+  private PdfExporterBench() {}
+
+  public static List<Benchmark> benchmarks() {
+    List<Benchmark> list = new ArrayList<>();
+    for (int rows : new int[] {1_000, 100_000}) {
+      List<Product> products = new ArrayList<>(rows);
+      list.add(Benchmark.singleShot("PdfExporter.writePdf", false, rnd -> {
+            String path = PdfExporter.writePdf("Bench", "Benchmark", products, null);
+            if (!new File(path).delete()) System.err.println("No se pudo borrar " + path);
+          })
+          .param("rows", rows)
+          .setup(() -> fill(products, rows))
+          .teardown(products::clear));
+    }
+    return list;
+  }
+
+  private static void fill(List<Product> products, int rows) {
+    Random rnd = new Random(42);
+    for (int i = 0; i < rows; i++) {
+      Product p = new Product();
+      p.setId(i + 1);
+      p.setName(String.format("Producto %06d", i));
+      p.setDescription("Descripción de prueba " + rnd.nextInt(1000));
+      p.setPrice(BigDecimal.valueOf(100 + rnd.nextInt(100_000), 2));
+      p.setQuantity(rnd.nextInt(500));
+      p.setReorderLevel(10);
+      p.setCriticalLevel(5);
+      p.setCategoryId(1);
+      p.setBrandId(1);
+      p.setActive(true);
+      products.add(p);
+    }
+  }
+}
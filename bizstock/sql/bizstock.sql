@@ -126,6 +126,47 @@ LOCK TABLES `inventory_movement` WRITE;
 /*!40000 ALTER TABLE `inventory_movement` ENABLE KEYS */;
 UNLOCK TABLES;
 
+--
+-- Table structure for table `movement_journal_checkpoint`
+--
+
+DROP TABLE IF EXISTS `movement_journal_checkpoint`;
+/*!40101 SET @saved_cs_client     = @@character_set_client */;
+/*!50503 SET character_set_client = utf8mb4 */;
+CREATE TABLE `movement_journal_checkpoint` (
+  `journal_id` varchar(128) NOT NULL,
+  `last_seq` bigint NOT NULL DEFAULT '0',
+  `updated_at` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+  PRIMARY KEY (`journal_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
+/*!40101 SET character_set_client = @saved_cs_client */;
+
+--
+-- Table structure for table `movement_journal_rejected`
+--
+
+DROP TABLE IF EXISTS `movement_journal_rejected`;
+/*!40101 SET @saved_cs_client     = @@character_set_client */;
+/*!50503 SET character_set_client = utf8mb4 */;
+CREATE TABLE `movement_journal_rejected` (
+  `id` bigint NOT NULL AUTO_INCREMENT,
+  `journal_id` varchar(128) NOT NULL,
+  `seq` bigint NOT NULL,
+  `product_id` int NOT NULL,
+  `user_id` int NOT NULL,
+  `movement_type` enum('IN','OUT') NOT NULL,
+  `quantity` int NOT NULL,
+  `note` varchar(255) DEFAULT NULL,
+  `occurred_at` timestamp NULL DEFAULT NULL,
+  `reason` varchar(255) NOT NULL,
+  `rejected_at` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  `resolved_at` timestamp NULL DEFAULT NULL,
+  PRIMARY KEY (`id`),
+  UNIQUE KEY `uq_journal_rejected_seq` (`journal_id`,`seq`),
+  KEY `idx_journal_rejected_resolved` (`resolved_at`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
+/*!40101 SET character_set_client = @saved_cs_client */;
+
 --
 -- Table structure for table `product`
 --
@@ -144,9 +185,15 @@ CREATE TABLE `product` (
   `category_id` int NOT NULL,
   `brand_id` int NOT NULL,
   `is_active` tinyint(1) NOT NULL DEFAULT '1',
+  `updated_at` timestamp(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6) ON UPDATE CURRENT_TIMESTAMP(6),
+  `alert_margin` int GENERATED ALWAYS AS ((`quantity` - greatest(`reorder_level`,`critical_level`))) STORED,
   PRIMARY KEY (`id`),
   KEY `idx_product_category` (`category_id`),
   KEY `idx_product_brand` (`brand_id`),
+  KEY `idx_product_active_name` (`is_active`,`name`),
+  KEY `idx_product_updated` (`updated_at`),
+  KEY `idx_product_alert` (`is_active`,`alert_margin`),
+  FULLTEXT KEY `ft_product_search` (`name`,`description`),
   CONSTRAINT `fk_product_brand` FOREIGN KEY (`brand_id`) REFERENCES `brand` (`id`),
   CONSTRAINT `fk_product_category` FOREIGN KEY (`category_id`) REFERENCES `category` (`id`),
   CONSTRAINT `chk_levels` CHECK (((`reorder_level` >= `critical_level`) and (`critical_level` >= 0))),
@@ -160,9 +207,38 @@ CREATE TABLE `product` (
 
 LOCK TABLES `product` WRITE;
 /*!40000 ALTER TABLE `product` DISABLE KEYS */;
-INSERT INTO `product` VALUES (2,'Shampoo Prueba','Producto de prueba',9.99,12,10,5,1,1,1),(3,'Shampoo Prueba Editado','Producto de prueba',9.99,8,10,5,1,1,0),(4,'Shampoo Prueba Editado','Producto de prueba',9.99,8,10,5,1,1,0),(5,'Acondicionador prueba','Acondicionador',1.00,1,10,5,1,1,0),(6,'Acondicionador','Producto Nuevo',1.00,1,10,5,1,1,1),(7,'Hairspray','Producto Nuevo',1.00,1,10,5,1,1,1),(8,'Moroccanoil Treatment','light treatment for curly hair',25.00,0,10,5,1,1,1);
+INSERT INTO `product` (`id`,`name`,`description`,`price`,`quantity`,`reorder_level`,`critical_level`,`category_id`,`brand_id`,`is_active`) VALUES (2,'Shampoo Prueba','Producto de prueba',9.99,12,10,5,1,1,1),(3,'Shampoo Prueba Editado','Producto de prueba',9.99,8,10,5,1,1,0),(4,'Shampoo Prueba Editado','Producto de prueba',9.99,8,10,5,1,1,0),(5,'Acondicionador prueba','Acondicionador',1.00,1,10,5,1,1,0),(6,'Acondicionador','Producto Nuevo',1.00,1,10,5,1,1,1),(7,'Hairspray','Producto Nuevo',1.00,1,10,5,1,1,1),(8,'Moroccanoil Treatment','light treatment for curly hair',25.00,0,10,5,1,1,1);
 /*!40000 ALTER TABLE `product` ENABLE KEYS */;
 UNLOCK TABLES;
+
+--
+-- Table structure for table `stock_daily`
+--
+
+DROP TABLE IF EXISTS `stock_daily`;
+/*!40101 SET @saved_cs_client     = @@character_set_client */;
+/*!50503 SET character_set_client = utf8mb4 */;
+CREATE TABLE `stock_daily` (
+  `product_id` int NOT NULL,
+  `day` date NOT NULL,
+  `opening_qty` int NOT NULL,
+  `total_in` int NOT NULL DEFAULT '0',
+  `total_out` int NOT NULL DEFAULT '0',
+  `closing_qty` int NOT NULL,
+  PRIMARY KEY (`product_id`,`day`),
+  KEY `idx_stock_daily_day` (`day`),
+  CONSTRAINT `fk_stock_daily_product` FOREIGN KEY (`product_id`) REFERENCES `product` (`id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
+/*!40101 SET character_set_client = @saved_cs_client */;
+
+--
+-- Dumping data for table `stock_daily`
+--
+
+LOCK TABLES `stock_daily` WRITE;
+/*!40000 ALTER TABLE `stock_daily` DISABLE KEYS */;
+/*!40000 ALTER TABLE `stock_daily` ENABLE KEYS */;
+UNLOCK TABLES;
 /*!40103 SET TIME_ZONE=@OLD_TIME_ZONE */;
 
 /*!40101 SET SQL_MODE=@OLD_SQL_MODE */;
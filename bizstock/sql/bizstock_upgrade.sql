@@ -0,0 +1,73 @@
+-- ------------------------------------------------------
+-- BizStock – actualización de una base existente
+--
+-- bizstock.sql ya incluye estos cambios para instalaciones nuevas.
+-- Ejecutar en orden sobre la base `bizstock`.
+-- ------------------------------------------------------
+
+USE `bizstock`;
+
+-- Paginación por cursor del catálogo (ORDER BY name, id)
+ALTER TABLE `product`
+  ADD KEY `idx_product_active_name` (`is_active`,`name`);
+
+-- Refresco incremental: marca de la última modificación de cada producto.
+-- ON UPDATE cubre altas, ediciones, bajas lógicas y cambios de stock.
+ALTER TABLE `product`
+  ADD COLUMN `updated_at` timestamp(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6) ON UPDATE CURRENT_TIMESTAMP(6),
+  ADD KEY `idx_product_updated` (`updated_at`);
+
+-- Búsqueda en la BD cuando el catálogo es demasiado grande para indexarlo en memoria
+ALTER TABLE `product`
+  ADD FULLTEXT KEY `ft_product_search` (`name`,`description`);
+
+-- Alertas de stock en una sola lectura indexada: alert_margin <= 0 cubre
+-- críticos y bajos (cantidad <= mayor de los dos niveles)
+ALTER TABLE `product`
+  ADD COLUMN `alert_margin` int GENERATED ALWAYS AS ((`quantity` - greatest(`reorder_level`,`critical_level`))) STORED,
+  ADD KEY `idx_product_alert` (`is_active`,`alert_margin`);
+
+-- Resumen diario de stock por producto (reportes históricos sin recorrer
+-- todos los movimientos). Después de crearla, llenarla una vez con
+-- StockRollupService.rebuild().
+CREATE TABLE `stock_daily` (
+  `product_id` int NOT NULL,
+  `day` date NOT NULL,
+  `opening_qty` int NOT NULL,
+  `total_in` int NOT NULL DEFAULT '0',
+  `total_out` int NOT NULL DEFAULT '0',
+  `closing_qty` int NOT NULL,
+  PRIMARY KEY (`product_id`,`day`),
+  KEY `idx_stock_daily_day` (`day`),
+  CONSTRAINT `fk_stock_daily_product` FOREIGN KEY (`product_id`) REFERENCES `product` (`id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
+
+-- Modo write-behind (-Dbizstock.journal.enabled=true): última secuencia del
+-- journal local ya aplicada, por estación
+CREATE TABLE `movement_journal_checkpoint` (
+  `journal_id` varchar(128) NOT NULL,
+  `last_seq` bigint NOT NULL DEFAULT '0',
+  `updated_at` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+  PRIMARY KEY (`journal_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
+
+-- Movimientos del journal que al pasar a MySQL no se pudieron aplicar (por
+-- ejemplo, una salida sin stock) aunque ya se habían confirmado en la estación.
+-- Quedan para conciliar a mano; resolved_at marca los ya revisados.
+CREATE TABLE `movement_journal_rejected` (
+  `id` bigint NOT NULL AUTO_INCREMENT,
+  `journal_id` varchar(128) NOT NULL,
+  `seq` bigint NOT NULL,
+  `product_id` int NOT NULL,
+  `user_id` int NOT NULL,
+  `movement_type` enum('IN','OUT') NOT NULL,
+  `quantity` int NOT NULL,
+  `note` varchar(255) DEFAULT NULL,
+  `occurred_at` timestamp NULL DEFAULT NULL,
+  `reason` varchar(255) NOT NULL,
+  `rejected_at` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  `resolved_at` timestamp NULL DEFAULT NULL,
+  PRIMARY KEY (`id`),
+  UNIQUE KEY `uq_journal_rejected_seq` (`journal_id`,`seq`),
+  KEY `idx_journal_rejected_resolved` (`resolved_at`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
@@ -0,0 +1,56 @@
+package bizstock.dao;
+
+import bizstock.model.Product;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.TreeSet;
+
+/**
+ * Índice en memoria de los productos en alerta, mantenido de forma incremental.
+ *
+ * Cada cambio de cantidad o de niveles mueve el producto entre los conjuntos
+ * "crítico" y "bajo" en O(log n). La lectura devuelve un {@link AlertSnapshot}
+ * cacheado que solo se reconstruye (O(alertas)) si hubo cambios.
+ */
+final class AlertIndex {
+
+  static final Comparator<Product> BY_QTY_NAME =
+    Comparator.comparingInt(Product::getQuantity).thenComparing(ProductCatalog.BY_NAME);
+
+  private final TreeSet<Product> critical = new TreeSet<>(BY_QTY_NAME);
+  private final TreeSet<Product> low      = new TreeSet<>(BY_QTY_NAME);
+
+  private long version;
+  private AlertSnapshot snapshot = new AlertSnapshot(0, new ArrayList<>(), new ArrayList<>());
+
+  /**
+   * Reemplaza la versión anterior de un producto por la nueva.
+   * before o after pueden ser null (alta / baja del catálogo).
+   */
+  synchronized void update(Product before, Product after) {
+    boolean changed = false;
+    if (before != null) {
+      changed |= critical.remove(before);
+      changed |= low.remove(before);
+    }
+    if (after != null && after.isActive()) {
+      if (AlertSnapshot.isCritical(after))  changed |= critical.add(after);
+      else if (AlertSnapshot.isLow(after))  changed |= low.add(after);
+    }
+    if (changed) version++;
+  }
+
+  synchronized void clear() {
+    critical.clear();
+    low.clear();
+    version++;
+  }
+
+  synchronized AlertSnapshot snapshot() {
+    if (snapshot.getVersion() != version) {
+      snapshot = new AlertSnapshot(version, new ArrayList<>(critical), new ArrayList<>(low));
+    }
+    return snapshot;
+  }
+}
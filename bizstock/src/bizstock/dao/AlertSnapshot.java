@@ -0,0 +1,36 @@
+package bizstock.dao;
+
+import bizstock.model.Product;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Productos en alerta en un mismo instante: críticos (cantidad <= nivel crítico)
+ * y bajos (nivel crítico < cantidad <= nivel de reorden), ordenados por
+ * cantidad y luego por nombre.
+ */
+public final class AlertSnapshot {
+  private final long version;
+  private final List<Product> critical;
+  private final List<Product> low;
+
+  public AlertSnapshot(long version, List<Product> critical, List<Product> low) {
+    this.version = version;
+    this.critical = Collections.unmodifiableList(critical);
+    this.low = Collections.unmodifiableList(low);
+  }
+
+  public long getVersion() { return version; }
+  public List<Product> getCritical() { return critical; }
+  public List<Product> getLow() { return low; }
+  public int getTotal() { return critical.size() + low.size(); }
+
+  public static boolean isCritical(Product p) {
+    return p.getQuantity() <= p.getCriticalLevel();
+  }
+
+  public static boolean isLow(Product p) {
+    return p.getQuantity() <= p.getReorderLevel() && p.getQuantity() > p.getCriticalLevel();
+  }
+}
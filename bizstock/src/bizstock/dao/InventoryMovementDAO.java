@@ -1,66 +1,239 @@
 package bizstock.dao;
 
 import bizstock.model.InventoryMovement;
+import bizstock.model.MovementRequest;
+import bizstock.util.Metrics;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class InventoryMovementDAO {
 
+  private static final Metrics.Timer T_INSERT = Metrics.timer("InventoryMovementDAO.insert");
+  private static final Metrics.Timer T_INSERT_BATCH = Metrics.timer("InventoryMovementDAO.insertBatch");
+  private static final Metrics.Timer T_FIND_BY_PRODUCT = Metrics.timer("InventoryMovementDAO.findByProduct");
+  private static final Metrics.Timer T_FIND_BY_PRODUCT_PAGE = Metrics.timer("InventoryMovementDAO.findByProductPage");
+  private static final Metrics.Timer T_SUM_DELTA_OF_DAY_UNTIL = Metrics.timer("InventoryMovementDAO.sumDeltaOfDayUntil");
+
   public void insert(Connection cn, int productId, int userId, String type, int qty, String note) throws SQLException {
-    String sql = """
-      INSERT INTO inventory_movement (product_id, user_id, movement_type, quantity, note)
-      VALUES (?, ?, ?, ?, ?)
-    """;
-
-    try (PreparedStatement ps = cn.prepareStatement(sql)) {
-      ps.setInt(1, productId);
-      ps.setInt(2, userId);
-      ps.setString(3, type);
-      ps.setInt(4, qty);
-      ps.setString(5, note);
-      ps.executeUpdate();
+    long t0 = T_INSERT.start();
+    try {
+      String sql = """
+        INSERT INTO inventory_movement (product_id, user_id, movement_type, quantity, note)
+        VALUES (?, ?, ?, ?, ?)
+      """;
+
+      try (PreparedStatement ps = cn.prepareStatement(sql)) {
+        ps.setInt(1, productId);
+        ps.setInt(2, userId);
+        ps.setString(3, type);
+        ps.setInt(4, qty);
+        ps.setString(5, note);
+        ps.executeUpdate();
+      }
+    } catch (Exception ex) {
+      T_INSERT.error();
+      throw ex;
+    } finally {
+      T_INSERT.stop(t0);
+    }
+  }
+
+  /**
+   * Inserta todas las líneas con un solo batch JDBC dentro de la transacción de
+   * cn. created_at es getOccurredAt() si la línea lo trae (journal) y si no la
+   * hora de la BD.
+   */
+  public void insertBatch(Connection cn, List<MovementRequest> lines) throws SQLException {
+    long t0 = T_INSERT_BATCH.start();
+    try {
+      String sql = """
+        INSERT INTO inventory_movement (product_id, user_id, movement_type, quantity, note, created_at)
+        VALUES (?, ?, ?, ?, ?, COALESCE(?, CURRENT_TIMESTAMP))
+      """;
+
+      try (PreparedStatement ps = cn.prepareStatement(sql)) {
+        for (MovementRequest r : lines) {
+          ps.setInt(1, r.getProductId());
+          ps.setInt(2, r.getUserId());
+          ps.setString(3, r.getMovementType());
+          ps.setInt(4, r.getQuantity());
+          ps.setString(5, r.getNote());
+          ps.setTimestamp(6, r.getOccurredAt() == 0 ? null : new Timestamp(r.getOccurredAt()));
+          ps.addBatch();
+        }
+        ps.executeBatch();
+      }
+    } catch (Exception ex) {
+      T_INSERT_BATCH.error();
+      throw ex;
+    } finally {
+      T_INSERT_BATCH.stop(t0);
     }
   }
 
   public List<InventoryMovement> findByProduct(int productId, int limit) throws SQLException {
-    String sql = """
-      SELECT id, product_id, user_id, movement_type, quantity, note, created_at
-      FROM inventory_movement
-      WHERE product_id = ?
-      ORDER BY created_at DESC, id DESC
-      LIMIT ?
-    """;
-
-    List<InventoryMovement> list = new ArrayList<>();
-
-    try (Connection cn = bizstock.util.DatabaseConnection.getConnection();
-         PreparedStatement ps = cn.prepareStatement(sql)) {
-
-      ps.setInt(1, productId);
-      ps.setInt(2, limit);
-
-      try (ResultSet rs = ps.executeQuery()) {
-        while (rs.next()) {
-          InventoryMovement m = new InventoryMovement();
-          m.setId(rs.getInt("id"));
-          m.setProductId(rs.getInt("product_id"));
-          m.setUserId(rs.getInt("user_id"));
-          m.setMovementType(rs.getString("movement_type"));
-          m.setQuantity(rs.getInt("quantity"));
-          m.setNote(rs.getString("note"));
-          if (rs.getTimestamp("created_at") != null) {
-            m.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
+    long t0 = T_FIND_BY_PRODUCT.start();
+    try {
+      String sql = """
+        SELECT id, product_id, user_id, movement_type, quantity, note, created_at
+        FROM inventory_movement
+        WHERE product_id = ?
+        ORDER BY created_at DESC, id DESC
+        LIMIT ?
+      """;
+
+      List<InventoryMovement> list = new ArrayList<>();
+
+      try (Connection cn = bizstock.util.DatabaseConnection.getConnection();
+           PreparedStatement ps = cn.prepareStatement(sql)) {
+
+        ps.setInt(1, productId);
+        ps.setInt(2, limit);
+
+        try (ResultSet rs = ps.executeQuery()) {
+          while (rs.next()) {
+            list.add(map(rs));
           }
-          list.add(m);
         }
       }
+
+      return list;
+    } catch (Exception ex) {
+      T_FIND_BY_PRODUCT.error();
+      throw ex;
+    } finally {
+      T_FIND_BY_PRODUCT.stop(t0);
     }
+  }
+
+  /**
+   * Historial de un producto del más nuevo al más viejo, con cursor keyset
+   * sobre (created_at, id) usando idx_move_product_date. token null = primera página.
+   */
+  public Page<InventoryMovement> findByProductPage(int productId, String token, int pageSize) throws SQLException {
+    long t0 = T_FIND_BY_PRODUCT_PAGE.start();
+    try {
+      if (pageSize <= 0) throw new IllegalArgumentException("El tamaño de página debe ser mayor que 0.");
+
+      String first = """
+        SELECT id, product_id, user_id, movement_type, quantity, note, created_at
+        FROM inventory_movement
+        WHERE product_id = ?
+        ORDER BY created_at DESC, id DESC
+        LIMIT ?
+      """;
+      String next = """
+        SELECT id, product_id, user_id, movement_type, quantity, note, created_at
+        FROM inventory_movement
+        WHERE product_id = ?
+          AND created_at <= ?
+          AND (created_at < ? OR id < ?)
+        ORDER BY created_at DESC, id DESC
+        LIMIT ?
+      """;
+
+      List<InventoryMovement> list = new ArrayList<>(pageSize + 1);
+      // Se guarda el Timestamp tal cual viene de la BD para no perder precisión
+      Timestamp lastTs = null;
+
+      try (Connection cn = bizstock.util.DatabaseConnection.getConnection();
+           PreparedStatement ps = cn.prepareStatement(token == null ? first : next)) {
 
-    return list;
+        ps.setInt(1, productId);
+        if (token == null) {
+          ps.setInt(2, pageSize + 1);
+        } else {
+          String[] key = Page.decode(token, "m", 2);   // id, created_at
+          Timestamp ts = Timestamp.valueOf(key[1]);
+          ps.setTimestamp(2, ts);
+          ps.setTimestamp(3, ts);
+          ps.setInt(4, Integer.parseInt(key[0]));
+          ps.setInt(5, pageSize + 1);
+        }
+
+        try (ResultSet rs = ps.executeQuery()) {
+          while (rs.next()) {
+            list.add(map(rs));
+            if (list.size() == pageSize) lastTs = rs.getTimestamp("created_at");
+          }
+        }
+      }
+
+      String nextToken = null;
+      if (list.size() > pageSize && lastTs != null) {
+        list.remove(pageSize);
+        InventoryMovement last = list.get(pageSize - 1);
+        nextToken = Page.encode("m", String.valueOf(last.getId()), lastTs.toString());
+      }
+      return new Page<>(list, nextToken);
+    } catch (Exception ex) {
+      T_FIND_BY_PRODUCT_PAGE.error();
+      throw ex;
+    } finally {
+      T_FIND_BY_PRODUCT_PAGE.stop(t0);
+    }
+  }
+
+  /**
+   * Cambio neto (entradas menos salidas) de cada producto desde el inicio del
+   * día de at hasta at inclusive, dentro de la transacción de cn. Cada
+   * producto es un rango de idx_move_product_date de a lo sumo un día.
+   * Los productos sin movimientos en ese rango no aparecen.
+   */
+  public Map<Integer, Integer> sumDeltaOfDayUntil(Connection cn, List<Integer> ids, Timestamp at) throws SQLException {
+    long t0 = T_SUM_DELTA_OF_DAY_UNTIL.start();
+    try {
+      String marks = String.join(", ", Collections.nCopies(ids.size(), "?"));
+      String sql = """
+        SELECT product_id,
+               SUM(IF(movement_type = 'IN', quantity, -quantity)) AS delta
+        FROM inventory_movement
+        WHERE product_id IN (%s)
+          AND created_at >= DATE(?)
+          AND created_at <= ?
+        GROUP BY product_id
+      """.formatted(marks);
+
+      Map<Integer, Integer> delta = new HashMap<>();
+      try (PreparedStatement ps = cn.prepareStatement(sql)) {
+        int i = 1;
+        for (int id : ids) ps.setInt(i++, id);
+        ps.setTimestamp(i++, at);
+        ps.setTimestamp(i, at);
+
+        try (ResultSet rs = ps.executeQuery()) {
+          while (rs.next()) delta.put(rs.getInt("product_id"), rs.getInt("delta"));
+        }
+      }
+      return delta;
+    } catch (Exception ex) {
+      T_SUM_DELTA_OF_DAY_UNTIL.error();
+      throw ex;
+    } finally {
+      T_SUM_DELTA_OF_DAY_UNTIL.stop(t0);
+    }
+  }
+
+  private InventoryMovement map(ResultSet rs) throws SQLException {
+    InventoryMovement m = new InventoryMovement();
+    m.setId(rs.getInt("id"));
+    m.setProductId(rs.getInt("product_id"));
+    m.setUserId(rs.getInt("user_id"));
+    m.setMovementType(rs.getString("movement_type"));
+    m.setQuantity(rs.getInt("quantity"));
+    m.setNote(rs.getString("note"));
+    if (rs.getTimestamp("created_at") != null) {
+      m.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
+    }
+    return m;
   }
 }
@@ -0,0 +1,60 @@
+package bizstock.dao;
+
+import bizstock.util.DatabaseConnection;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Último número de secuencia del journal de movimientos ya aplicado en la BD
+ * (tabla movement_journal_checkpoint, una fila por journal). Se actualiza en
+ * la misma transacción que los movimientos, así reaplicar el journal después
+ * de una caída no duplica nada.
+ */
+public class JournalCheckpointDAO {
+
+  /** Bloquea la fila del journal (creándola si no existe) y devuelve su última secuencia aplicada. */
+  public long lockLastSeq(Connection cn, String journalId) throws SQLException {
+    String insert = """
+      INSERT INTO movement_journal_checkpoint (journal_id, last_seq)
+      VALUES (?, 0)
+      ON DUPLICATE KEY UPDATE journal_id = journal_id
+    """;
+    try (PreparedStatement ps = cn.prepareStatement(insert)) {
+      ps.setString(1, journalId);
+      ps.executeUpdate();
+    }
+
+    String select = "SELECT last_seq FROM movement_journal_checkpoint WHERE journal_id = ? FOR UPDATE";
+    try (PreparedStatement ps = cn.prepareStatement(select)) {
+      ps.setString(1, journalId);
+      try (ResultSet rs = ps.executeQuery()) {
+        rs.next();
+        return rs.getLong("last_seq");
+      }
+    }
+  }
+
+  public void saveLastSeq(Connection cn, String journalId, long lastSeq) throws SQLException {
+    String sql = "UPDATE movement_journal_checkpoint SET last_seq = ? WHERE journal_id = ?";
+    try (PreparedStatement ps = cn.prepareStatement(sql)) {
+      ps.setLong(1, lastSeq);
+      ps.setString(2, journalId);
+      ps.executeUpdate();
+    }
+  }
+
+  /** Última secuencia aplicada, o 0 si el journal nunca se aplicó. */
+  public long findLastSeq(String journalId) throws SQLException {
+    String sql = "SELECT last_seq FROM movement_journal_checkpoint WHERE journal_id = ?";
+    try (Connection cn = DatabaseConnection.getConnection();
+         PreparedStatement ps = cn.prepareStatement(sql)) {
+      ps.setString(1, journalId);
+      try (ResultSet rs = ps.executeQuery()) {
+        return rs.next() ? rs.getLong("last_seq") : 0;
+      }
+    }
+  }
+}
@@ -0,0 +1,76 @@
+package bizstock.dao;
+
+import bizstock.model.MovementRequest;
+import bizstock.util.DatabaseConnection;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+
+/**
+ * Movimientos del journal que no se pudieron aplicar al pasarlos a MySQL
+ * (tabla movement_journal_rejected). La estación ya los había dado por
+ * registrados, así que quedan aquí para que alguien los concilie a mano;
+ * resolved_at marca los ya revisados.
+ */
+public class JournalRejectedDAO {
+
+  private static final int MAX_REASON_CHARS = 255;
+
+  /** Una línea rechazada: su secuencia en el journal, el movimiento y el motivo. */
+  public record Rejected(long seq, MovementRequest request, String reason) {}
+
+  // null = todavía no se probó; false = la tabla no existe (base sin actualizar)
+  private static volatile Boolean tableAvailable;
+
+  /** Guarda las líneas en la transacción de cn (la misma que aplica el lote). */
+  public void insert(Connection cn, String journalId, List<Rejected> lines) throws SQLException {
+    if (lines.isEmpty()) return;
+    String sql = """
+      INSERT INTO movement_journal_rejected
+        (journal_id, seq, product_id, user_id, movement_type, quantity, note, occurred_at, reason)
+      VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
+    """;
+    try (PreparedStatement ps = cn.prepareStatement(sql)) {
+      for (Rejected line : lines) {
+        MovementRequest r = line.request();
+        String reason = line.reason() == null ? "" : line.reason();
+        ps.setString(1, journalId);
+        ps.setLong(2, line.seq());
+        ps.setInt(3, r.getProductId());
+        ps.setInt(4, r.getUserId());
+        ps.setString(5, r.isIn() ? "IN" : "OUT");
+        ps.setInt(6, r.getQuantity());
+        ps.setString(7, r.getNote());
+        if (r.getOccurredAt() != 0) ps.setTimestamp(8, new Timestamp(r.getOccurredAt()));
+        else                        ps.setNull(8, Types.TIMESTAMP);
+        ps.setString(9, reason.length() > MAX_REASON_CHARS ? reason.substring(0, MAX_REASON_CHARS) : reason);
+        ps.addBatch();
+      }
+      ps.executeBatch();
+    }
+  }
+
+  /** Rechazados sin revisar, de todas las estaciones. 0 si la tabla no existe. */
+  public int countUnresolved() throws SQLException {
+    if (Boolean.FALSE.equals(tableAvailable)) return 0;
+    String sql = "SELECT COUNT(*) FROM movement_journal_rejected WHERE resolved_at IS NULL";
+
+    try (Connection cn = DatabaseConnection.getConnection();
+         PreparedStatement ps = cn.prepareStatement(sql);
+         ResultSet rs = ps.executeQuery()) {
+      rs.next();
+      tableAvailable = Boolean.TRUE;
+      return rs.getInt(1);
+    } catch (SQLException ex) {
+      if (!"42S02".equals(ex.getSQLState())) throw ex;   // otra cosa que "tabla inexistente"
+      tableAvailable = Boolean.FALSE;
+      System.err.println("[BizStock] Falta la tabla movement_journal_rejected (ver sql/bizstock_upgrade.sql)");
+      return 0;
+    }
+  }
+}
@@ -0,0 +1,57 @@
+package bizstock.dao;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Una página de resultados con cursor (keyset). nextToken es opaco para quien
+ * llama: se pasa tal cual para pedir la página siguiente y es null en la última.
+ */
+public final class Page<T> {
+  private final List<T> items;
+  private final String nextToken;
+
+  public Page(List<T> items, String nextToken) {
+    this.items = Collections.unmodifiableList(items);
+    this.nextToken = nextToken;
+  }
+
+  public List<T> getItems() { return items; }
+  public String getNextToken() { return nextToken; }
+  public boolean hasNext() { return nextToken != null; }
+
+  // ─── Codificación del cursor ───────────────────────────────────────────────
+  // Formato interno: "<tipo>|<campo>|<campo>..." en Base64 URL-safe.
+
+  private static final String SEP = "|";
+
+  static String encode(String kind, String... fields) {
+    StringBuilder sb = new StringBuilder(kind);
+    for (String f : fields) sb.append(SEP).append(f);
+    return Base64.getUrlEncoder().withoutPadding()
+                 .encodeToString(sb.toString().getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Devuelve los campos del cursor, validando el tipo y la cantidad esperada.
+   * El último campo puede contener el separador (se usa para el nombre).
+   */
+  static String[] decode(String token, String kind, int fieldCount) {
+    String raw;
+    try {
+      raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+    } catch (IllegalArgumentException ex) {
+      throw new IllegalArgumentException("Token de paginación inválido.", ex);
+    }
+
+    String[] parts = raw.split("\\|", fieldCount + 1);
+    if (parts.length != fieldCount + 1 || !parts[0].equals(kind)) {
+      throw new IllegalArgumentException("Token de paginación inválido.");
+    }
+    String[] fields = new String[fieldCount];
+    System.arraycopy(parts, 1, fields, 0, fieldCount);
+    return fields;
+  }
+}
@@ -0,0 +1,364 @@
+package bizstock.dao;
+
+import bizstock.model.Product;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Caché en memoria del catálogo de productos activos, delante de ProductDAO.
+ *
+ * Se mantiene por escritura directa: ProductDAO (insert/update/softDelete) e
+ * InventoryService (cambios de cantidad) le avisan después de confirmar en la BD.
+ * Los lectores reciben un {@link Snapshot} inmutable y versionado; nunca
+ * bloquean a los escritores. Una sincronización periódica con la BD (solo las
+ * filas con updated_at nuevo) trae los cambios hechos por otras terminales.
+ */
+public final class ProductCatalog {
+
+  // -Dbizstock.catalog.enabled=false hace que ProductDAO consulte siempre la BD
+  private static final boolean ENABLED =
+    Boolean.parseBoolean(System.getProperty("bizstock.catalog.enabled", "true"));
+
+  // Cada cuánto sincronizar con la BD (0 = solo manual)
+  private static final long RESYNC_SECONDS = Long.getLong("bizstock.catalog.resyncSeconds", 300L);
+
+  // Aproxima el ORDER BY name de MySQL (collation *_ci) sin depender de la BD
+  static final Comparator<Product> BY_NAME =
+    Comparator.comparing(Product::getName, Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER))
+              .thenComparingInt(Product::getId);
+
+  // Con más productos que esto no se arma el índice de búsqueda (se usa FULLTEXT en la BD)
+  private static final int SEARCH_MAX_INDEXED = Integer.getInteger("bizstock.search.maxIndexed", 500_000);
+
+  private static final ProductCatalog INSTANCE = new ProductCatalog();
+
+  public static boolean isEnabled() { return ENABLED; }
+
+  public static ProductCatalog get() { return INSTANCE; }
+
+  /**
+   * Vista inmutable del catálogo en una versión dada.
+   * Los Product que contiene son compartidos: no deben modificarse.
+   */
+  public static final class Snapshot {
+    private final long version;
+    private final List<Product> activeByName;
+    private final Map<Integer, Product> byId;
+
+    Snapshot(long version, List<Product> activeByName) {
+      this.version = version;
+      this.activeByName = Collections.unmodifiableList(activeByName);
+      Map<Integer, Product> ids = new HashMap<>(activeByName.size() * 2);
+      for (Product p : activeByName) ids.put(p.getId(), p);
+      this.byId = Collections.unmodifiableMap(ids);
+    }
+
+    public long getVersion() { return version; }
+    public List<Product> getActive() { return activeByName; }
+    public Product get(int id) { return byId.get(id); }
+    public int size() { return activeByName.size(); }
+  }
+
+  /**
+   * Los productos y sus dos índices, que se publican juntos: resync() arma uno
+   * nuevo aparte y lo cambia de una vez, así ningún lector ve uno a medio llenar.
+   */
+  private static final class State {
+    // Solo contiene copias privadas que nunca se modifican una vez dentro
+    final Map<Integer, Product> byId = new ConcurrentHashMap<>();
+    final AlertIndex alerts = new AlertIndex();
+    final ProductSearchIndex search = new ProductSearchIndex();
+    final boolean searchable;
+
+    State(boolean searchable) { this.searchable = searchable; }
+
+    void index(Product p) {
+      if (!searchable) return;
+      if (p.isActive()) search.put(p.getId(), p.getName(), p.getDescription());
+      else              search.remove(p.getId());
+    }
+  }
+
+  private final ProductDAO dao = new ProductDAO();
+
+  private final AtomicLong version = new AtomicLong();
+  private final Object writeLock = new Object();
+  private final Object loadLock  = new Object();
+
+  private volatile boolean  loaded;
+  private volatile State    state = new State(false);   // se cambia solo con writeLock
+  private volatile Timestamp dbVersion;   // updated_at hasta el que el catálogo está al día
+  private volatile Snapshot snapshot = new Snapshot(-1, new ArrayList<>());
+  private List<Consumer<State>> replay;   // con writeLock; no es null mientras resync() lee la BD
+
+  private ProductCatalog() {
+    if (ENABLED && RESYNC_SECONDS > 0) {
+      ScheduledExecutorService ses = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "bizstock-catalog-resync");
+        t.setDaemon(true);
+        return t;
+      });
+      ses.scheduleWithFixedDelay(() -> {
+        if (!loaded) return;
+        try {
+          sync();
+        } catch (SQLException ex) {
+          ex.printStackTrace();
+        }
+      }, RESYNC_SECONDS, RESYNC_SECONDS, TimeUnit.SECONDS);
+    }
+  }
+
+  // ─────────────────────────────────────────────────────────────────────────
+  // Lectura
+  // ─────────────────────────────────────────────────────────────────────────
+
+  /** Snapshot actual; lo construye solo si hubo cambios desde el último. */
+  public Snapshot snapshot() throws SQLException {
+    ensureLoaded();
+
+    Snapshot s = snapshot;
+    long v = version.get();
+    if (s.version == v) return s;
+
+    // La versión se lee antes de copiar: el snapshot puede traer algo más nuevo,
+    // nunca algo más viejo que su número de versión.
+    List<Product> list = new ArrayList<>(state.byId.values());
+    list.sort(BY_NAME);
+    Snapshot fresh = new Snapshot(v, list);
+
+    synchronized (writeLock) {
+      if (snapshot.version < v) snapshot = fresh;
+    }
+    return fresh;
+  }
+
+  /** Cantidad de productos activos, sin armar el snapshot ordenado. */
+  public int activeCount() throws SQLException {
+    ensureLoaded();
+    return state.byId.size();
+  }
+
+  /** Críticos y bajos en un mismo instante, desde el índice de alertas. */
+  public AlertSnapshot alerts() throws SQLException {
+    ensureLoaded();
+    return state.alerts.snapshot();
+  }
+
+  /** false si el catálogo es demasiado grande para indexarlo en memoria. */
+  public boolean isSearchable() throws SQLException {
+    ensureLoaded();
+    return state.searchable;
+  }
+
+  /** Búsqueda por nombre y descripción en el índice en memoria (ver ProductSearchIndex). */
+  public List<Product> search(String query, int limit) throws SQLException {
+    ensureLoaded();
+    State s = state;
+    int[] ids = s.search.search(query, limit);
+    List<Product> list = new ArrayList<>(ids.length);
+    for (int id : ids) {
+      Product p = s.byId.get(id);
+      if (p != null) list.add(p);
+    }
+    return list;
+  }
+
+  public long getVersion() { return version.get(); }
+
+  public boolean isLoaded() { return loaded; }
+
+  /** Versión de la BD que refleja el catálogo (para ProductDAO.findChangedSince). */
+  public Timestamp getDbVersion() throws SQLException {
+    ensureLoaded();
+    return dbVersion;
+  }
+
+  private void ensureLoaded() throws SQLException {
+    if (loaded) return;
+    synchronized (loadLock) {
+      if (!loaded) resync();
+    }
+  }
+
+  // ─────────────────────────────────────────────────────────────────────────
+  // Escritura (llamada después de confirmar en la BD)
+  // ─────────────────────────────────────────────────────────────────────────
+
+  /**
+   * Vuelve a cargar todo el catálogo desde la BD. Los índices nuevos se arman
+   * aparte (los lectores siguen viendo los anteriores) y se publican de una vez.
+   * Las escrituras que llegan mientras tanto (put, remove, updateQuantity) se
+   * aplican a los actuales y además se guardan para volver a aplicarlas sobre
+   * lo leído antes de publicarlo: pueden ser más nuevas que la lectura y si no
+   * se perderían hasta el próximo sync().
+   */
+  public void resync() throws SQLException {
+    synchronized (loadLock) {
+      synchronized (writeLock) {
+        replay = new ArrayList<>();
+      }
+      try {
+        // La versión se toma antes de leer: lo que cambie durante la carga vuelve a llegar por sync()
+        Timestamp v = dao.queryCurrentVersion();
+        List<Product> all = dao.queryAllActive();
+        State fresh = new State(all.size() <= SEARCH_MAX_INDEXED);
+        for (Product p : all) {
+          fresh.byId.put(p.getId(), p);
+          fresh.alerts.update(null, p);
+          fresh.index(p);
+        }
+        synchronized (writeLock) {
+          for (Consumer<State> op : replay) op.accept(fresh);
+          dbVersion = v;
+          state = fresh;
+          loaded = true;
+          version.incrementAndGet();
+        }
+      } finally {
+        synchronized (writeLock) {
+          replay = null;
+        }
+      }
+    }
+  }
+
+  /** Trae de la BD solo lo que cambió desde la última sincronización. */
+  public void sync() throws SQLException {
+    if (!loaded) return;
+    apply(dao.queryChangedSince(dbVersion));
+  }
+
+  /**
+   * Aplica un lote de cambios leído de la BD (activos se ponen, inactivos se
+   * quitan). Si el lote no está completo recarga todo.
+   */
+  void apply(ProductChanges changes) throws SQLException {
+    if (!loaded) return;
+    if (!changes.isComplete()) {
+      resync();
+      return;
+    }
+    synchronized (writeLock) {
+      State s = state;
+      boolean changed = false;
+      for (Product p : changes.getChanged()) {
+        // Por el margen de solapamiento llegan filas ya vistas: no cuentan como cambio
+        if (p.isActive() && sameContent(s.byId.get(p.getId()), p)) continue;
+
+        Product before;
+        Product after = null;
+        if (p.isActive()) {
+          after = p.copy();
+          before = s.byId.put(p.getId(), after);
+        } else {
+          before = s.byId.remove(p.getId());
+        }
+        s.alerts.update(before, after);
+        s.index(p);
+        changed |= before != null || after != null;
+      }
+      if (changes.getVersion().after(dbVersion)) dbVersion = changes.getVersion();
+      if (changed) version.incrementAndGet();
+    }
+  }
+
+  private static boolean sameContent(Product a, Product b) {
+    return a != null
+        && a.getQuantity() == b.getQuantity()
+        && a.getReorderLevel() == b.getReorderLevel()
+        && a.getCriticalLevel() == b.getCriticalLevel()
+        && a.getCategoryId() == b.getCategoryId()
+        && a.getBrandId() == b.getBrandId()
+        && Objects.equals(a.getName(), b.getName())
+        && Objects.equals(a.getDescription(), b.getDescription())
+        && (a.getPrice() == null ? b.getPrice() == null
+                                 : b.getPrice() != null && a.getPrice().compareTo(b.getPrice()) == 0);
+  }
+
+  /** Inserta o reemplaza un producto; si está inactivo lo quita. */
+  public void put(Product p) {
+    if (!ENABLED) return;
+    Product copy = p.copy();   // la misma copia sirve si hay que volver a aplicarla
+    write(s -> {
+      Product before;
+      Product after = null;
+      if (copy.isActive()) {
+        after = copy;
+        before = s.byId.put(copy.getId(), after);
+      } else {
+        before = s.byId.remove(copy.getId());
+      }
+      s.alerts.update(before, after);
+      s.index(copy);
+      version.incrementAndGet();
+    });
+  }
+
+  /**
+   * Reemplaza los datos editables de un producto que ya está en el catálogo y
+   * conserva su cantidad (solo la cambian los movimientos, ver updateQuantity).
+   */
+  public void updateDetails(Product p) {
+    if (!ENABLED) return;
+    Product details = p.copy();
+    write(s -> {
+      Product current = s.byId.get(details.getId());
+      if (current == null) return;   // lo trae el próximo sync()
+      Product next = details.copy();
+      next.setQuantity(current.getQuantity());
+      next.setActive(true);
+      s.byId.put(next.getId(), next);
+      s.alerts.update(current, next);
+      s.index(next);
+      version.incrementAndGet();
+    });
+  }
+
+  public void remove(int productId) {
+    if (!ENABLED) return;
+    write(s -> {
+      Product before = s.byId.remove(productId);
+      if (before != null) {
+        s.alerts.update(before, null);
+        if (s.searchable) s.search.remove(productId);
+        version.incrementAndGet();
+      }
+    });
+  }
+
+  public void updateQuantity(int productId, int newQty) {
+    if (!ENABLED) return;
+    write(s -> {
+      Product current = s.byId.get(productId);
+      if (current == null || current.getQuantity() == newQty) return;
+      Product next = current.copy();
+      next.setQuantity(newQty);
+      s.byId.put(productId, next);
+      s.alerts.update(current, next);
+      version.incrementAndGet();
+    });
+  }
+
+  /** Aplica op si el catálogo está cargado y la guarda si resync() está leyendo la BD. */
+  private void write(Consumer<State> op) {
+    synchronized (writeLock) {
+      if (replay != null) replay.add(op);
+      if (loaded) op.accept(state);
+    }
+  }
+}
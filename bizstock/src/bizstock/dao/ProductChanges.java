@@ -0,0 +1,31 @@
+package bizstock.dao;
+
+import bizstock.model.Product;
+
+import java.sql.Timestamp;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Productos modificados desde una versión dada (activos e inactivos).
+ * version se pasa tal cual al siguiente findChangedSince.
+ *
+ * Si complete es false hubo demasiados cambios para un refresco incremental:
+ * quien llama debe recargar todo.
+ */
+public final class ProductChanges {
+  private final List<Product> changed;
+  private final Timestamp version;
+  private final boolean complete;
+
+  ProductChanges(List<Product> changed, Timestamp version, boolean complete) {
+    this.changed = Collections.unmodifiableList(changed);
+    this.version = version;
+    this.complete = complete;
+  }
+
+  public List<Product> getChanged() { return changed; }
+  public Timestamp getVersion() { return version; }
+  public boolean isComplete() { return complete; }
+  public boolean isEmpty() { return complete && changed.isEmpty(); }
+}
@@ -2,6 +2,7 @@ package bizstock.dao;
 
 import bizstock.model.Product;
 import bizstock.util.DatabaseConnection;
+import bizstock.util.Metrics;
 
 import java.math.BigDecimal;
 import java.sql.Connection;
@@ -9,12 +10,49 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.List;
 
 public class ProductDAO {
 
+  // Margen hacia atrás de cada consulta de cambios cuando no se puede leer
+  // information_schema.innodb_trx (ver horizon()): una transacción que tocó la
+  // fila antes de la versión pero confirmó después igual aparece en la
+  // siguiente. Debe pasar innodb_lock_wait_timeout (50 s por defecto) más lo
+  // que tarde la transacción más larga.
+  private static final long CHANGES_OVERLAP_MS = Long.getLong("bizstock.delta.overlapMs", 60_000L);
+
+  // Con más cambios que esto conviene recargar todo
+  private static final int CHANGES_MAX_ROWS = Integer.getInteger("bizstock.delta.maxRows", 5000);
+
+  private static final Metrics.Timer T_FIND_ALL_ACTIVE = Metrics.timer("ProductDAO.findAllActive");
+  private static final Metrics.Timer T_FIND_ACTIVE_PAGE = Metrics.timer("ProductDAO.findActivePage");
+  private static final Metrics.Timer T_COUNT_ACTIVE = Metrics.timer("ProductDAO.countActive");
+  private static final Metrics.Timer T_FIND_ACTIVE_WINDOW = Metrics.timer("ProductDAO.findActiveWindow");
+  private static final Metrics.Timer T_SEARCH = Metrics.timer("ProductDAO.search");
+  private static final Metrics.Timer T_FIND_CHANGED_SINCE = Metrics.timer("ProductDAO.findChangedSince");
+  private static final Metrics.Timer T_FIND_ALERTS = Metrics.timer("ProductDAO.findAlerts");
+  private static final Metrics.Timer T_FIND_IDS_BY_CATEGORY = Metrics.timer("ProductDAO.findIdsByCategory");
+  private static final Metrics.Timer T_INSERT = Metrics.timer("ProductDAO.insert");
+  private static final Metrics.Timer T_UPDATE = Metrics.timer("ProductDAO.update");
+  private static final Metrics.Timer T_SOFT_DELETE = Metrics.timer("ProductDAO.softDelete");
+
   public List<Product> findAllActive() throws SQLException {
+    long t0 = T_FIND_ALL_ACTIVE.start();
+    try {
+      if (ProductCatalog.isEnabled()) return ProductCatalog.get().snapshot().getActive();
+      return queryAllActive();
+    } catch (Exception ex) {
+      T_FIND_ALL_ACTIVE.error();
+      throw ex;
+    } finally {
+      T_FIND_ALL_ACTIVE.stop(t0);
+    }
+  }
+
+  /** Siempre va a la BD (el catálogo en memoria la usa para cargarse). */
+  List<Product> queryAllActive() throws SQLException {
     String sql = """
       SELECT id, name, description, price, quantity, reorder_level, critical_level,
              category_id, brand_id, is_active
@@ -36,118 +74,508 @@ public class ProductDAO {
     return list;
   }
 
-  public List<Product> findCriticalAlerts() throws SQLException {
-    String sql = """
+  /**
+   * Página de productos activos ordenados por (name, id), con cursor keyset
+   * sobre idx_product_active_name. token null = primera página.
+   */
+  public Page<Product> findActivePage(String token, int pageSize) throws SQLException {
+    long t0 = T_FIND_ACTIVE_PAGE.start();
+    try {
+      if (pageSize <= 0) throw new IllegalArgumentException("El tamaño de página debe ser mayor que 0.");
+
+      String first = """
+        SELECT id, name, description, price, quantity, reorder_level, critical_level,
+               category_id, brand_id, is_active
+        FROM product
+        WHERE is_active = 1
+        ORDER BY name, id
+        LIMIT ?
+      """;
+      String next = """
+        SELECT id, name, description, price, quantity, reorder_level, critical_level,
+               category_id, brand_id, is_active
+        FROM product
+        WHERE is_active = 1
+          AND name >= ?
+          AND (name > ? OR id > ?)
+        ORDER BY name, id
+        LIMIT ?
+      """;
+
+      List<Product> list = new ArrayList<>(pageSize + 1);
+
+      try (Connection cn = DatabaseConnection.getConnection();
+           PreparedStatement ps = cn.prepareStatement(token == null ? first : next)) {
+
+        if (token == null) {
+          ps.setInt(1, pageSize + 1);
+        } else {
+          String[] key = Page.decode(token, "p", 2);   // id, name
+          ps.setString(1, key[1]);
+          ps.setString(2, key[1]);
+          ps.setInt(3, Integer.parseInt(key[0]));
+          ps.setInt(4, pageSize + 1);
+        }
+
+        try (ResultSet rs = ps.executeQuery()) {
+          while (rs.next()) list.add(map(rs));
+        }
+      }
+
+      // Se pide una fila extra solo para saber si hay más
+      String nextToken = null;
+      if (list.size() > pageSize) {
+        list.remove(pageSize);
+        nextToken = tokenAfter(list.get(pageSize - 1));
+      }
+      return new Page<>(list, nextToken);
+    } catch (Exception ex) {
+      T_FIND_ACTIVE_PAGE.error();
+      throw ex;
+    } finally {
+      T_FIND_ACTIVE_PAGE.stop(t0);
+    }
+  }
+
+  /** Cursor de findActivePage que continúa justo después de p. */
+  public String tokenAfter(Product p) {
+    return Page.encode("p", String.valueOf(p.getId()), p.getName());
+  }
+
+  public int countActive() throws SQLException {
+    long t0 = T_COUNT_ACTIVE.start();
+    try {
+      if (ProductCatalog.isEnabled()) return ProductCatalog.get().activeCount();
+
+      try (Connection cn = DatabaseConnection.getConnection();
+           PreparedStatement ps = cn.prepareStatement("SELECT COUNT(*) FROM product WHERE is_active = 1");
+           ResultSet rs = ps.executeQuery()) {
+        rs.next();
+        return rs.getInt(1);
+      }
+    } catch (Exception ex) {
+      T_COUNT_ACTIVE.error();
+      throw ex;
+    } finally {
+      T_COUNT_ACTIVE.stop(t0);
+    }
+  }
+
+  /**
+   * Filas [offset, offset + limit) de los activos ordenados por (name, id).
+   * Para recorrer en orden conviene findActivePage; esto es para saltar a
+   * una posición arbitraria (por ejemplo, al arrastrar la barra de scroll).
+   * Siempre va a la BD, aunque esté el catálogo: así sigue el mismo orden
+   * (la collation de MySQL) que findActivePage y no arma el catálogo entero.
+   */
+  public List<Product> findActiveWindow(int offset, int limit) throws SQLException {
+    long t0 = T_FIND_ACTIVE_WINDOW.start();
+    try {
+      if (offset < 0 || limit <= 0) throw new IllegalArgumentException("Ventana inválida.");
+
+      String sql = """
+        SELECT id, name, description, price, quantity, reorder_level, critical_level,
+               category_id, brand_id, is_active
+        FROM product
+        WHERE is_active = 1
+        ORDER BY name, id
+        LIMIT ? OFFSET ?
+      """;
+
+      List<Product> list = new ArrayList<>(limit);
+
+      try (Connection cn = DatabaseConnection.getConnection();
+           PreparedStatement ps = cn.prepareStatement(sql)) {
+        ps.setInt(1, limit);
+        ps.setInt(2, offset);
+        try (ResultSet rs = ps.executeQuery()) {
+          while (rs.next()) list.add(map(rs));
+        }
+      }
+      return list;
+    } catch (Exception ex) {
+      T_FIND_ACTIVE_WINDOW.error();
+      throw ex;
+    } finally {
+      T_FIND_ACTIVE_WINDOW.stop(t0);
+    }
+  }
+
+  // ─── Búsqueda ──────────────────────────────────────────────────────────────
+
+  /**
+   * Productos activos cuyo nombre o descripción contienen todas las palabras
+   * buscadas. Usa el índice en memoria del catálogo; si el catálogo está
+   * desactivado o es demasiado grande para indexar, el FULLTEXT de la BD.
+   */
+  public List<Product> search(String text, int limit) throws SQLException {
+    long t0 = T_SEARCH.start();
+    try {
+      if (ProductCatalog.isEnabled() && ProductCatalog.get().isSearchable()) {
+        return ProductCatalog.get().search(text, limit);
+      }
+      return querySearch(text, limit);
+    } catch (Exception ex) {
+      T_SEARCH.error();
+      throw ex;
+    } finally {
+      T_SEARCH.stop(t0);
+    }
+  }
+
+  /**
+   * Búsqueda en la BD: MATCH ... AGAINST en modo booleano sobre
+   * ft_product_search, con cada palabra como prefijo obligatorio ("+pal*").
+   * InnoDB no indexa palabras de menos de 3 letras (innodb_ft_min_token_size):
+   * si solo hay de esas, se busca la primera como prefijo del nombre.
+   */
+  private List<Product> querySearch(String text, int limit) throws SQLException {
+    StringBuilder against = new StringBuilder();
+    String shortWord = null;
+    for (String w : text.split("[^\\p{L}\\p{N}]+")) {
+      if (w.isEmpty()) continue;
+      if (w.length() >= 3) against.append(against.length() > 0 ? " +" : "+").append(w).append('*');
+      else if (shortWord == null) shortWord = w;
+    }
+    if (against.length() == 0 && shortWord == null) return new ArrayList<>();
+
+    String sql = against.length() > 0 ? """
       SELECT id, name, description, price, quantity, reorder_level, critical_level,
              category_id, brand_id, is_active
       FROM product
       WHERE is_active = 1
-        AND quantity <= critical_level
-      ORDER BY quantity ASC, name
+        AND MATCH(name, description) AGAINST (? IN BOOLEAN MODE)
+      ORDER BY MATCH(name, description) AGAINST (? IN BOOLEAN MODE) DESC, name
+      LIMIT ?
+    """ : """
+      SELECT id, name, description, price, quantity, reorder_level, critical_level,
+             category_id, brand_id, is_active
+      FROM product
+      WHERE is_active = 1
+        AND name LIKE ?
+      ORDER BY name, id
+      LIMIT ?
     """;
 
     List<Product> list = new ArrayList<>();
 
     try (Connection cn = DatabaseConnection.getConnection();
-         PreparedStatement ps = cn.prepareStatement(sql);
+         PreparedStatement ps = cn.prepareStatement(sql)) {
+      if (against.length() > 0) {
+        ps.setString(1, against.toString());
+        ps.setString(2, against.toString());
+        ps.setInt(3, limit);
+      } else {
+        ps.setString(1, shortWord + "%");   // solo letras y dígitos: no hay comodines que escapar
+        ps.setInt(2, limit);
+      }
+      try (ResultSet rs = ps.executeQuery()) {
+        while (rs.next()) list.add(map(rs));
+      }
+    }
+    return list;
+  }
+
+  // ─── Refresco incremental (updated_at) ────────────────────────────────────
+
+  /**
+   * Versión de los datos que devuelve findAllActive en este momento: el punto
+   * de partida para findChangedSince. Debe pedirse antes de la carga completa.
+   */
+  public Timestamp currentVersion() throws SQLException {
+    if (ProductCatalog.isEnabled()) return ProductCatalog.get().getDbVersion();
+    return queryCurrentVersion();
+  }
+
+  Timestamp queryCurrentVersion() throws SQLException {
+    try (Connection cn = DatabaseConnection.getConnection()) {
+      Timestamp h = horizon(cn);
+      if (h != null) return h;
+
+      try (PreparedStatement ps = cn.prepareStatement("SELECT COALESCE(MAX(updated_at), NOW(6)) FROM product");
+           ResultSet rs = ps.executeQuery()) {
+        rs.next();
+        return rs.getTimestamp(1);
+      }
+    }
+  }
+
+  // null = todavía no se probó; false = sin permiso PROCESS, se usa CHANGES_OVERLAP_MS
+  private static volatile Boolean horizonAvailable;
+
+  /**
+   * Desde cuándo puede haber cambios aún sin confirmar: el inicio de la
+   * transacción abierta más vieja que modificó filas, o NOW(6) si no hay.
+   * updated_at toma la hora de la sentencia, así que todo cambio pendiente
+   * tiene updated_at >= este valor y lo anterior ya está confirmado: la
+   * siguiente consulta de cambios parte de aquí sin margen. null si no se
+   * puede leer innodb_trx (hace falta el permiso PROCESS).
+   */
+  private Timestamp horizon(Connection cn) {
+    if (Boolean.FALSE.equals(horizonAvailable)) return null;
+    String sql = """
+      SELECT LEAST(NOW(6), COALESCE(MIN(trx_started), NOW(6)))
+      FROM information_schema.innodb_trx
+      WHERE trx_rows_modified > 0
+    """;
+
+    try (PreparedStatement ps = cn.prepareStatement(sql);
          ResultSet rs = ps.executeQuery()) {
+      rs.next();
+      horizonAvailable = Boolean.TRUE;
+      return rs.getTimestamp(1);
+    } catch (SQLException ex) {
+      horizonAvailable = Boolean.FALSE;
+      System.err.println("[BizStock] Sin acceso a innodb_trx; el refresco incremental usa un margen de "
+          + CHANGES_OVERLAP_MS + " ms (" + ex.getMessage() + ")");
+      return null;
+    }
+  }
 
-      while (rs.next()) {
-        list.add(map(rs));
+  /**
+   * Productos modificados (incluidos los desactivados) desde la versión dada,
+   * por idx_product_updated. Si el catálogo en memoria está activo, también
+   * se actualiza con ellos.
+   */
+  public ProductChanges findChangedSince(Timestamp since) throws SQLException {
+    long t0 = T_FIND_CHANGED_SINCE.start();
+    try {
+      ProductChanges changes = queryChangedSince(since);
+      if (ProductCatalog.isEnabled()) ProductCatalog.get().apply(changes);
+      return changes;
+    } catch (Exception ex) {
+      T_FIND_CHANGED_SINCE.error();
+      throw ex;
+    } finally {
+      T_FIND_CHANGED_SINCE.stop(t0);
+    }
+  }
+
+  ProductChanges queryChangedSince(Timestamp since) throws SQLException {
+    String sql = """
+      SELECT id, name, description, price, quantity, reorder_level, critical_level,
+             category_id, brand_id, is_active, updated_at
+      FROM product
+      WHERE updated_at >= ?
+      ORDER BY updated_at, id
+      LIMIT ?
+    """;
+
+    List<Product> list = new ArrayList<>();
+    Timestamp version = since;
+
+    try (Connection cn = DatabaseConnection.getConnection()) {
+      // Antes de leer: lo que confirme después tiene updated_at >= h
+      Timestamp h = horizon(cn);
+
+      try (PreparedStatement ps = cn.prepareStatement(sql)) {
+        ps.setTimestamp(1, h != null ? since : new Timestamp(since.getTime() - CHANGES_OVERLAP_MS));
+        ps.setInt(2, CHANGES_MAX_ROWS + 1);
+
+        try (ResultSet rs = ps.executeQuery()) {
+          while (rs.next()) {
+            list.add(map(rs));
+            Timestamp t = rs.getTimestamp("updated_at");
+            if (h == null && t.after(version)) version = t;
+          }
+        }
       }
+      if (h != null && h.after(version)) version = h;
+    }
+
+    if (list.size() > CHANGES_MAX_ROWS) return new ProductChanges(new ArrayList<>(), since, false);
+    return new ProductChanges(list, version, true);
+  }
+
+  /** Críticos y bajos de un mismo instante (una sola lectura del catálogo o de la BD). */
+  public AlertSnapshot findAlerts() throws SQLException {
+    long t0 = T_FIND_ALERTS.start();
+    try {
+      if (ProductCatalog.isEnabled()) return ProductCatalog.get().alerts();
+      return queryAlerts();
+    } catch (Exception ex) {
+      T_FIND_ALERTS.error();
+      throw ex;
+    } finally {
+      T_FIND_ALERTS.stop(t0);
     }
-    return list;
+  }
+
+  public List<Product> findCriticalAlerts() throws SQLException {
+    return findAlerts().getCritical();
   }
 
   public List<Product> findLowAlerts() throws SQLException {
+    return findAlerts().getLow();
+  }
+
+  /**
+   * Los dos grupos salen de un único SELECT: alert_margin (columna generada,
+   * cantidad menos el mayor de los dos niveles) indexada junto con is_active
+   * hace que se lean solo los productos en alerta, no todo el catálogo. Al
+   * ser una sola sentencia, críticos y bajos corresponden al mismo instante.
+   */
+  private AlertSnapshot queryAlerts() throws SQLException {
+
     String sql = """
       SELECT id, name, description, price, quantity, reorder_level, critical_level,
              category_id, brand_id, is_active
       FROM product
       WHERE is_active = 1
-        AND quantity <= reorder_level
-        AND quantity > critical_level
+        AND alert_margin <= 0
       ORDER BY quantity ASC, name
     """;
 
-    List<Product> list = new ArrayList<>();
+    List<Product> critical = new ArrayList<>();
+    List<Product> low = new ArrayList<>();
 
     try (Connection cn = DatabaseConnection.getConnection();
          PreparedStatement ps = cn.prepareStatement(sql);
          ResultSet rs = ps.executeQuery()) {
 
       while (rs.next()) {
-        list.add(map(rs));
+        Product p = map(rs);
+        if (AlertSnapshot.isCritical(p)) critical.add(p);
+        else if (AlertSnapshot.isLow(p)) low.add(p);
       }
     }
-    return list;
+    return new AlertSnapshot(0, critical, low);
+  }
+
+  /** Ids de todos los productos de una categoría, activos o no (reportes históricos). */
+  public List<Integer> findIdsByCategory(int categoryId) throws SQLException {
+    long t0 = T_FIND_IDS_BY_CATEGORY.start();
+    try {
+      String sql = "SELECT id FROM product WHERE category_id = ? ORDER BY id";
+
+      List<Integer> ids = new ArrayList<>();
+
+      try (Connection cn = DatabaseConnection.getConnection();
+           PreparedStatement ps = cn.prepareStatement(sql)) {
+
+        ps.setInt(1, categoryId);
+
+        try (ResultSet rs = ps.executeQuery()) {
+          while (rs.next()) {
+            ids.add(rs.getInt("id"));
+          }
+        }
+      }
+      return ids;
+    } catch (Exception ex) {
+      T_FIND_IDS_BY_CATEGORY.error();
+      throw ex;
+    } finally {
+      T_FIND_IDS_BY_CATEGORY.stop(t0);
+    }
   }
 
   public int insert(Product p) throws SQLException {
-    String sql = """
-      INSERT INTO product
-      (name, description, price, quantity, reorder_level, critical_level, category_id, brand_id, is_active)
-      VALUES
-      (?, ?, ?, ?, ?, ?, ?, ?, 1)
-    """;
+    long t0 = T_INSERT.start();
+    try {
+      String sql = """
+        INSERT INTO product
+        (name, description, price, quantity, reorder_level, critical_level, category_id, brand_id, is_active)
+        VALUES
+        (?, ?, ?, ?, ?, ?, ?, ?, 1)
+      """;
 
-    try (Connection cn = DatabaseConnection.getConnection();
-         PreparedStatement ps = cn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+      try (Connection cn = DatabaseConnection.getConnection();
+           PreparedStatement ps = cn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
 
-      ps.setString(1, p.getName());
-      ps.setString(2, p.getDescription());
-      ps.setBigDecimal(3, p.getPrice() != null ? p.getPrice() : BigDecimal.ZERO);
-      ps.setInt(4, p.getQuantity());
-      ps.setInt(5, p.getReorderLevel());
-      ps.setInt(6, p.getCriticalLevel());
-      ps.setInt(7, p.getCategoryId());
-      ps.setInt(8, p.getBrandId());
+        ps.setString(1, p.getName());
+        ps.setString(2, p.getDescription());
+        ps.setBigDecimal(3, p.getPrice() != null ? p.getPrice() : BigDecimal.ZERO);
+        ps.setInt(4, p.getQuantity());
+        ps.setInt(5, p.getReorderLevel());
+        ps.setInt(6, p.getCriticalLevel());
+        ps.setInt(7, p.getCategoryId());
+        ps.setInt(8, p.getBrandId());
 
-      ps.executeUpdate();
+        ps.executeUpdate();
 
-      try (ResultSet keys = ps.getGeneratedKeys()) {
-        if (keys.next()) return keys.getInt(1);
+        try (ResultSet keys = ps.getGeneratedKeys()) {
+          if (keys.next()) {
+            int id = keys.getInt(1);
+            Product cached = p.copy();
+            cached.setId(id);
+            cached.setActive(true);
+            ProductCatalog.get().put(cached);
+            return id;
+          }
+        }
       }
+      return 0;
+    } catch (Exception ex) {
+      T_INSERT.error();
+      throw ex;
+    } finally {
+      T_INSERT.stop(t0);
     }
-    return 0;
   }
 
+  /**
+   * Actualiza los datos del producto, menos la cantidad: esa solo cambia con
+   * entradas y salidas (InventoryService), que dejan el movimiento y el
+   * resumen de stock_daily. p.getQuantity() se ignora.
+   */
   public boolean update(Product p) throws SQLException {
-    String sql = """
-      UPDATE product
-      SET name = ?, description = ?, price = ?, quantity = ?, reorder_level = ?, critical_level = ?,
-          category_id = ?, brand_id = ?
-      WHERE id = ? AND is_active = 1
-    """;
+    long t0 = T_UPDATE.start();
+    try {
+      String sql = """
+        UPDATE product
+        SET name = ?, description = ?, price = ?, reorder_level = ?, critical_level = ?,
+            category_id = ?, brand_id = ?
+        WHERE id = ? AND is_active = 1
+      """;
 
-    try (Connection cn = DatabaseConnection.getConnection();
-         PreparedStatement ps = cn.prepareStatement(sql)) {
+      try (Connection cn = DatabaseConnection.getConnection();
+           PreparedStatement ps = cn.prepareStatement(sql)) {
 
-      ps.setString(1, p.getName());
-      ps.setString(2, p.getDescription());
-      ps.setBigDecimal(3, p.getPrice() != null ? p.getPrice() : BigDecimal.ZERO);
-      ps.setInt(4, p.getQuantity());
-      ps.setInt(5, p.getReorderLevel());
-      ps.setInt(6, p.getCriticalLevel());
-      ps.setInt(7, p.getCategoryId());
-      ps.setInt(8, p.getBrandId());
-      ps.setInt(9, p.getId());
+        ps.setString(1, p.getName());
+        ps.setString(2, p.getDescription());
+        ps.setBigDecimal(3, p.getPrice() != null ? p.getPrice() : BigDecimal.ZERO);
+        ps.setInt(4, p.getReorderLevel());
+        ps.setInt(5, p.getCriticalLevel());
+        ps.setInt(6, p.getCategoryId());
+        ps.setInt(7, p.getBrandId());
+        ps.setInt(8, p.getId());
+        if (ps.executeUpdate() != 1) return false;
 
-      return ps.executeUpdate() == 1;
+        // La cantidad del catálogo queda como está: la mantienen los movimientos
+        ProductCatalog.get().updateDetails(p);
+        return true;
+      }
+    } catch (Exception ex) {
+      T_UPDATE.error();
+      throw ex;
+    } finally {
+      T_UPDATE.stop(t0);
     }
   }
 
   public boolean softDelete(int id) throws SQLException {
-    String sql = "UPDATE product SET is_active = 0 WHERE id = ? AND is_active = 1";
+    long t0 = T_SOFT_DELETE.start();
+    try {
+      String sql = "UPDATE product SET is_active = 0 WHERE id = ? AND is_active = 1";
 
-    try (Connection cn = DatabaseConnection.getConnection();
-         PreparedStatement ps = cn.prepareStatement(sql)) {
-      ps.setInt(1, id);
-      return ps.executeUpdate() == 1;
+      try (Connection cn = DatabaseConnection.getConnection();
+           PreparedStatement ps = cn.prepareStatement(sql)) {
+        ps.setInt(1, id);
+        boolean ok = ps.executeUpdate() == 1;
+        if (ok) ProductCatalog.get().remove(id);
+        return ok;
+      }
+    } catch (Exception ex) {
+      T_SOFT_DELETE.error();
+      throw ex;
+    } finally {
+      T_SOFT_DELETE.stop(t0);
     }
   }
 
-  private Product map(ResultSet rs) throws SQLException {
+  // Visible en el paquete para bench/bizstock/dao/DaoBench
+  Product map(ResultSet rs) throws SQLException {
     Product p = new Product();
     p.setId(rs.getInt("id"));
     p.setName(rs.getString("name"));
@@ -0,0 +1,279 @@
+package bizstock.dao;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Índice de búsqueda en memoria sobre nombre y descripción de los productos
+ * del catálogo. Lo mantiene ProductCatalog junto con sus propios cambios.
+ *
+ * El texto se normaliza (minúsculas, sin tildes, solo letras y dígitos) y se
+ * indexa por trigramas (" ab" al inicio de palabra, "abc" en cualquier parte)
+ * y por la primera letra de cada palabra. Un término de 1–2 letras se busca
+ * como prefijo de palabra; uno de 3 o más, como subcadena. Se recorre solo la
+ * lista más corta de las claves del texto buscado y cada candidato se verifica
+ * contra su texto, así que las entradas viejas (de una edición o una baja)
+ * nunca dan falsos positivos: se purgan cuando pasan de la mitad del índice.
+ */
+final class ProductSearchIndex {
+
+  private static final class IntList {
+    int[] ids = new int[4];
+    int size;
+
+    void add(int id) {
+      if (size == ids.length) ids = Arrays.copyOf(ids, size * 2);
+      ids[size++] = id;
+    }
+  }
+
+  /** Texto normalizado de un producto: " nombre " y " nombre descripcion ". */
+  private static final class Entry {
+    final String name;
+    final String text;
+
+    Entry(String name, String text) {
+      this.name = name;
+      this.text = text;
+    }
+  }
+
+  private final Map<String, IntList> postings = new HashMap<>();
+  private Entry[] entries = new Entry[1024];   // por id (los ids de la BD son densos)
+  private int count;
+  private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+  private long live;    // entradas de postings vigentes
+  private long stale;   // entradas que quedaron de textos anteriores
+
+  // ─── Escritura ───────────────────────────────────────────────────────────
+
+  void put(int id, String name, String description) {
+    String n = normalize(name);
+    String d = normalize(description);
+    Entry fresh = new Entry(" " + n + " ", d.isEmpty() ? " " + n + " " : " " + n + " " + d + " ");
+
+    lock.writeLock().lock();
+    try {
+      if (id >= entries.length) entries = Arrays.copyOf(entries, Math.max(id + 1, entries.length * 2));
+      Entry old = entries[id];
+      entries[id] = fresh;
+      if (old == null) count++;
+      if (old != null && old.text.equals(fresh.text)) return;
+
+      Set<String> keys = keys(fresh.text);
+      Set<String> added = new HashSet<>(keys);
+      if (old != null) {
+        Set<String> oldKeys = keys(old.text);
+        for (String k : oldKeys) {
+          if (!keys.contains(k)) { stale++; live--; }
+        }
+        added.removeAll(oldKeys);   // lo que ya estaba indexado no se repite
+      }
+      for (String k : added) postings.computeIfAbsent(k, x -> new IntList()).add(id);
+      live += added.size();
+      compactIfNeeded();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  void remove(int id) {
+    lock.writeLock().lock();
+    try {
+      Entry old = id < entries.length ? entries[id] : null;
+      if (old == null) return;
+      entries[id] = null;
+      count--;
+      int n = keys(old.text).size();
+      live -= n;
+      stale += n;
+      compactIfNeeded();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  void clear() {
+    lock.writeLock().lock();
+    try {
+      postings.clear();
+      entries = new Entry[1024];
+      count = 0;
+      live = 0;
+      stale = 0;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  int size() {
+    lock.readLock().lock();
+    try {
+      return count;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /** Reconstruye los postings sin las entradas viejas. Con el write lock tomado. */
+  private void compactIfNeeded() {
+    if (stale < 10_000 || stale < live) return;
+    postings.clear();
+    live = 0;
+    stale = 0;
+    for (int id = 0; id < entries.length; id++) {
+      if (entries[id] == null) continue;
+      Set<String> keys = keys(entries[id].text);
+      for (String k : keys) postings.computeIfAbsent(k, x -> new IntList()).add(id);
+      live += keys.size();
+    }
+  }
+
+  // ─── Búsqueda ────────────────────────────────────────────────────────────
+
+  /**
+   * Ids de los productos que contienen todos los términos, los mejores primero:
+   * nombre que empieza con el primer término, luego todos los términos en el
+   * nombre, luego el resto; a igualdad, por nombre.
+   */
+  int[] search(String query, int limit) {
+    String q = normalize(query);
+    if (q.isEmpty() || limit <= 0) return new int[0];
+
+    String[] terms = q.split(" ");
+    String[] patterns = new String[terms.length];   // lo que debe aparecer en el texto
+    for (int i = 0; i < terms.length; i++) {
+      patterns[i] = terms[i].length() < 3 ? " " + terms[i] : terms[i];
+    }
+
+    lock.readLock().lock();
+    try {
+      IntList shortest = null;
+      for (String p : patterns) {
+        for (String k : queryKeys(p)) {
+          IntList list = postings.get(k);
+          if (list == null) return new int[0];
+          if (shortest == null || list.size < shortest.size) shortest = list;
+        }
+      }
+      if (shortest == null) return new int[0];
+
+      // Heap con el peor arriba para quedarse con los "limit" mejores
+      PriorityQueue<Hit> best = new PriorityQueue<>(limit + 1, (a, b) -> b.compareTo(a));
+      BitSet seen = new BitSet();   // un id puede repetirse en la lista tras bajas y altas
+      for (int i = 0; i < shortest.size; i++) {
+        int id = shortest.ids[i];
+        if (seen.get(id)) continue;
+        Entry e = id < entries.length ? entries[id] : null;
+        if (e == null || !matchesAll(e.text, patterns)) continue;
+        seen.set(id);
+
+        int rank = rank(e, patterns);
+        if (best.size() == limit) {
+          Hit worst = best.peek();
+          if (Hit.compare(rank, e.name, id, worst) >= 0) continue;   // no entra: sin crear el Hit
+          best.poll();
+        }
+        best.add(new Hit(id, rank, e.name));
+      }
+
+      List<Hit> hits = new ArrayList<>(best);
+      hits.sort(null);
+      int[] ids = new int[hits.size()];
+      for (int i = 0; i < ids.length; i++) ids[i] = hits.get(i).id;
+      return ids;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private static final class Hit implements Comparable<Hit> {
+    final int id;
+    final int rank;
+    final String name;
+
+    Hit(int id, int rank, String name) {
+      this.id = id;
+      this.rank = rank;
+      this.name = name;
+    }
+
+    @Override
+    public int compareTo(Hit o) {
+      return compare(rank, name, id, o);
+    }
+
+    static int compare(int rank, String name, int id, Hit o) {
+      if (rank != o.rank) return Integer.compare(rank, o.rank);
+      int c = name.compareTo(o.name);
+      return c != 0 ? c : Integer.compare(id, o.id);
+    }
+  }
+
+  private static boolean matchesAll(String text, String[] patterns) {
+    for (String p : patterns) if (!text.contains(p)) return false;
+    return true;
+  }
+
+  private static int rank(Entry e, String[] patterns) {
+    String first = patterns[0].startsWith(" ") ? patterns[0] : " " + patterns[0];
+    if (e.name.startsWith(first)) return 0;
+    return matchesAll(e.name, patterns) ? 1 : 2;
+  }
+
+  // ─── Claves ──────────────────────────────────────────────────────────────
+
+  /** Claves de un texto indexado (" palabra otra "). */
+  private static Set<String> keys(String text) {
+    Set<String> keys = new HashSet<>();
+    for (int i = 0; i + 1 < text.length(); i++) {
+      char a = text.charAt(i);
+      char b = text.charAt(i + 1);
+      if (b == ' ') continue;
+      if (a == ' ') keys.add(text.substring(i, i + 2));                  // " a"
+      if (i + 2 < text.length() && text.charAt(i + 2) != ' ') {
+        keys.add(text.substring(i, i + 3));                              // " ab" / "abc"
+      }
+    }
+    return keys;
+  }
+
+  /** Claves que deben estar todas en un texto que contiene el patrón. */
+  private static List<String> queryKeys(String pattern) {
+    List<String> keys = new ArrayList<>();
+    if (pattern.length() <= 3) {
+      keys.add(pattern);                       // " a", " ab" o "abc"
+    } else {
+      for (int i = 0; i + 3 <= pattern.length(); i++) keys.add(pattern.substring(i, i + 3));
+    }
+    return keys;
+  }
+
+  /** Minúsculas, sin tildes, palabras de letras y dígitos separadas por un espacio. */
+  static String normalize(String s) {
+    if (s == null || s.isEmpty()) return "";
+    String d = Normalizer.normalize(s, Normalizer.Form.NFD);
+    StringBuilder sb = new StringBuilder(d.length());
+    for (int i = 0; i < d.length(); i++) {
+      char c = d.charAt(i);
+      if (Character.getType(c) == Character.NON_SPACING_MARK) continue;
+      if (Character.isLetterOrDigit(c)) {
+        sb.append(Character.toLowerCase(c));
+      } else if (sb.length() > 0 && sb.charAt(sb.length() - 1) != ' ') {
+        sb.append(' ');
+      }
+    }
+    int end = sb.length();
+    if (end > 0 && sb.charAt(end - 1) == ' ') sb.setLength(end - 1);
+    return sb.toString();
+  }
+}
@@ -0,0 +1,323 @@
+package bizstock.dao;
+
+import bizstock.model.StockDay;
+import bizstock.util.DatabaseConnection;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tabla stock_daily: una fila por producto y por día con movimientos.
+ * InventoryService la actualiza en la misma transacción que el movimiento;
+ * StockRollupService la puede reconstruir desde inventory_movement.
+ */
+public class StockRollupDAO {
+
+  /**
+   * Entradas, salidas y cantidad final de un producto en una transacción.
+   * at es cuándo ocurrieron si no fue ahora (journal); null = CURRENT_DATE.
+   */
+  public static final class DayTotals {
+    final int productId;
+    final int totalIn;
+    final int totalOut;
+    final int closingQty;
+    final Timestamp at;
+
+    public DayTotals(int productId, int totalIn, int totalOut, int closingQty) {
+      this(productId, totalIn, totalOut, closingQty, null);
+    }
+
+    public DayTotals(int productId, int totalIn, int totalOut, int closingQty, Timestamp at) {
+      this.productId = productId;
+      this.totalIn = totalIn;
+      this.totalOut = totalOut;
+      this.closingQty = closingQty;
+      this.at = at;
+    }
+
+    public boolean isToday() { return at == null; }
+  }
+
+  /** Recibe los movimientos de la reconstrucción, uno por uno. */
+  public interface MovementVisitor {
+    void visit(int productId, LocalDate day, boolean in, int qty) throws SQLException;
+  }
+
+  // ─── Actualización incremental ─────────────────────────────────────────────
+  // El día es CURRENT_DATE de la sesión, el mismo reloj que pone created_at al
+  // movimiento. La primera fila del día fija opening_qty; las siguientes solo
+  // suman y mueven closing_qty. El producto ya está bloqueado por quien llama,
+  // así que los upserts de un mismo producto no se cruzan.
+
+  private static final String UPSERT_TODAY = """
+    INSERT INTO stock_daily (product_id, day, opening_qty, total_in, total_out, closing_qty)
+    VALUES (?, CURRENT_DATE, ?, ?, ?, ?) AS new
+    ON DUPLICATE KEY UPDATE
+      total_in    = stock_daily.total_in + new.total_in,
+      total_out   = stock_daily.total_out + new.total_out,
+      closing_qty = new.closing_qty
+  """;
+
+  public void addToday(Connection cn, DayTotals t) throws SQLException {
+    try (PreparedStatement ps = cn.prepareStatement(UPSERT_TODAY)) {
+      bindToday(ps, t);
+      ps.executeUpdate();
+    }
+  }
+
+  /** Igual que addToday para varios productos, con un solo batch JDBC. */
+  public void addTodayBatch(Connection cn, List<DayTotals> totals) throws SQLException {
+    if (totals.isEmpty()) return;
+    try (PreparedStatement ps = cn.prepareStatement(UPSERT_TODAY)) {
+      for (DayTotals t : totals) {
+        bindToday(ps, t);
+        ps.addBatch();
+      }
+      ps.executeBatch();
+    }
+  }
+
+  private void bindToday(PreparedStatement ps, DayTotals t) throws SQLException {
+    ps.setInt(1, t.productId);
+    ps.setInt(2, t.closingQty - t.totalIn + t.totalOut);
+    ps.setInt(3, t.totalIn);
+    ps.setInt(4, t.totalOut);
+    ps.setInt(5, t.closingQty);
+  }
+
+  // ─── Movimientos con fecha ─────────────────────────────────────────────────
+  // Los del journal llegan tarde: su día es DATE(at), el mismo que toma
+  // created_at, y puede haber días posteriores ya escritos por otras
+  // estaciones. closingQty es la cantidad actual tras las líneas, así que el
+  // cierre de ese día es closingQty menos lo que movieron los días
+  // posteriores, y la apertura y el cierre de esos días suben en lo que
+  // cambió. Las sumas se leen antes de escribir (los desplazamientos no las
+  // cambian) y los desplazamientos van antes de los upserts, que fijan el
+  // cierre absoluto. Si hay varios días del mismo producto, closingQty de
+  // cada uno es la cantidad tras su última línea.
+
+  private static final String NET_AFTER = """
+    SELECT COALESCE(SUM(total_in - total_out), 0)
+    FROM stock_daily
+    WHERE product_id = ? AND day > DATE(?)
+  """;
+
+  private static final String SHIFT_AFTER = """
+    UPDATE stock_daily
+    SET opening_qty = opening_qty + ?, closing_qty = closing_qty + ?
+    WHERE product_id = ? AND day > DATE(?)
+  """;
+
+  private static final String UPSERT_DAY = """
+    INSERT INTO stock_daily (product_id, day, opening_qty, total_in, total_out, closing_qty)
+    VALUES (?, DATE(?), ?, ?, ?, ?) AS new
+    ON DUPLICATE KEY UPDATE
+      total_in    = stock_daily.total_in + new.total_in,
+      total_out   = stock_daily.total_out + new.total_out,
+      closing_qty = new.closing_qty
+  """;
+
+  /** Suma los totales en el día de t.at de cada uno; todos deben traer at. */
+  public void addOnDays(Connection cn, List<DayTotals> totals) throws SQLException {
+    if (totals.isEmpty()) return;
+
+    int[] closing = new int[totals.size()];
+    try (PreparedStatement ps = cn.prepareStatement(NET_AFTER)) {
+      for (int i = 0; i < totals.size(); i++) {
+        DayTotals t = totals.get(i);
+        ps.setInt(1, t.productId);
+        ps.setTimestamp(2, t.at);
+        try (ResultSet rs = ps.executeQuery()) {
+          rs.next();
+          closing[i] = t.closingQty - rs.getInt(1);
+        }
+      }
+    }
+
+    try (PreparedStatement ps = cn.prepareStatement(SHIFT_AFTER)) {
+      for (DayTotals t : totals) {
+        int delta = t.totalIn - t.totalOut;
+        ps.setInt(1, delta);
+        ps.setInt(2, delta);
+        ps.setInt(3, t.productId);
+        ps.setTimestamp(4, t.at);
+        ps.addBatch();
+      }
+      ps.executeBatch();
+    }
+
+    try (PreparedStatement ps = cn.prepareStatement(UPSERT_DAY)) {
+      for (int i = 0; i < totals.size(); i++) {
+        DayTotals t = totals.get(i);
+        ps.setInt(1, t.productId);
+        ps.setTimestamp(2, t.at);
+        ps.setInt(3, closing[i] - t.totalIn + t.totalOut);
+        ps.setInt(4, t.totalIn);
+        ps.setInt(5, t.totalOut);
+        ps.setInt(6, closing[i]);
+        ps.addBatch();
+      }
+      ps.executeBatch();
+    }
+  }
+
+  // ─── Consultas ─────────────────────────────────────────────────────────────
+
+  /** Días con movimientos de un producto entre from y to (inclusive), del más viejo al más nuevo. */
+  public List<StockDay> findByProduct(int productId, LocalDate from, LocalDate to) throws SQLException {
+    String sql = """
+      SELECT product_id, day, opening_qty, total_in, total_out, closing_qty
+      FROM stock_daily
+      WHERE product_id = ?
+        AND day BETWEEN ? AND ?
+      ORDER BY day
+    """;
+
+    List<StockDay> list = new ArrayList<>();
+
+    try (Connection cn = DatabaseConnection.getConnection();
+         PreparedStatement ps = cn.prepareStatement(sql)) {
+
+      ps.setInt(1, productId);
+      ps.setDate(2, Date.valueOf(from));
+      ps.setDate(3, Date.valueOf(to));
+
+      try (ResultSet rs = ps.executeQuery()) {
+        while (rs.next()) {
+          list.add(map(rs));
+        }
+      }
+    }
+    return list;
+  }
+
+  /**
+   * Cantidad de cada producto al empezar el día de at, tomada de stock_daily:
+   * apertura de ese día si tuvo movimientos, si no el cierre del último día
+   * anterior, si no la apertura del primer día posterior (no hubo movimientos
+   * entre medio) y, sin ninguna fila, la cantidad actual. Son a lo sumo dos
+   * búsquedas por clave primaria por producto, sin importar el historial.
+   */
+  public Map<Integer, Integer> findQtyAtDayStart(Connection cn, List<Integer> ids, Timestamp at) throws SQLException {
+    String marks = String.join(", ", Collections.nCopies(ids.size(), "?"));
+    String sql = """
+      SELECT p.id,
+             COALESCE(
+               (SELECT IF(s.day = DATE(?), s.opening_qty, s.closing_qty)
+                FROM stock_daily s
+                WHERE s.product_id = p.id AND s.day <= DATE(?)
+                ORDER BY s.day DESC LIMIT 1),
+               (SELECT s.opening_qty
+                FROM stock_daily s
+                WHERE s.product_id = p.id AND s.day > DATE(?)
+                ORDER BY s.day LIMIT 1),
+               p.quantity) AS qty
+      FROM product p
+      WHERE p.id IN (%s)
+    """.formatted(marks);
+
+    Map<Integer, Integer> qty = new HashMap<>();
+    try (PreparedStatement ps = cn.prepareStatement(sql)) {
+      ps.setTimestamp(1, at);
+      ps.setTimestamp(2, at);
+      ps.setTimestamp(3, at);
+      for (int i = 0; i < ids.size(); i++) ps.setInt(i + 4, ids.get(i));
+
+      try (ResultSet rs = ps.executeQuery()) {
+        while (rs.next()) qty.put(rs.getInt("id"), rs.getInt("qty"));
+      }
+    }
+    return qty;
+  }
+
+  // ─── Reconstrucción ────────────────────────────────────────────────────────
+
+  /** Cantidad actual de todos los productos (activos o no), dentro de la transacción de cn. */
+  public Map<Integer, Integer> loadQuantities(Connection cn) throws SQLException {
+    Map<Integer, Integer> qty = new HashMap<>();
+    try (Statement st = cn.createStatement();
+         ResultSet rs = st.executeQuery("SELECT id, quantity FROM product")) {
+      while (rs.next()) qty.put(rs.getInt("id"), rs.getInt("quantity"));
+    }
+    return qty;
+  }
+
+  /**
+   * Recorre todos los movimientos del más nuevo al más viejo de cada producto
+   * (producto descendente), leyendo fila por fila sin cargarlos en memoria.
+   * cn queda ocupada hasta que termina el recorrido.
+   */
+  public void streamMovementsNewestFirst(Connection cn, MovementVisitor visitor) throws SQLException {
+    String sql = """
+      SELECT product_id, DATE(created_at) AS day, movement_type, quantity
+      FROM inventory_movement
+      ORDER BY product_id DESC, created_at DESC, id DESC
+    """;
+
+    try (PreparedStatement ps = cn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+      ps.setFetchSize(Integer.MIN_VALUE);   // Connector/J: resultado en streaming
+
+      try (ResultSet rs = ps.executeQuery()) {
+        while (rs.next()) {
+          visitor.visit(rs.getInt("product_id"), rs.getObject("day", LocalDate.class),
+                        "IN".equals(rs.getString("movement_type")), rs.getInt("quantity"));
+        }
+      }
+    }
+  }
+
+  public void deleteAll(Connection cn) throws SQLException {
+    try (Statement st = cn.createStatement()) {
+      st.executeUpdate("DELETE FROM stock_daily");
+    }
+  }
+
+  /** Escribe (o reemplaza) filas completas con un solo batch JDBC. */
+  public void putAll(Connection cn, List<StockDay> days) throws SQLException {
+    if (days.isEmpty()) return;
+    String sql = """
+      INSERT INTO stock_daily (product_id, day, opening_qty, total_in, total_out, closing_qty)
+      VALUES (?, ?, ?, ?, ?, ?) AS new
+      ON DUPLICATE KEY UPDATE
+        opening_qty = new.opening_qty,
+        total_in    = new.total_in,
+        total_out   = new.total_out,
+        closing_qty = new.closing_qty
+    """;
+
+    try (PreparedStatement ps = cn.prepareStatement(sql)) {
+      for (StockDay d : days) {
+        ps.setInt(1, d.getProductId());
+        ps.setDate(2, Date.valueOf(d.getDay()));
+        ps.setInt(3, d.getOpeningQty());
+        ps.setInt(4, d.getTotalIn());
+        ps.setInt(5, d.getTotalOut());
+        ps.setInt(6, d.getClosingQty());
+        ps.addBatch();
+      }
+      ps.executeBatch();
+    }
+  }
+
+  private StockDay map(ResultSet rs) throws SQLException {
+    return new StockDay(
+        rs.getInt("product_id"),
+        rs.getObject("day", LocalDate.class),
+        rs.getInt("opening_qty"),
+        rs.getInt("total_in"),
+        rs.getInt("total_out"),
+        rs.getInt("closing_qty"));
+  }
+}
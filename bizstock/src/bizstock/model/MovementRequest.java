@@ -0,0 +1,54 @@
+package bizstock.model;
+
+/** Una línea de movimiento a registrar (entrada o salida de un producto). */
+public class MovementRequest {
+  public static final String IN  = "IN";
+  public static final String OUT = "OUT";
+
+  private final int productId;
+  private final int userId;
+  private final String movementType;
+  private final int quantity;
+  private final String note;
+  private final long occurredAt;   // epoch millis; 0 = cuando se inserta
+
+  public MovementRequest(int productId, int userId, String movementType, int quantity, String note) {
+    this(productId, userId, movementType, quantity, note, 0);
+  }
+
+  public MovementRequest(int productId, int userId, String movementType, int quantity, String note, long occurredAt) {
+    this.productId = productId;
+    this.userId = userId;
+    this.movementType = movementType;
+    this.quantity = quantity;
+    this.note = note;
+    this.occurredAt = occurredAt;
+  }
+
+  public static MovementRequest in(int productId, int qty, int userId, String note) {
+    return new MovementRequest(productId, userId, IN, qty, note);
+  }
+
+  public static MovementRequest out(int productId, int qty, int userId, String note) {
+    return new MovementRequest(productId, userId, OUT, qty, note);
+  }
+
+  public int getProductId() { return productId; }
+  public int getUserId() { return userId; }
+  public String getMovementType() { return movementType; }
+  public int getQuantity() { return quantity; }
+  public String getNote() { return note; }
+
+  /** Cuándo ocurrió, si se registra después (journal); 0 = la hora de la BD al insertarlo. */
+  public long getOccurredAt() { return occurredAt; }
+
+  /** La misma línea con la hora en que ocurrió. */
+  public MovementRequest at(long epochMillis) {
+    return new MovementRequest(productId, userId, movementType, quantity, note, epochMillis);
+  }
+
+  public boolean isIn() { return IN.equals(movementType); }
+
+  /** Cambio con signo que produce sobre la cantidad del producto. */
+  public int getDelta() { return isIn() ? quantity : -quantity; }
+}
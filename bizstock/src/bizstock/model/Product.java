@@ -30,6 +30,12 @@ public class Product {
     this.active = active;
   }
 
+  /** Copia independiente (la usa el caché de catálogo para no compartir instancias mutables). */
+  public Product copy() {
+    return new Product(id, name, description, price, quantity,
+                       reorderLevel, criticalLevel, categoryId, brandId, active);
+  }
+
   public int getId() { return id; }
   public void setId(int id) { this.id = id; }
 
@@ -0,0 +1,29 @@
+package bizstock.model;
+
+import java.time.LocalDate;
+
+/** Resumen del stock de un producto en un día: cantidad al abrir, entradas, salidas y cantidad al cerrar. */
+public class StockDay {
+  private final int productId;
+  private final LocalDate day;
+  private final int openingQty;
+  private final int totalIn;
+  private final int totalOut;
+  private final int closingQty;
+
+  public StockDay(int productId, LocalDate day, int openingQty, int totalIn, int totalOut, int closingQty) {
+    this.productId = productId;
+    this.day = day;
+    this.openingQty = openingQty;
+    this.totalIn = totalIn;
+    this.totalOut = totalOut;
+    this.closingQty = closingQty;
+  }
+
+  public int getProductId() { return productId; }
+  public LocalDate getDay() { return day; }
+  public int getOpeningQty() { return openingQty; }
+  public int getTotalIn() { return totalIn; }
+  public int getTotalOut() { return totalOut; }
+  public int getClosingQty() { return closingQty; }
+}
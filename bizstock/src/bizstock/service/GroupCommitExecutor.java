@@ -0,0 +1,177 @@
+package bizstock.service;
+
+import bizstock.dao.ProductCatalog;
+import bizstock.model.MovementRequest;
+import bizstock.util.DatabaseConnection;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Junta los movimientos que llegan a la vez de varios hilos y los registra en
+ * una sola transacción (-Dbizstock.groupCommit.enabled=true).
+ *
+ * Un único hilo toma el primer pedido de la cola, espera hasta maxWaitMs a
+ * que lleguen más (o hasta maxItems) y aplica el grupo con planBatch/applyPlan:
+ * cada línea se valida por separado, así una salida sin stock falla solo para
+ * quien la pidió. Mientras un grupo hace commit, el siguiente se va formando,
+ * de modo que a más carga, grupos más grandes y no más commits.
+ */
+public final class GroupCommitExecutor {
+
+  private static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("bizstock.groupCommit.enabled", "false"));
+  private static final long    MAX_WAIT_MS = Long.getLong("bizstock.groupCommit.maxWaitMs", 2L);
+  private static final int     MAX_ITEMS   = Integer.getInteger("bizstock.groupCommit.maxItems", 200);
+  // Espera máxima de quien encola; más que innodb_lock_wait_timeout (50 s por defecto)
+  private static final long    TIMEOUT_MS  = Long.getLong("bizstock.groupCommit.timeoutMs", 60_000L);
+
+  public static boolean isEnabled() { return ENABLED; }
+
+  /** Cuánto esperar el future de submit() antes de rendirse. */
+  public static long getTimeoutMs() { return TIMEOUT_MS; }
+
+  private static final class Holder {
+    static final GroupCommitExecutor INSTANCE = new GroupCommitExecutor();
+    static {
+      Runtime.getRuntime().addShutdownHook(new Thread(INSTANCE::close, "bizstock-group-commit-shutdown"));
+    }
+  }
+
+  public static GroupCommitExecutor get() { return Holder.INSTANCE; }
+
+  private record Pending(MovementRequest request, CompletableFuture<Integer> result) {}
+
+  private final LinkedBlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+  private final InventoryService service = new InventoryService();
+  private final Thread committer;
+  private final Object closeLock = new Object();   // encolar y cerrar no se cruzan
+  private volatile boolean closed;
+
+  private final LongAdder groups    = new LongAdder();
+  private final LongAdder committed = new LongAdder();
+  private final LongAdder rejected  = new LongAdder();
+
+  private GroupCommitExecutor() {
+    committer = new Thread(this::run, "bizstock-group-commit");
+    committer.setDaemon(true);
+    committer.start();
+  }
+
+  /**
+   * Encola el movimiento. El future termina con la cantidad del producto
+   * después de la línea, o con el error de esa línea (IllegalArgumentException
+   * si no pasó la validación, o el error de la BD si falló el grupo entero).
+   */
+  public CompletableFuture<Integer> submit(MovementRequest r) {
+    CompletableFuture<Integer> result = new CompletableFuture<>();
+    synchronized (closeLock) {
+      if (closed) {
+        result.completeExceptionally(new IllegalStateException("El registro agrupado está cerrado."));
+        return result;
+      }
+      queue.add(new Pending(r, result));
+    }
+    return result;
+  }
+
+  private void run() {
+    List<Pending> group = new ArrayList<>(MAX_ITEMS);
+    while (true) {
+      try {
+        Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+        if (first == null) {
+          // Con closed ya no entra nada: si la cola está vacía no queda nadie esperando
+          if (closed && queue.isEmpty()) return;
+          continue;
+        }
+        group.add(first);
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(MAX_WAIT_MS);
+        while (group.size() < MAX_ITEMS) {
+          queue.drainTo(group, MAX_ITEMS - group.size());
+          long left = deadline - System.nanoTime();
+          if (group.size() >= MAX_ITEMS || left <= 0) break;
+          Pending next = queue.poll(left, TimeUnit.NANOSECONDS);
+          if (next == null) break;
+          group.add(next);
+        }
+
+        commit(group);
+      } catch (InterruptedException ex) {
+        if (!group.isEmpty()) commit(group);   // no dejar a nadie esperando
+        if (closed && queue.isEmpty()) return;
+      } finally {
+        group.clear();
+      }
+    }
+  }
+
+  private void commit(List<Pending> group) {
+    List<MovementRequest> lines = new ArrayList<>(group.size());
+    for (Pending p : group) lines.add(p.request());
+
+    InventoryService.BatchPlan plan;
+    try (Connection cn = DatabaseConnection.getConnection()) {
+      cn.setAutoCommit(false);
+
+      try {
+        plan = service.planBatch(cn, lines);
+        service.applyPlan(cn, plan);
+        cn.commit();
+      } catch (Exception ex) {
+        cn.rollback();
+        throw ex;
+      } finally {
+        cn.setAutoCommit(true);
+      }
+    } catch (Exception ex) {
+      for (Pending p : group) p.result().completeExceptionally(ex);
+      return;
+    }
+
+    plan.finalQty.forEach(ProductCatalog.get()::updateQuantity);
+    groups.increment();
+
+    for (int i = 0; i < group.size(); i++) {
+      CompletableFuture<Integer> result = group.get(i).result();
+      if (plan.lineError[i] != null) {
+        rejected.increment();
+        result.completeExceptionally(new IllegalArgumentException(plan.lineError[i]));
+      } else {
+        committed.increment();
+        result.complete(plan.qtyAfter[i]);
+      }
+    }
+  }
+
+  public long getGroups()    { return groups.sum(); }
+  public long getCommitted() { return committed.sum(); }
+  public long getRejected()  { return rejected.sum(); }
+
+  /**
+   * Deja de aceptar pedidos; lo que ya está en la cola se registra antes de
+   * salir. Si el hilo no termina a tiempo, lo que quede se rechaza para que
+   * nadie se quede esperando.
+   */
+  public void close() {
+    synchronized (closeLock) {
+      closed = true;
+    }
+    try {
+      committer.join(5000);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+
+    List<Pending> left = new ArrayList<>();
+    queue.drainTo(left);
+    for (Pending p : left) {
+      p.result().completeExceptionally(new IllegalStateException("El registro agrupado se cerró antes de registrar el movimiento."));
+    }
+  }
+}
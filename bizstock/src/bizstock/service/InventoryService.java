@@ -1,71 +1,282 @@
 package bizstock.service;
 
 import bizstock.dao.InventoryMovementDAO;
+import bizstock.dao.ProductCatalog;
+import bizstock.dao.StockRollupDAO;
+import bizstock.model.MovementRequest;
 import bizstock.util.DatabaseConnection;
+import bizstock.util.LastInsertId;
+import bizstock.util.Metrics;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 public class InventoryService {
 
+  /**
+   * Cómo se cambia la cantidad en registerIn/registerOut.
+   * PESSIMISTIC: SELECT ... FOR UPDATE, validación en Java y UPDATE (tres viajes).
+   * ATOMIC: un solo UPDATE condicional que además devuelve la nueva cantidad.
+   */
+  public enum StockUpdateMode { PESSIMISTIC, ATOMIC }
+
+  // Compartidos por todas las instancias: se toman antes de pedir la conexión
+  private static final boolean      STRIPED_LOCKS =
+      Boolean.parseBoolean(System.getProperty("bizstock.locks.enabled", "true"));
+  private static final StripedLocks PRODUCT_LOCKS =
+      new StripedLocks(Integer.getInteger("bizstock.locks.stripes", 256));
+
+  /** Locks por producto de la JVM y sus contadores de espera. */
+  public static StripedLocks getProductLocks() { return PRODUCT_LOCKS; }
+
+  private static final Metrics.Timer T_REGISTER_IN     = Metrics.timer("InventoryService.registerIn");
+  private static final Metrics.Timer T_REGISTER_OUT    = Metrics.timer("InventoryService.registerOut");
+  private static final Metrics.Timer T_REGISTER_BATCH  = Metrics.timer("InventoryService.registerBatch");
+  private static final Metrics.Timer T_GET_CURRENT_QTY = Metrics.timer("InventoryService.getCurrentQty");
+
+  static {
+    Metrics.gauge("StripedLocks.contended", PRODUCT_LOCKS::getTotalContended);
+    Metrics.gauge("StripedLocks.waitMs", () -> PRODUCT_LOCKS.getTotalWaitNanos() / 1_000_000);
+  }
+
   private final InventoryMovementDAO movementDAO = new InventoryMovementDAO();
+  private final StockRollupDAO rollupDAO = new StockRollupDAO();
+
+  private volatile StockUpdateMode stockUpdateMode = StockUpdateMode.valueOf(
+      System.getProperty("bizstock.stock.mode", StockUpdateMode.ATOMIC.name()).toUpperCase());
+
+  public StockUpdateMode getStockUpdateMode() { return stockUpdateMode; }
+  public void setStockUpdateMode(StockUpdateMode mode) { this.stockUpdateMode = mode; }
 
   public void registerIn(int productId, int qty, int userId, String note) throws Exception {
-    if (qty <= 0) throw new IllegalArgumentException("La cantidad debe ser mayor que 0.");
+    long t0 = T_REGISTER_IN.start();
+    try {
+      if (qty <= 0) throw new IllegalArgumentException("La cantidad debe ser mayor que 0.");
+      if (MovementJournal.isEnabled()) {
+        journal(MovementRequest.in(productId, qty, userId, note));
+        return;
+      }
+      if (GroupCommitExecutor.isEnabled()) {
+        grouped(MovementRequest.in(productId, qty, userId, note));
+        return;
+      }
 
-    try (Connection cn = DatabaseConnection.getConnection()) {
-      cn.setAutoCommit(false);
+      StripedLocks.Held held = lockProducts(List.of(productId));
+      try (held; Connection cn = DatabaseConnection.getConnection()) {
+        cn.setAutoCommit(false);
 
-      try {
-        int currentQty = getProductQtyForUpdate(cn, productId);
-        int newQty = currentQty + qty;
+        try {
+          int newQty;
+          if (stockUpdateMode == StockUpdateMode.ATOMIC) {
+            newQty = addQtyAtomic(cn, productId, qty);
+          } else {
+            int currentQty = getProductQtyForUpdate(cn, productId);
+            newQty = currentQty + qty;
+            updateProductQty(cn, productId, newQty);
+          }
 
-        updateProductQty(cn, productId, newQty);
-        movementDAO.insert(cn, productId, userId, "IN", qty, note);
+          movementDAO.insert(cn, productId, userId, "IN", qty, note);
+          rollupDAO.addToday(cn, new StockRollupDAO.DayTotals(productId, qty, 0, newQty));
 
-        cn.commit();
-      } catch (Exception ex) {
-        cn.rollback();
-        throw ex;
-      } finally {
-        cn.setAutoCommit(true);
+          cn.commit();
+          ProductCatalog.get().updateQuantity(productId, newQty);
+        } catch (Exception ex) {
+          cn.rollback();
+          throw ex;
+        } finally {
+          cn.setAutoCommit(true);
+        }
       }
+    } catch (Exception ex) {
+      T_REGISTER_IN.error();
+      throw ex;
+    } finally {
+      T_REGISTER_IN.stop(t0);
     }
   }
 
   public void registerOut(int productId, int qty, int userId, String note) throws Exception {
-    if (qty <= 0) throw new IllegalArgumentException("La cantidad debe ser mayor que 0.");
+    long t0 = T_REGISTER_OUT.start();
+    try {
+      if (qty <= 0) throw new IllegalArgumentException("La cantidad debe ser mayor que 0.");
+      if (MovementJournal.isEnabled()) {
+        journal(MovementRequest.out(productId, qty, userId, note));
+        return;
+      }
+      if (GroupCommitExecutor.isEnabled()) {
+        grouped(MovementRequest.out(productId, qty, userId, note));
+        return;
+      }
 
-    try (Connection cn = DatabaseConnection.getConnection()) {
-      cn.setAutoCommit(false);
+      StripedLocks.Held held = lockProducts(List.of(productId));
+      try (held; Connection cn = DatabaseConnection.getConnection()) {
+        cn.setAutoCommit(false);
 
-      try {
-        int currentQty = getProductQtyForUpdate(cn, productId);
-        if (currentQty - qty < 0) {
-          throw new IllegalArgumentException("No puedes sacar mas de lo disponible. Disponible: " + currentQty);
+        try {
+          int newQty;
+          if (stockUpdateMode == StockUpdateMode.ATOMIC) {
+            newQty = takeQtyAtomic(cn, productId, qty);
+          } else {
+            int currentQty = getProductQtyForUpdate(cn, productId);
+            if (currentQty - qty < 0) {
+              throw new IllegalArgumentException("No puedes sacar mas de lo disponible. Disponible: " + currentQty);
+            }
+
+            newQty = currentQty - qty;
+
+            updateProductQty(cn, productId, newQty);
+          }
+
+          movementDAO.insert(cn, productId, userId, "OUT", qty, note);
+          rollupDAO.addToday(cn, new StockRollupDAO.DayTotals(productId, 0, qty, newQty));
+
+          cn.commit();
+          ProductCatalog.get().updateQuantity(productId, newQty);
+        } catch (Exception ex) {
+          cn.rollback();
+          throw ex;
+        } finally {
+          cn.setAutoCommit(true);
         }
+      }
+    } catch (Exception ex) {
+      T_REGISTER_OUT.error();
+      throw ex;
+    } finally {
+      T_REGISTER_OUT.stop(t0);
+    }
+  }
+
+  /**
+   * Registra varias líneas en una sola transacción: bloquea los productos en
+   * orden ascendente de id (evita deadlocks entre lotes), aplica las cantidades,
+   * inserta todos los movimientos con un batch JDBC y hace un solo commit.
+   * Si alguna línea falla no se aplica ninguna y el error lista cada línea.
+   */
+  public void registerBatch(List<MovementRequest> lines) throws Exception {
+    long t0 = T_REGISTER_BATCH.start();
+    try {
+      if (lines == null || lines.isEmpty()) return;
 
-        int newQty = currentQty - qty;
+      List<Integer> ids = new ArrayList<>(lines.size());
+      for (MovementRequest r : lines) ids.add(r.getProductId());
 
-        updateProductQty(cn, productId, newQty);
-        movementDAO.insert(cn, productId, userId, "OUT", qty, note);
+      StripedLocks.Held held = lockProducts(ids);
+      try (held; Connection cn = DatabaseConnection.getConnection()) {
+        cn.setAutoCommit(false);
 
-        cn.commit();
-      } catch (Exception ex) {
-        cn.rollback();
-        throw ex;
-      } finally {
-        cn.setAutoCommit(true);
+        try {
+          BatchPlan plan = planBatch(cn, lines);
+          if (plan.hasErrors()) throw new MovementBatchException(plan.errors());
+
+          applyPlan(cn, plan);
+
+          cn.commit();
+          plan.finalQty.forEach(ProductCatalog.get()::updateQuantity);
+        } catch (Exception ex) {
+          cn.rollback();
+          throw ex;
+        } finally {
+          cn.setAutoCommit(true);
+        }
       }
+    } catch (Exception ex) {
+      T_REGISTER_BATCH.error();
+      throw ex;
+    } finally {
+      T_REGISTER_BATCH.stop(t0);
     }
   }
 
+  /** Cantidad actual; en modo journal incluye los movimientos que todavía no llegaron a la BD. */
   public int getCurrentQty(int productId) throws Exception {
-    String sql = "SELECT quantity FROM product WHERE id = ? AND is_active = 1";
-    try (Connection cn = DatabaseConnection.getConnection();
-         PreparedStatement ps = cn.prepareStatement(sql)) {
+    long t0 = T_GET_CURRENT_QTY.start();
+    try {
+      return MovementJournal.isEnabled() ? MovementJournal.get().currentQty(productId, this::readQty)
+                                         : readQty(productId);
+    } catch (Exception ex) {
+      T_GET_CURRENT_QTY.error();
+      throw ex;
+    } finally {
+      T_GET_CURRENT_QTY.stop(t0);
+    }
+  }
+
+  private int readQty(int productId) throws Exception {
+    try (Connection cn = DatabaseConnection.getConnection()) {
+      return getProductQty(cn, productId);
+    }
+  }
+
+  /** Franjas de los productos, o nada si los locks de la JVM están desactivados. */
+  private static StripedLocks.Held lockProducts(Collection<Integer> productIds) {
+    return STRIPED_LOCKS ? PRODUCT_LOCKS.lockAll(productIds) : () -> {};
+  }
+
+  // ─── Registro agrupado ─────────────────────────────────────────────────────
+
+  /** Espera a que GroupCommitExecutor registre el movimiento y relanza su error tal cual. */
+  private void grouped(MovementRequest r) throws Exception {
+    try {
+      GroupCommitExecutor.get().submit(r).get(GroupCommitExecutor.getTimeoutMs(), TimeUnit.MILLISECONDS);
+    } catch (ExecutionException ex) {
+      if (ex.getCause() instanceof Exception cause) throw cause;
+      throw ex;
+    } catch (TimeoutException ex) {
+      throw new TimeoutException("El registro agrupado no respondió en " + GroupCommitExecutor.getTimeoutMs()
+          + " ms; el movimiento pudo haberse registrado igual, revisa el historial.");
+    }
+  }
+
+  // ─── Write-behind ──────────────────────────────────────────────────────────
+
+  /**
+   * Modo journal: valida contra la cantidad de la BD más lo pendiente y
+   * vuelve cuando el movimiento está en el disco local. La franja del
+   * producto se toma siempre (aunque los locks estén desactivados) desde la
+   * lectura hasta el append, así dos salidas de esta JVM no validan contra el
+   * mismo saldo. Al pasar a la BD la salida se valida otra vez con el
+   * producto bloqueado; solo se descarta si otra estación vendió lo mismo
+   * entretanto, y queda en el log.
+   */
+  private void journal(MovementRequest r) throws Exception {
+    if (r.isIn()) {
+      MovementJournal.get().append(r);
+      return;
+    }
+    StripedLocks.Held held = PRODUCT_LOCKS.lock(r.getProductId());
+    try (held) {
+      int available = getCurrentQty(r.getProductId());
+      if (available < r.getQuantity()) {
+        throw new IllegalArgumentException("No puedes sacar mas de lo disponible. Disponible: " + available);
+      }
+      MovementJournal.get().append(r);
+    }
+  }
+
+  private int getProductQtyForUpdate(Connection cn, int productId) throws Exception {
+    String sql = "SELECT quantity FROM product WHERE id = ? AND is_active = 1 FOR UPDATE";
+
+    try (PreparedStatement ps = cn.prepareStatement(sql)) {
       ps.setInt(1, productId);
+
       try (ResultSet rs = ps.executeQuery()) {
         if (!rs.next()) throw new IllegalArgumentException("Producto no existe o esta inactivo.");
         return rs.getInt("quantity");
@@ -73,8 +284,48 @@ public class InventoryService {
     }
   }
 
-  private int getProductQtyForUpdate(Connection cn, int productId) throws Exception {
-    String sql = "SELECT quantity FROM product WHERE id = ? AND is_active = 1 FOR UPDATE";
+  // ─── Camino atómico ────────────────────────────────────────────────────────
+  // LAST_INSERT_ID(expr) deja la nueva cantidad en el paquete OK del UPDATE,
+  // así que se lee sin otro viaje al servidor.
+
+  private int addQtyAtomic(Connection cn, int productId, int qty) throws Exception {
+    String sql = """
+      UPDATE product SET quantity = LAST_INSERT_ID(quantity + ?)
+      WHERE id = ? AND is_active = 1
+    """;
+
+    try (PreparedStatement ps = cn.prepareStatement(sql)) {
+      ps.setInt(1, qty);
+      ps.setInt(2, productId);
+      if (ps.executeUpdate() != 1) throw new IllegalArgumentException("Producto no existe o esta inactivo.");
+      return readNewQty(cn, ps);
+    }
+  }
+
+  private int takeQtyAtomic(Connection cn, int productId, int qty) throws Exception {
+    String sql = """
+      UPDATE product SET quantity = LAST_INSERT_ID(quantity - ?)
+      WHERE id = ? AND is_active = 1 AND quantity >= ?
+    """;
+
+    try (PreparedStatement ps = cn.prepareStatement(sql)) {
+      ps.setInt(1, qty);
+      ps.setInt(2, productId);
+      ps.setInt(3, qty);
+      if (ps.executeUpdate() == 1) return readNewQty(cn, ps);
+    }
+
+    // No se actualizó: distinguir producto inexistente de stock insuficiente
+    int currentQty = getProductQty(cn, productId);
+    throw new IllegalArgumentException("No puedes sacar mas de lo disponible. Disponible: " + currentQty);
+  }
+
+  private int readNewQty(Connection cn, PreparedStatement ps) throws Exception {
+    return (int) LastInsertId.read(cn, ps);
+  }
+
+  private int getProductQty(Connection cn, int productId) throws Exception {
+    String sql = "SELECT quantity FROM product WHERE id = ? AND is_active = 1";
 
     try (PreparedStatement ps = cn.prepareStatement(sql)) {
       ps.setInt(1, productId);
@@ -96,4 +347,165 @@ public class InventoryService {
       if (updated != 1) throw new IllegalStateException("No se pudo actualizar la cantidad del producto.");
     }
   }
+
+  // ─── Lotes ─────────────────────────────────────────────────────────────────
+
+  /** Resultado de simular un lote sobre las cantidades bloqueadas. */
+  static final class BatchPlan {
+    final List<MovementRequest> lines;
+    final String[] lineError;                             // null = línea válida
+    final int[] qtyAfter;                                 // cantidad tras aplicar la línea
+    final Map<Integer, Integer> finalQty = new TreeMap<>(); // productos con líneas válidas
+
+    BatchPlan(List<MovementRequest> lines) {
+      this.lines = lines;
+      this.lineError = new String[lines.size()];
+      this.qtyAfter = new int[lines.size()];
+    }
+
+    boolean hasErrors() {
+      for (String e : lineError) if (e != null) return true;
+      return false;
+    }
+
+    List<String> errors() {
+      List<String> list = new ArrayList<>();
+      for (int i = 0; i < lineError.length; i++) {
+        if (lineError[i] != null) list.add("Línea " + (i + 1) + ": " + lineError[i]);
+      }
+      return list;
+    }
+
+    List<MovementRequest> acceptedLines() {
+      List<MovementRequest> list = new ArrayList<>(lines.size());
+      for (int i = 0; i < lineError.length; i++) {
+        if (lineError[i] == null) list.add(lines.get(i));
+      }
+      return list;
+    }
+  }
+
+  /**
+   * Bloquea los productos del lote y simula las líneas en orden. Una línea
+   * inválida no modifica el saldo, así las siguientes se validan contra lo
+   * que realmente quedaría.
+   */
+  BatchPlan planBatch(Connection cn, List<MovementRequest> lines) throws Exception {
+    BatchPlan plan = new BatchPlan(lines);
+
+    TreeSet<Integer> ids = new TreeSet<>();
+    for (MovementRequest r : lines) ids.add(r.getProductId());
+    Map<Integer, Integer> running = lockProducts(cn, ids);
+
+    for (int i = 0; i < lines.size(); i++) {
+      MovementRequest r = lines.get(i);
+
+      if (r.getQuantity() <= 0) {
+        plan.lineError[i] = "La cantidad debe ser mayor que 0.";
+        continue;
+      }
+      if (!MovementRequest.IN.equals(r.getMovementType()) && !MovementRequest.OUT.equals(r.getMovementType())) {
+        plan.lineError[i] = "Tipo de movimiento invalido: " + r.getMovementType();
+        continue;
+      }
+
+      Integer current = running.get(r.getProductId());
+      if (current == null) {
+        plan.lineError[i] = "Producto no existe o esta inactivo.";
+        continue;
+      }
+
+      int newQty = current + r.getDelta();
+      if (newQty < 0) {
+        plan.lineError[i] = "No puedes sacar mas de lo disponible. Disponible: " + current;
+        continue;
+      }
+
+      running.put(r.getProductId(), newQty);
+      plan.qtyAfter[i] = newQty;
+      plan.finalQty.put(r.getProductId(), newQty);
+    }
+    return plan;
+  }
+
+  /** Escribe las líneas válidas del plan: cantidades finales, movimientos y resumen del día. */
+  void applyPlan(Connection cn, BatchPlan plan) throws Exception {
+    if (plan.finalQty.isEmpty()) return;
+    updateProductQtyBatch(cn, plan.finalQty);
+    movementDAO.insertBatch(cn, plan.acceptedLines());
+
+    List<StockRollupDAO.DayTotals> today = new ArrayList<>();
+    List<StockRollupDAO.DayTotals> dated = new ArrayList<>();
+    for (StockRollupDAO.DayTotals t : dayTotals(plan)) (t.isToday() ? today : dated).add(t);
+    rollupDAO.addOnDays(cn, dated);
+    rollupDAO.addTodayBatch(cn, today);
+  }
+
+  /**
+   * Entradas y salidas válidas por producto y por día, en orden de id como
+   * los bloqueos. El día es el de getOccurredAt() (zona de la JVM) o hoy; el
+   * cierre es la cantidad tras la última línea de ese día.
+   */
+  private List<StockRollupDAO.DayTotals> dayTotals(BatchPlan plan) {
+    // producto -> día -> {entradas, salidas, cantidad tras la última línea, hora de la última línea}
+    Map<Integer, Map<LocalDate, long[]>> byProduct = new TreeMap<>();
+    for (int i = 0; i < plan.lines.size(); i++) {
+      if (plan.lineError[i] != null) continue;
+      MovementRequest r = plan.lines.get(i);
+      long at = r.getOccurredAt();
+      LocalDate day = at == 0 ? LocalDate.MAX
+                              : Instant.ofEpochMilli(at).atZone(ZoneId.systemDefault()).toLocalDate();
+
+      long[] t = byProduct.computeIfAbsent(r.getProductId(), id -> new TreeMap<>())
+                          .computeIfAbsent(day, d -> new long[4]);
+      t[r.isIn() ? 0 : 1] += r.getQuantity();
+      t[2] = plan.qtyAfter[i];
+      t[3] = at;
+    }
+
+    List<StockRollupDAO.DayTotals> totals = new ArrayList<>();
+    byProduct.forEach((id, days) -> days.forEach((day, t) ->
+        totals.add(new StockRollupDAO.DayTotals(id, (int) t[0], (int) t[1], (int) t[2],
+                                                t[3] == 0 ? null : new Timestamp(t[3])))));
+    return totals;
+  }
+
+  /** SELECT ... FOR UPDATE en orden ascendente de id, por bloques. */
+  private Map<Integer, Integer> lockProducts(Connection cn, TreeSet<Integer> ids) throws Exception {
+    final int chunk = 500;
+    Map<Integer, Integer> qty = new HashMap<>();
+    List<Integer> sorted = new ArrayList<>(ids);
+
+    for (int from = 0; from < sorted.size(); from += chunk) {
+      List<Integer> part = sorted.subList(from, Math.min(from + chunk, sorted.size()));
+      String marks = String.join(", ", Collections.nCopies(part.size(), "?"));
+      String sql = "SELECT id, quantity FROM product WHERE id IN (" + marks + ")"
+                 + " AND is_active = 1 ORDER BY id FOR UPDATE";
+
+      try (PreparedStatement ps = cn.prepareStatement(sql)) {
+        for (int i = 0; i < part.size(); i++) ps.setInt(i + 1, part.get(i));
+        try (ResultSet rs = ps.executeQuery()) {
+          while (rs.next()) qty.put(rs.getInt("id"), rs.getInt("quantity"));
+        }
+      }
+    }
+    return qty;
+  }
+
+  private void updateProductQtyBatch(Connection cn, Map<Integer, Integer> newQtyById) throws Exception {
+    String sql = "UPDATE product SET quantity = ? WHERE id = ? AND is_active = 1";
+
+    try (PreparedStatement ps = cn.prepareStatement(sql)) {
+      for (Map.Entry<Integer, Integer> e : newQtyById.entrySet()) {
+        ps.setInt(1, e.getValue());
+        ps.setInt(2, e.getKey());
+        ps.addBatch();
+      }
+      for (int updated : ps.executeBatch()) {
+        if (updated != 1 && updated != Statement.SUCCESS_NO_INFO) {
+          throw new IllegalStateException("No se pudo actualizar la cantidad del producto.");
+        }
+      }
+    }
+  }
 }
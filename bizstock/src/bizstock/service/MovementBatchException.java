@@ -0,0 +1,21 @@
+package bizstock.service;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Error de un lote de movimientos. El lote completo se revierte y cada línea
+ * que falló queda descrita en {@link #getLineErrors()} ("Línea N: motivo").
+ */
+public class MovementBatchException extends IllegalArgumentException {
+
+  private final List<String> lineErrors;
+
+  public MovementBatchException(List<String> lineErrors) {
+    super("El lote no se registró (" + lineErrors.size() + " línea(s) con error):\n"
+        + String.join("\n", lineErrors));
+    this.lineErrors = Collections.unmodifiableList(lineErrors);
+  }
+
+  public List<String> getLineErrors() { return lineErrors; }
+}
@@ -0,0 +1,609 @@
+package bizstock.service;
+
+import bizstock.dao.JournalCheckpointDAO;
+import bizstock.dao.JournalRejectedDAO;
+import bizstock.dao.ProductCatalog;
+import bizstock.model.MovementRequest;
+import bizstock.util.DatabaseConnection;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+/**
+ * Journal local de movimientos para el modo write-behind
+ * (-Dbizstock.journal.enabled=true).
+ *
+ * registerIn/registerOut escriben el movimiento en un archivo mapeado en
+ * memoria y esperan solo a que esté en disco: un hilo hace el fsync de todo lo
+ * agregado desde el anterior, así los movimientos que llegan juntos comparten
+ * uno. Otro hilo los pasa a MySQL en orden, en lotes, con planBatch/applyPlan
+ * y guarda en la misma transacción la última secuencia aplicada
+ * (movement_journal_checkpoint): al arrancar se vuelve a leer el archivo y se
+ * salta lo ya aplicado.
+ *
+ * Formato: cabecera (magic, versión, secuencia base) y registros
+ * [largo][crc32c][seq, producto, usuario, tipo, hora, cantidad, nota]. La hora
+ * (epoch millis de cuando se registró) es la que lleva created_at y el día de
+ * stock_daily; va si el tipo tiene el bit TIMED, así se siguen leyendo los
+ * registros escritos antes de que existiera. Un largo 0,
+ * un CRC que no coincide o una secuencia que no crece marcan el final. Cuando
+ * todo está aplicado y el archivo pasó la mitad, se vuelve a escribir desde el
+ * principio.
+ *
+ * pending guarda lo que está en el archivo y todavía no en la BD. Un lote se
+ * quita de pending en la misma sección crítica que publica su commit, y
+ * currentQty() repite la lectura si un commit se cruzó con ella, así la
+ * cantidad de la BD más pending nunca cuenta un movimiento dos veces.
+ */
+public final class MovementJournal {
+
+  private static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("bizstock.journal.enabled", "false"));
+  private static final int     SIZE_MB = Integer.getInteger("bizstock.journal.sizeMb", 64);
+  private static final int     DRAIN_BATCH = Integer.getInteger("bizstock.journal.drainBatch", 500);
+  private static final long    RETRY_MS = 1000;
+
+  private static final int MAGIC   = 0x42534A31;   // "BSJ1"
+  private static final int VERSION = 1;
+  private static final int HEADER  = 16;           // magic, versión, secuencia base
+  private static final int FIXED   = 8 + 4 + 4 + 1 + 4 + 2;   // payload sin la nota ni la hora
+  private static final int TIMED   = 0x80;         // bit del tipo: sigue la hora
+  private static final int MAX_NOTE_CHARS = 255;
+
+  public static boolean isEnabled() { return ENABLED; }
+
+  /** Se abre al primer uso; el shutdown hook detiene los hilos (lo pendiente queda en el archivo). */
+  private static final class Holder {
+    static final MovementJournal INSTANCE = open();
+    static {
+      Runtime.getRuntime().addShutdownHook(new Thread(INSTANCE::close, "bizstock-journal-shutdown"));
+    }
+  }
+
+  public static MovementJournal get() { return Holder.INSTANCE; }
+
+  /** Un registro leído del archivo. */
+  private record Entry(long seq, MovementRequest request, int end) {}
+
+  private final String           journalId;
+  private final FileChannel      channel;
+  private final MappedByteBuffer map;
+  private final int              size;
+
+  private final JournalCheckpointDAO checkpointDAO = new JournalCheckpointDAO();
+  private final JournalRejectedDAO   rejectedDAO   = new JournalRejectedDAO();
+  private final InventoryService     service       = new InventoryService();
+
+  private final ReentrantLock lock     = new ReentrantLock();
+  private final Condition     appended = lock.newCondition();   // hay algo sin fsync
+  private final Condition     durable  = lock.newCondition();   // avanzó durablePos
+  private final Condition     space    = lock.newCondition();   // se vació el archivo
+  private final Condition     published = lock.newCondition();  // terminó un commit del drainer
+
+  // Protegido por lock
+  private long    nextSeq;
+  private int     writePos;
+  private int     durablePos;     // todo lo anterior ya pasó por fsync
+  private long    durableSeq;
+  private int     drainPos;       // todo lo anterior ya está en la BD (o se saltó)
+  private boolean closed;
+  private IOException failure;
+  private long    publishing;     // impar mientras el drainer hace commit
+  private long    pendingAfter = -1;   // checkpoint al abrir; -1 = todavía no se pudo leer
+  private List<Entry> recovered;  // lo leído al abrir, hasta conocer pendingAfter
+
+  /** Cambio de cantidad aún no aplicado en la BD, por producto (registros con seq > pendingAfter). */
+  private final Map<Integer, Integer> pending = new HashMap<>();
+
+  private final LongAdder appendedCount = new LongAdder();
+  private final LongAdder fsyncs        = new LongAdder();
+  private final LongAdder drainedCount  = new LongAdder();
+  private final LongAdder rejected      = new LongAdder();
+
+  private final Thread flusher;
+  private final Thread drainer;
+
+  private static MovementJournal open() {
+    File file = new File(System.getProperty("bizstock.journal.file",
+        System.getProperty("user.home") + File.separator + ".bizstock" + File.separator + "movements.journal"));
+    try {
+      return new MovementJournal(file, System.getProperty("bizstock.journal.id", defaultId()));
+    } catch (IOException ex) {
+      throw new UncheckedIOException("No se pudo abrir el journal " + file, ex);
+    }
+  }
+
+  private static String defaultId() {
+    try {
+      return InetAddress.getLocalHost().getHostName();
+    } catch (IOException ex) {
+      return "local";
+    }
+  }
+
+  private MovementJournal(File file, String journalId) throws IOException {
+    this.journalId = journalId;
+    File dir = file.getAbsoluteFile().getParentFile();
+    if (dir != null && !dir.isDirectory() && !dir.mkdirs()) throw new IOException("No se pudo crear " + dir);
+
+    this.channel = FileChannel.open(file.toPath(),
+        StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    this.size = Math.max(1, SIZE_MB) * 1024 * 1024;
+    this.map  = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+
+    recover();
+
+    flusher = new Thread(this::flushLoop, "bizstock-journal-flusher");
+    drainer = new Thread(this::drainLoop, "bizstock-journal-drainer");
+    flusher.setDaemon(true);
+    drainer.setDaemon(true);
+    flusher.start();
+    drainer.start();
+  }
+
+  // ─── Arranque ──────────────────────────────────────────────────────────────
+
+  /**
+   * Ubica el final de lo escrito; todo lo leído se vuelve a pasar a la BD
+   * (saltando lo aplicado). A pending solo entra lo posterior al checkpoint.
+   */
+  private void recover() throws IOException {
+    long baseSeq = 1;
+    if (map.getInt(0) == MAGIC) {
+      baseSeq = map.getLong(8);
+    } else {
+      writeHeader(1);
+      map.putInt(HEADER, 0);
+      map.force();
+    }
+
+    int pos = HEADER;
+    long lastSeq = baseSeq - 1;
+    recovered = new ArrayList<>();
+    Entry e;
+    while ((e = read(pos, lastSeq)) != null) {
+      recovered.add(e);
+      lastSeq = e.seq();
+      pos = e.end();
+    }
+
+    // Si el archivo se perdió o se reemplazó, no reutilizar secuencias ya aplicadas
+    try {
+      long applied = checkpointDAO.findLastSeq(journalId);
+      lastSeq = Math.max(lastSeq, applied);
+      loadPending(applied);
+    } catch (Exception ex) {
+      System.err.println("[BizStock] Journal: no se pudo leer el checkpoint al abrir (" + ex.getMessage() + ")");
+    }
+
+    nextSeq    = lastSeq + 1;
+    writePos   = pos;
+    durablePos = pos;
+    durableSeq = lastSeq;
+    drainPos   = HEADER;
+  }
+
+  /** Pasa a pending lo leído al abrir que el checkpoint no cubre. Con lock (o desde el constructor). */
+  private void loadPending(long applied) {
+    pendingAfter = applied;
+    for (Entry e : recovered) {
+      if (e.seq() > applied) pending.merge(e.request().getProductId(), e.request().getDelta(), Integer::sum);
+    }
+    recovered = null;
+  }
+
+  /** Si al abrir no había BD, lee el checkpoint ahora; hasta entonces pending no es confiable. */
+  private void ensurePending() throws Exception {
+    lock.lock();
+    try {
+      if (pendingAfter < 0) loadPending(checkpointDAO.findLastSeq(journalId));
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void writeHeader(long baseSeq) {
+    map.putInt(0, MAGIC);
+    map.putInt(4, VERSION);
+    map.putLong(8, baseSeq);
+  }
+
+  // ─── Escritura ─────────────────────────────────────────────────────────────
+
+  /**
+   * Agrega el movimiento y vuelve cuando ya está en disco. Devuelve su número
+   * de secuencia. Si el archivo está lleno espera a que el drainer lo vacíe.
+   */
+  public long append(MovementRequest r) throws IOException, InterruptedException {
+    String note = r.getNote();
+    if (note != null && note.length() > MAX_NOTE_CHARS) {
+      throw new IllegalArgumentException("La nota no puede pasar de " + MAX_NOTE_CHARS + " caracteres.");
+    }
+    byte[] noteBytes = note == null ? null : note.getBytes(StandardCharsets.UTF_8);
+    int len = FIXED + 8 + (noteBytes == null ? 0 : noteBytes.length);
+    int recordSize = 8 + len;
+    if (HEADER + recordSize + 4 > size) throw new IllegalArgumentException("Movimiento demasiado grande para el journal.");
+
+    lock.lockInterruptibly();
+    try {
+      while (writePos + recordSize + 4 > size) {
+        checkOpen();
+        space.await();
+      }
+      checkOpen();
+
+      long seq = nextSeq++;
+      int pos = writePos;
+      ByteBuffer payload = map.duplicate();
+      payload.position(pos + 8);
+      payload.putLong(seq);
+      payload.putInt(r.getProductId());
+      payload.putInt(r.getUserId());
+      payload.put((byte) (TIMED | (r.isIn() ? 1 : 0)));
+      payload.putLong(r.getOccurredAt() != 0 ? r.getOccurredAt() : System.currentTimeMillis());
+      payload.putInt(r.getQuantity());
+      payload.putShort((short) (noteBytes == null ? -1 : noteBytes.length));
+      if (noteBytes != null) payload.put(noteBytes);
+
+      map.putInt(pos + 4, crc(pos + 8, len));
+      map.putInt(pos, len);
+      writePos = pos + recordSize;
+      map.putInt(writePos, 0);   // fin: el siguiente registro lo pisa
+
+      pending.merge(r.getProductId(), r.getDelta(), Integer::sum);
+      appendedCount.increment();
+      appended.signal();
+
+      while (durableSeq < seq) {
+        if (failure != null) throw new IOException("El journal no pudo escribir a disco.", failure);
+        durable.await();
+      }
+      return seq;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void checkOpen() throws IOException {
+    if (closed) throw new IllegalStateException("El journal está cerrado.");
+    if (failure != null) throw new IOException("El journal no pudo escribir a disco.", failure);
+  }
+
+  /** Un fsync por grupo: todo lo agregado mientras corría el anterior entra en el siguiente. */
+  private void flushLoop() {
+    while (true) {
+      int from;
+      int to;
+      long seq;
+      lock.lock();
+      try {
+        while (durablePos == writePos && !closed) appended.awaitUninterruptibly();
+        if (durablePos == writePos) return;
+        from = durablePos;
+        to   = writePos;
+        seq  = nextSeq - 1;
+      } finally {
+        lock.unlock();
+      }
+
+      IOException error = null;
+      try {
+        map.force(from, to + 4 - from);   // incluye la marca de fin
+        fsyncs.increment();
+      } catch (UncheckedIOException ex) {
+        error = ex.getCause();
+      }
+
+      lock.lock();
+      try {
+        if (error != null) {
+          failure = error;
+          System.err.println("[BizStock] Journal: falló el fsync (" + error.getMessage() + ")");
+        } else {
+          durablePos = to;
+          durableSeq = seq;
+        }
+        durable.signalAll();
+        space.signalAll();
+        if (error != null) return;
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  // ─── Paso a la BD ──────────────────────────────────────────────────────────
+
+  private void drainLoop() {
+    long lastSeq = 0;
+    while (true) {
+      int from;
+      int to;
+      lock.lock();
+      try {
+        while (drainPos == durablePos && !closed) durable.awaitUninterruptibly();
+        if (closed) return;
+        from = drainPos;
+        to   = durablePos;
+        if (from == HEADER) lastSeq = 0;
+      } finally {
+        lock.unlock();
+      }
+
+      List<Entry> batch = new ArrayList<>();
+      int pos = from;
+      Entry e;
+      while (batch.size() < DRAIN_BATCH && pos < to && (e = read(pos, lastSeq)) != null) {
+        batch.add(e);
+        lastSeq = e.seq();
+        pos = e.end();
+      }
+
+      if (batch.isEmpty()) {
+        System.err.println("[BizStock] Journal: registro ilegible en la posición " + pos + ", se detiene el paso a la BD");
+        return;
+      }
+      if (!applyWithRetry(batch)) return;
+      drained(batch, pos);
+    }
+  }
+
+  /** Reintenta mientras la BD no responda; false si el journal se cerró entretanto. */
+  private boolean applyWithRetry(List<Entry> batch) {
+    while (true) {
+      try {
+        apply(batch);
+        return true;
+      } catch (Exception ex) {
+        System.err.println("[BizStock] Journal: no se pudo aplicar un lote de " + batch.size()
+            + " movimiento(s), se reintenta (" + ex.getMessage() + ")");
+      }
+      lock.lock();
+      try {
+        if (closed) return false;
+        space.await(RETRY_MS, TimeUnit.MILLISECONDS);
+        if (closed) return false;
+      } catch (InterruptedException ex) {
+        return false;
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  /**
+   * Una transacción por lote. Las líneas inválidas no se pueden deshacer (la
+   * estación ya las dio por registradas): se guardan en
+   * movement_journal_rejected en la misma transacción, para conciliarlas.
+   */
+  private void apply(List<Entry> batch) throws Exception {
+    ensurePending();
+
+    try (Connection cn = DatabaseConnection.getConnection()) {
+      cn.setAutoCommit(false);
+
+      try {
+        long applied = checkpointDAO.lockLastSeq(cn, journalId);
+        List<Entry> todo = new ArrayList<>(batch.size());
+        for (Entry e : batch) if (e.seq() > applied) todo.add(e);
+
+        InventoryService.BatchPlan plan = null;
+        List<JournalRejectedDAO.Rejected> bad = new ArrayList<>();
+        if (!todo.isEmpty()) {
+          List<MovementRequest> lines = new ArrayList<>(todo.size());
+          for (Entry e : todo) lines.add(e.request());
+          plan = service.planBatch(cn, lines);
+          service.applyPlan(cn, plan);
+
+          for (int i = 0; i < todo.size(); i++) {
+            if (plan.lineError[i] != null) bad.add(new JournalRejectedDAO.Rejected(todo.get(i).seq(), todo.get(i).request(), plan.lineError[i]));
+          }
+          rejectedDAO.insert(cn, journalId, bad);
+          checkpointDAO.saveLastSeq(cn, journalId, todo.get(todo.size() - 1).seq());
+        }
+
+        commitAndPublish(cn, batch, plan);
+
+        for (JournalRejectedDAO.Rejected r : bad) {
+          rejected.increment();
+          System.err.println("[BizStock] Journal: movimiento " + r.seq() + " rechazado, queda en movement_journal_rejected: " + r.reason());
+        }
+      } catch (Exception ex) {
+        cn.rollback();
+        throw ex;
+      } finally {
+        cn.setAutoCommit(true);
+      }
+    }
+  }
+
+  /**
+   * Commit del lote; al terminar, en una sola sección crítica, lo quita de
+   * pending y actualiza el catálogo. Mientras el commit corre publishing es
+   * impar y currentQty() espera (append no). Si el commit falla el lote sigue
+   * pendiente: se reintenta y, si ya había entrado, el checkpoint lo salta.
+   */
+  private void commitAndPublish(Connection cn, List<Entry> batch, InventoryService.BatchPlan plan) throws Exception {
+    lock.lock();
+    try {
+      publishing++;
+    } finally {
+      lock.unlock();
+    }
+
+    boolean committed = false;
+    try {
+      cn.commit();
+      committed = true;
+    } finally {
+      lock.lock();
+      try {
+        if (committed) {
+          for (Entry e : batch) {
+            if (e.seq() <= pendingAfter) continue;   // nunca entró en pending
+            pending.computeIfPresent(e.request().getProductId(), (id, d) -> {
+              int left = d - e.request().getDelta();
+              return left == 0 ? null : left;
+            });
+          }
+          if (plan != null) plan.finalQty.forEach(ProductCatalog.get()::updateQuantity);
+        }
+        publishing++;
+        published.signalAll();
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  private void drained(List<Entry> batch, int pos) {
+    lock.lock();
+    try {
+      drainedCount.add(batch.size());
+      drainPos = pos;
+
+      // Todo aplicado: volver al principio antes de que el archivo se llene
+      if (drainPos == writePos && drainPos > size / 2) {
+        writeHeader(nextSeq);
+        map.putInt(HEADER, 0);
+        map.force(0, HEADER + 4);
+        writePos = durablePos = drainPos = HEADER;
+        space.signalAll();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  // ─── Lectura ───────────────────────────────────────────────────────────────
+
+  /** Registro en pos si es válido y su secuencia es mayor que afterSeq; si no, null (fin). */
+  private Entry read(int pos, long afterSeq) {
+    if (pos + 8 > size) return null;
+    int len = map.getInt(pos);
+    if (len < FIXED || pos + 8 + len > size) return null;
+    if (map.getInt(pos + 4) != crc(pos + 8, len)) return null;
+
+    ByteBuffer b = map.duplicate();
+    b.position(pos + 8);
+    long seq = b.getLong();
+    if (seq <= afterSeq) return null;
+    int productId = b.getInt();
+    int userId = b.getInt();
+    byte type = b.get();
+    boolean in = (type & 1) == 1;
+    long at = 0;
+    if ((type & TIMED) != 0) {
+      if (len < FIXED + 8) return null;
+      at = b.getLong();
+    }
+    int qty = b.getInt();
+    short noteLen = b.getShort();
+    String note = null;
+    if (noteLen >= 0) {
+      byte[] bytes = new byte[noteLen];
+      b.get(bytes);
+      note = new String(bytes, StandardCharsets.UTF_8);
+    }
+    MovementRequest r = in ? MovementRequest.in(productId, qty, userId, note)
+                           : MovementRequest.out(productId, qty, userId, note);
+    return new Entry(seq, at == 0 ? r : r.at(at), pos + 8 + len);
+  }
+
+  private int crc(int pos, int len) {
+    CRC32C crc = new CRC32C();
+    crc.update(map.slice(pos, len));
+    return (int) crc.getValue();
+  }
+
+  // ─── Estado ────────────────────────────────────────────────────────────────
+
+  /** Lee la cantidad de la BD; currentQty() la combina con pending. */
+  public interface QtyReader {
+    int read(int productId) throws Exception;
+  }
+
+  /** Cambio de cantidad del producto que está en el journal y todavía no en la BD. */
+  public int pendingDelta(int productId) {
+    lock.lock();
+    try {
+      return pending.getOrDefault(productId, 0);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Cantidad de la BD más pending, sin contar dos veces (ni perder) un lote
+   * que el drainer publica en medio: si un commit empezó o terminó entre las
+   * dos lecturas, se repite.
+   */
+  public int currentQty(int productId, QtyReader db) throws Exception {
+    ensurePending();
+    while (true) {
+      long seen;
+      int delta;
+      lock.lockInterruptibly();
+      try {
+        while ((publishing & 1) != 0) published.await();
+        seen = publishing;
+        delta = pending.getOrDefault(productId, 0);
+      } finally {
+        lock.unlock();
+      }
+
+      int qty = db.read(productId);
+
+      lock.lockInterruptibly();
+      try {
+        if (publishing == seen) return qty + delta;
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  public long getAppended() { return appendedCount.sum(); }
+  public long getFsyncs()   { return fsyncs.sum(); }
+  public long getDrained()  { return drainedCount.sum(); }
+  public long getRejected() { return rejected.sum(); }
+
+  /** Detiene los hilos. Lo que no llegó a la BD se aplica al volver a abrir. */
+  public void close() {
+    lock.lock();
+    try {
+      if (closed) return;
+      closed = true;
+      appended.signalAll();
+      durable.signalAll();
+      space.signalAll();
+    } finally {
+      lock.unlock();
+    }
+    try {
+      flusher.join(5000);
+      drainer.join(5000);
+      channel.close();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    } catch (IOException ex) {
+      System.err.println("[BizStock] Journal: error al cerrar (" + ex.getMessage() + ")");
+    }
+  }
+}
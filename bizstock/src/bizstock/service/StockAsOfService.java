@@ -0,0 +1,82 @@
+package bizstock.service;
+
+import bizstock.dao.InventoryMovementDAO;
+import bizstock.dao.ProductDAO;
+import bizstock.dao.StockRollupDAO;
+import bizstock.util.DatabaseConnection;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Stock de uno o varios productos en un instante pasado (auditorías).
+ *
+ * Parte de la cantidad al inicio de ese día según stock_daily y le aplica
+ * solo los movimientos del día hasta el instante pedido, así el costo no
+ * depende de cuánto historial haya. Todo se lee en una misma foto
+ * consistente; los lotes se consultan en bloques de ids, con dos consultas
+ * por bloque.
+ */
+public class StockAsOfService {
+
+  private static final int CHUNK = 500;
+
+  private final StockRollupDAO       rollupDAO   = new StockRollupDAO();
+  private final InventoryMovementDAO movementDAO = new InventoryMovementDAO();
+  private final ProductDAO           productDAO  = new ProductDAO();
+
+  /** Cantidad del producto en at (incluye los movimientos de ese mismo instante). */
+  public int getStockAsOf(int productId, LocalDateTime at) throws Exception {
+    Integer qty = getStockAsOf(List.of(productId), at).get(productId);
+    if (qty == null) throw new IllegalArgumentException("Producto no existe.");
+    return qty;
+  }
+
+  /** Cantidad en at de cada producto, por id. Los ids que no existen no aparecen. */
+  public Map<Integer, Integer> getStockAsOf(Collection<Integer> productIds, LocalDateTime at) throws Exception {
+    if (at == null) throw new IllegalArgumentException("Debe indicar la fecha.");
+    Map<Integer, Integer> result = new TreeMap<>();
+    if (productIds.isEmpty()) return result;
+
+    List<Integer> sorted = new ArrayList<>(new TreeSet<>(productIds));
+    Timestamp ts = Timestamp.valueOf(at);
+
+    try (Connection cn = DatabaseConnection.getConnection()) {
+      cn.setAutoCommit(false);
+
+      try {
+        try (Statement st = cn.createStatement()) {
+          st.execute("START TRANSACTION WITH CONSISTENT SNAPSHOT, READ ONLY");
+        }
+
+        for (int from = 0; from < sorted.size(); from += CHUNK) {
+          List<Integer> part = sorted.subList(from, Math.min(from + CHUNK, sorted.size()));
+          Map<Integer, Integer> start = rollupDAO.findQtyAtDayStart(cn, part, ts);
+          Map<Integer, Integer> delta = movementDAO.sumDeltaOfDayUntil(cn, part, ts);
+          start.forEach((id, qty) -> result.put(id, qty + delta.getOrDefault(id, 0)));
+        }
+
+        cn.commit();
+      } catch (Exception ex) {
+        cn.rollback();
+        throw ex;
+      } finally {
+        cn.setAutoCommit(true);
+      }
+    }
+    return result;
+  }
+
+  /** Cantidad en at de cada producto de la categoría (activos o no). */
+  public Map<Integer, Integer> getCategoryStockAsOf(int categoryId, LocalDateTime at) throws Exception {
+    return getStockAsOf(productDAO.findIdsByCategory(categoryId), at);
+  }
+}
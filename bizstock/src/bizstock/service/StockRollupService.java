@@ -0,0 +1,134 @@
+package bizstock.service;
+
+import bizstock.dao.StockRollupDAO;
+import bizstock.model.StockDay;
+import bizstock.util.DatabaseConnection;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resúmenes diarios de stock (tabla stock_daily) para reportes históricos:
+ * un reporte lee una fila por producto y día en vez de todos los movimientos.
+ * InventoryService los mantiene al registrar cada movimiento; rebuild() los
+ * vuelve a calcular desde inventory_movement.
+ */
+public class StockRollupService {
+
+  private static final int WRITE_CHUNK = 1000;   // filas por batch y commit en rebuild()
+
+  private final StockRollupDAO rollupDAO = new StockRollupDAO();
+
+  /** Días con movimientos de un producto entre from y to (inclusive). */
+  public List<StockDay> getDailyHistory(int productId, LocalDate from, LocalDate to) throws Exception {
+    if (from.isAfter(to)) throw new IllegalArgumentException("La fecha inicial es posterior a la final.");
+    return rollupDAO.findByProduct(productId, from, to);
+  }
+
+  /**
+   * Recalcula stock_daily completo en una sola pasada sobre los movimientos,
+   * sin cargarlos en memoria, y devuelve las filas escritas.
+   *
+   * Cada producto se recorre del movimiento más nuevo al más viejo partiendo
+   * de su cantidad actual (leída en la misma foto consistente), así el
+   * cierre de su último día coincide con el stock real aunque haya stock
+   * inicial sin movimiento de entrada. Es una tarea de mantenimiento: los
+   * movimientos registrados mientras corre pueden no quedar reflejados.
+   */
+  public int rebuild() throws Exception {
+    try (Connection read = DatabaseConnection.getConnection();
+         Connection write = DatabaseConnection.getConnection()) {
+      write.setAutoCommit(false);
+      read.setAutoCommit(false);
+
+      try {
+        rollupDAO.deleteAll(write);
+        write.commit();
+
+        try (Statement st = read.createStatement()) {
+          st.execute("START TRANSACTION WITH CONSISTENT SNAPSHOT, READ ONLY");
+        }
+        Replay replay = new Replay(rollupDAO.loadQuantities(read), write);
+        rollupDAO.streamMovementsNewestFirst(read, replay);
+        replay.finish();
+        read.commit();
+        return replay.written;
+      } catch (Exception ex) {
+        write.rollback();
+        read.rollback();
+        throw ex;
+      } finally {
+        write.setAutoCommit(true);
+        read.setAutoCommit(true);
+      }
+    }
+  }
+
+  /** Arma los días de cada producto deshaciendo sus movimientos hacia atrás. */
+  private final class Replay implements StockRollupDAO.MovementVisitor {
+    private final Map<Integer, Integer> currentQty;
+    private final Connection write;
+    private final List<StockDay> pending = new ArrayList<>(WRITE_CHUNK);
+    int written;
+
+    private int productId = -1;
+    private LocalDate day;       // día en curso, null si no hay
+    private int running;         // cantidad antes del último movimiento deshecho
+    private int closing;
+    private int totalIn;
+    private int totalOut;
+
+    Replay(Map<Integer, Integer> currentQty, Connection write) {
+      this.currentQty = currentQty;
+      this.write = write;
+    }
+
+    @Override
+    public void visit(int productId, LocalDate day, boolean in, int qty) throws SQLException {
+      if (productId != this.productId) {
+        closeDay();
+        this.productId = productId;
+        running = currentQty.getOrDefault(productId, 0);
+      }
+      if (!day.equals(this.day)) {
+        closeDay();
+        this.day = day;
+        closing = running;
+        totalIn = 0;
+        totalOut = 0;
+      }
+      if (in) {
+        totalIn += qty;
+        running -= qty;
+      } else {
+        totalOut += qty;
+        running += qty;
+      }
+    }
+
+    void finish() throws SQLException {
+      closeDay();
+      flush();
+    }
+
+    private void closeDay() throws SQLException {
+      if (day == null) return;
+      pending.add(new StockDay(productId, day, running, totalIn, totalOut, closing));
+      day = null;
+      if (pending.size() >= WRITE_CHUNK) flush();
+    }
+
+    private void flush() throws SQLException {
+      if (pending.isEmpty()) return;
+      rollupDAO.putAll(write, pending);
+      write.commit();
+      written += pending.size();
+      pending.clear();
+    }
+  }
+}
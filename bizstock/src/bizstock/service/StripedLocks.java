@@ -0,0 +1,117 @@
+package bizstock.service;
+
+import java.util.Collection;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Locks por producto dentro de la JVM, repartidos en un número fijo de franjas
+ * (un producto siempre cae en la misma).
+ *
+ * InventoryService toma las franjas de los productos antes de pedir una
+ * conexión: dos movimientos sobre el mismo producto esperan acá, sin ocupar
+ * una conexión del pool parada en un lock de InnoDB, y los de productos
+ * distintos siguen en paralelo. Varias franjas se toman siempre en orden
+ * ascendente, así dos lotes no se bloquean entre sí.
+ *
+ * Por franja se cuentan las adquisiciones, las que tuvieron que esperar y el
+ * tiempo total de espera.
+ */
+public final class StripedLocks {
+
+  /** Franjas tomadas; close() las suelta. */
+  public interface Held extends AutoCloseable {
+    @Override void close();
+  }
+
+  private static final Held NONE = () -> {};
+
+  private final ReentrantLock[] locks;
+  private final int mask;
+  private final AtomicLongArray acquisitions;
+  private final AtomicLongArray contended;
+  private final AtomicLongArray waitNanos;
+
+  /** stripes se redondea a la potencia de 2 siguiente. */
+  public StripedLocks(int stripes) {
+    int n = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+    if (stripes <= 1) n = 1;
+    locks = new ReentrantLock[n];
+    for (int i = 0; i < n; i++) locks[i] = new ReentrantLock();
+    mask = n - 1;
+    acquisitions = new AtomicLongArray(n);
+    contended    = new AtomicLongArray(n);
+    waitNanos    = new AtomicLongArray(n);
+  }
+
+  public int stripeOf(int productId) {
+    int h = productId * 0x9E3779B9;   // ids consecutivos quedan repartidos
+    return (h ^ (h >>> 16)) & mask;
+  }
+
+  public Held lock(int productId) {
+    int s = stripeOf(productId);
+    acquire(s);
+    return () -> locks[s].unlock();
+  }
+
+  /** Toma las franjas de todos los productos, en orden ascendente de franja. */
+  public Held lockAll(Collection<Integer> productIds) {
+    TreeSet<Integer> stripes = new TreeSet<>();
+    for (int id : productIds) stripes.add(stripeOf(id));
+    if (stripes.isEmpty()) return NONE;
+
+    int[] taken = new int[stripes.size()];
+    int n = 0;
+    try {
+      for (int s : stripes) {
+        acquire(s);
+        taken[n++] = s;
+      }
+    } catch (RuntimeException | Error ex) {
+      release(taken, n);
+      throw ex;
+    }
+    int count = n;
+    return () -> release(taken, count);
+  }
+
+  private void acquire(int s) {
+    ReentrantLock l = locks[s];
+    if (!l.tryLock()) {
+      long t0 = System.nanoTime();
+      l.lock();
+      contended.incrementAndGet(s);
+      waitNanos.addAndGet(s, System.nanoTime() - t0);
+    }
+    acquisitions.incrementAndGet(s);
+  }
+
+  private void release(int[] taken, int n) {
+    for (int i = n - 1; i >= 0; i--) locks[taken[i]].unlock();
+  }
+
+  // ─── Contadores ────────────────────────────────────────────────────────────
+
+  public int stripeCount() { return locks.length; }
+
+  public long getAcquisitions(int stripe) { return acquisitions.get(stripe); }
+  public long getContended(int stripe)    { return contended.get(stripe); }
+  public long getWaitNanos(int stripe)    { return waitNanos.get(stripe); }
+
+  /** Hilos esperando ahora mismo la franja (aproximado). */
+  public int getQueueLength(int stripe)   { return locks[stripe].getQueueLength(); }
+
+  public long getTotalContended() {
+    long sum = 0;
+    for (int i = 0; i < locks.length; i++) sum += contended.get(i);
+    return sum;
+  }
+
+  public long getTotalWaitNanos() {
+    long sum = 0;
+    for (int i = 0; i < locks.length; i++) sum += waitNanos.get(i);
+    return sum;
+  }
+}
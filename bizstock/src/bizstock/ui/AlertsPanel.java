@@ -1,14 +1,14 @@
 package bizstock.ui;
 
+import bizstock.dao.AlertSnapshot;
+import bizstock.dao.JournalRejectedDAO;
 import bizstock.dao.ProductDAO;
 import bizstock.model.Product;
 
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
-import javax.swing.table.DefaultTableCellRenderer;
-import javax.swing.table.DefaultTableModel;
 import java.awt.*;
-import java.util.List;
+import java.sql.Timestamp;
 
 /**
  * Panel de alertas de inventario.
@@ -17,20 +17,22 @@ import java.util.List;
 public class AlertsPanel extends JPanel {
 
     private final ProductDAO productDAO = new ProductDAO();
+    private final JournalRejectedDAO rejectedDAO = new JournalRejectedDAO();
 
-    private final DefaultTableModel criticalModel;
-    private final DefaultTableModel lowModel;
-    private final JLabel            lblStatus = new JLabel("Listo.");
-    private final JLabel            lblBadge  = new JLabel();
+    private final ColumnarTableModel<Product> criticalModel;
+    private final ColumnarTableModel<Product> lowModel;
+    private final JLabel           lblStatus = new JLabel("Listo.");
+    private final JLabel           lblBadge  = new JLabel();
+    private final JLabel           lblRejected = new JLabel();
+    private final BackgroundLoader loader    = new BackgroundLoader();
+    private Timestamp version;   // updated_at de la última carga; null = aún no se cargó
 
     public AlertsPanel() {
         setLayout(new BorderLayout(0, 0));
         setBorder(new EmptyBorder(8, 8, 8, 8));
 
-        String[] cols = {"ID", "Nombre", "Cantidad actual", "Nivel crítico (<=)", "Nivel reorden (<=)"};
-
-        criticalModel = buildModel(cols);
-        lowModel      = buildModel(cols);
+        criticalModel = buildModel();
+        lowModel      = buildModel();
 
         JTable criticalTable = styledTable(criticalModel, new Color(255, 220, 220));
         JTable lowTable      = styledTable(lowModel,      new Color(255, 243, 210));
@@ -43,6 +45,11 @@ public class AlertsPanel extends JPanel {
         add(buildToolbar(), BorderLayout.NORTH);
         add(subTabs,        BorderLayout.CENTER);
         add(buildStatusBar(), BorderLayout.SOUTH);
+
+        loader.setBusyListener(busy -> {
+            setCursor(busy ? Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR) : null);
+            if (busy) lblStatus.setText("Cargando…");
+        });
     }
 
     // ─── Toolbar ───────────────────────────────────────────────────────────────
@@ -60,15 +67,23 @@ public class AlertsPanel extends JPanel {
         btnRefresh.setFocusPainted(false);
         btnRefresh.setFont(new Font("Arial", Font.PLAIN, 12));
         btnRefresh.setBorder(new EmptyBorder(5, 12, 5, 12));
-        btnRefresh.addActionListener(e -> loadAlerts());
+        btnRefresh.addActionListener(e -> refreshAlerts());
 
         lblBadge.setFont(new Font("Arial", Font.BOLD, 12));
         lblBadge.setBorder(new EmptyBorder(0, 16, 0, 0));
 
+        lblRejected.setFont(new Font("Arial", Font.BOLD, 12));
+        lblRejected.setForeground(new Color(180, 40, 40));
+        lblRejected.setBorder(new EmptyBorder(0, 16, 0, 0));
+        lblRejected.setToolTipText("Salidas o entradas confirmadas en una estación que no se pudieron pasar a la BD. "
+            + "Revisarlas en la tabla movement_journal_rejected y marcar resolved_at.");
+        lblRejected.setVisible(false);
+
         JPanel left = new JPanel(new FlowLayout(FlowLayout.LEFT, 6, 0));
         left.setOpaque(false);
         left.add(btnRefresh);
         left.add(lblBadge);
+        left.add(lblRejected);
 
         JLabel hint = new JLabel("Los niveles se configuran por producto en el módulo Productos.");
         hint.setFont(new Font("Arial", Font.ITALIC, 11));
@@ -91,53 +106,107 @@ public class AlertsPanel extends JPanel {
 
     // ─── Cargar alertas ────────────────────────────────────────────────────────
     public void loadAlerts() {
-        try {
-            List<Product> critical = productDAO.findCriticalAlerts();
-            List<Product> low      = productDAO.findLowAlerts();
+        record Loaded(Timestamp version, ColumnarTableModel.Data critical, ColumnarTableModel.Data low) {}
+
+        loader.load("alertas", () -> {
+            Timestamp v = productDAO.currentVersion();   // antes de leer, como en ProductsPanel
+            AlertSnapshot alerts = productDAO.findAlerts();
+            return new Loaded(v, criticalModel.toColumns(alerts.getCritical()), lowModel.toColumns(alerts.getLow()));
+        }, loaded -> {
+            version = loaded.version();
+            criticalModel.setData(loaded.critical());
+            lowModel.setData(loaded.low());
+            showTotals();
+        }, this::showError);
+        loadRejected();
+    }
+
+    /** Movimientos del journal rechazados sin conciliar (de cualquier estación). */
+    private void loadRejected() {
+        loader.load("rechazados", rejectedDAO::countUnresolved, count -> {
+            lblRejected.setText("⚠ " + count + " movimiento(s) del journal sin aplicar");
+            lblRejected.setVisible(count > 0);
+        }, Exception::printStackTrace);   // el error de la BD ya lo muestra la carga de alertas
+    }
 
-            criticalModel.setRowCount(0);
-            for (Product p : critical) criticalModel.addRow(row(p));
+    /**
+     * Refresco incremental: solo los productos modificados desde la última
+     * carga, que se mueven entre las tablas de crítico y bajo según su cantidad.
+     */
+    private void refreshAlerts() {
+        Timestamp since = version;
+        if (since == null) { loadAlerts(); return; }
+
+        loader.load("alertas", () -> productDAO.findChangedSince(since), changes -> {
+            if (!changes.isComplete()) { loadAlerts(); return; }
+            version = changes.getVersion();
+            for (Product p : changes.getChanged()) merge(p);
+            showTotals();
+        }, this::showError);
+        loadRejected();
+    }
 
-            lowModel.setRowCount(0);
-            for (Product p : low) lowModel.addRow(row(p));
+    private void merge(Product p) {
+        int row = criticalModel.indexOf(0, p.getId());
+        if (row >= 0) criticalModel.removeRow(row);
+        row = lowModel.indexOf(0, p.getId());
+        if (row >= 0) lowModel.removeRow(row);
+        if (!p.isActive()) return;
 
-            int total = critical.size() + low.size();
-            lblStatus.setText("Actualizado – " + critical.size() + " críticos, " + low.size() + " bajos.");
+        if (AlertSnapshot.isCritical(p))  insertByQty(criticalModel, p);
+        else if (AlertSnapshot.isLow(p))  insertByQty(lowModel, p);
+    }
 
-            if (total == 0) {
-                lblBadge.setText("✅ Sin alertas activas");
-                lblBadge.setForeground(new Color(30, 130, 60));
-            } else {
-                lblBadge.setText("⚠ " + total + " productos requieren atención");
-                lblBadge.setForeground(new Color(180, 40, 40));
-            }
+    // Mismo orden que las consultas: cantidad, luego nombre
+    private void insertByQty(ColumnarTableModel<Product> model, Product p) {
+        model.insertSorted(p, r -> {
+            int c = Integer.compare(p.getQuantity(), model.getInt(r, 2));
+            if (c == 0) c = String.CASE_INSENSITIVE_ORDER.compare(p.getName(), model.getText(r, 1));
+            return c != 0 ? c : Integer.compare(p.getId(), model.getInt(r, 0));
+        });
+    }
 
-        } catch (Exception ex) {
-            ex.printStackTrace();
-            JOptionPane.showMessageDialog(this, ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+    private void showTotals() {
+        int critical = criticalModel.getRowCount();
+        int low      = lowModel.getRowCount();
+        int total    = critical + low;
+        lblStatus.setText("Actualizado – " + critical + " críticos, " + low + " bajos.");
+
+        if (total == 0) {
+            lblBadge.setText("✅ Sin alertas activas");
+            lblBadge.setForeground(new Color(30, 130, 60));
+        } else {
+            lblBadge.setText("⚠ " + total + " productos requieren atención");
+            lblBadge.setForeground(new Color(180, 40, 40));
         }
     }
 
-    // ─── Helpers ──────────────────────────────────────────────────────────────
-    private Object[] row(Product p) {
-        return new Object[]{ p.getId(), p.getName(), p.getQuantity(), p.getCriticalLevel(), p.getReorderLevel() };
+    private void showError(Exception ex) {
+        ex.printStackTrace();
+        lblStatus.setText("Error cargando alertas.");
+        JOptionPane.showMessageDialog(this, ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
     }
 
-    private DefaultTableModel buildModel(String[] cols) {
-        return new DefaultTableModel(cols, 0) {
-            @Override public boolean isCellEditable(int r, int c) { return false; }
-        };
+    // ─── Helpers ──────────────────────────────────────────────────────────────
+    private ColumnarTableModel<Product> buildModel() {
+        return new ColumnarTableModel<>(
+            ColumnarTableModel.intColumn("ID",                  Product::getId),
+            ColumnarTableModel.textColumn("Nombre",             Product::getName),
+            ColumnarTableModel.intColumn("Cantidad actual",     Product::getQuantity),
+            ColumnarTableModel.intColumn("Nivel crítico (<=)",  Product::getCriticalLevel),
+            ColumnarTableModel.intColumn("Nivel reorden (<=)",  Product::getReorderLevel)
+        );
     }
 
-    private JTable styledTable(DefaultTableModel model, Color rowColor) {
-        JTable t = new JTable(model);
+    private JTable styledTable(ColumnarTableModel<Product> model, Color rowColor) {
+        JTable t = new ColumnarTable(model);
         t.setRowHeight(24);
         t.setFont(new Font("Arial", Font.PLAIN, 12));
         t.getTableHeader().setFont(new Font("Arial", Font.BOLD, 12));
         t.setGridColor(new Color(220, 230, 240));
 
         // Colorear todas las filas con el color de alerta
-        t.setDefaultRenderer(Object.class, new DefaultTableCellRenderer() {
+        t.setDefaultRenderer(Object.class, new NumberCellRenderer() {
             @Override
             public Component getTableCellRendererComponent(JTable table, Object value,
                     boolean isSelected, boolean hasFocus, int row, int col) {
@@ -0,0 +1,158 @@
+package bizstock.ui;
+
+import javax.swing.SwingUtilities;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Carga de datos fuera del Event Dispatch Thread.
+ *
+ * Cada panel tiene su propio BackgroundLoader. Las cargas se identifican por
+ * una clave ("productos", "historial", ...): pedir otra carga con la misma
+ * clave cancela la anterior y su resultado, si llega tarde, se descarta
+ * (token de generación). Los resultados y errores siempre se aplican en el EDT.
+ */
+public final class BackgroundLoader {
+
+    /** Trabajo que corre fuera del EDT (JDBC, PDF, ...). */
+    public interface Task<T> {
+        T call() throws Exception;
+    }
+
+    /** Se llama en el EDT cuando cambia de "sin cargas" a "cargando" y viceversa. */
+    public interface BusyListener {
+        void busyChanged(boolean busy);
+    }
+
+    private static final ExecutorService EXECUTOR = createExecutor();
+
+    private final Map<String, Slot> slots = new HashMap<>();   // solo se toca en el EDT
+    private final AtomicInteger     inFlight = new AtomicInteger();
+    private BusyListener busyListener;
+
+    private static final class Slot {
+        long generation;
+        Job  running;
+    }
+
+    public void setBusyListener(BusyListener listener) { this.busyListener = listener; }
+
+    /**
+     * Lanza una carga que reemplaza a cualquier otra con la misma clave.
+     * Debe llamarse desde el EDT.
+     */
+    public <T> void load(String key, Task<T> task, Consumer<T> onDone, Consumer<Exception> onError) {
+        Slot slot = slots.computeIfAbsent(key, k -> new Slot());
+        if (slot.running != null) slot.running.cancel();
+
+        long generation = ++slot.generation;
+        slot.running = start(task,
+            result -> { if (slot.generation == generation) onDone.accept(result); },
+            error  -> { if (slot.generation == generation) onError.accept(error); });
+    }
+
+    /** Lanza un trabajo que no se cancela ni se reemplaza (por ejemplo, registrar un movimiento). */
+    public <T> void submit(Task<T> task, Consumer<T> onDone, Consumer<Exception> onError) {
+        start(task, onDone, onError);
+    }
+
+    /** Descarta todas las cargas en curso (sus resultados ya no se aplicarán). */
+    public void cancelAll() {
+        for (Slot slot : slots.values()) {
+            slot.generation++;
+            if (slot.running != null) slot.running.cancel();
+        }
+    }
+
+    private <T> Job start(Task<T> task, Consumer<T> onDone, Consumer<Exception> onError) {
+        if (inFlight.getAndIncrement() == 0) fireBusy(true);
+
+        Job job = new Job();
+        job.body = () -> {
+            T result = null;
+            Exception error = null;
+            if (!job.cancelled) {
+                try {
+                    result = task.call();
+                } catch (Exception ex) {
+                    error = ex;
+                }
+            }
+
+            final T r = result;
+            final Exception e = error;
+            SwingUtilities.invokeLater(() -> {
+                try {
+                    if (job.cancelled) return;
+                    if (e == null) onDone.accept(r);
+                    else           onError.accept(e);
+                } finally {
+                    if (inFlight.decrementAndGet() == 0) fireBusy(false);
+                }
+            });
+        };
+        EXECUTOR.execute(job);
+        return job;
+    }
+
+    /**
+     * Trabajo cancelable. Siempre llega a ejecutarse (para llevar bien la cuenta
+     * de cargas en curso), pero si se canceló antes no llama a la tarea; si ya
+     * estaba corriendo se interrumpe su hilo.
+     */
+    private static final class Job implements Runnable {
+        Runnable body;
+        volatile boolean cancelled;
+        private Thread runner;
+
+        synchronized void cancel() {
+            cancelled = true;
+            if (runner != null) runner.interrupt();
+        }
+
+        @Override
+        public void run() {
+            synchronized (this) { runner = Thread.currentThread(); }
+            try {
+                body.run();
+            } finally {
+                synchronized (this) { runner = null; }
+                Thread.interrupted();   // no dejar la interrupción al siguiente trabajo del hilo
+            }
+        }
+    }
+
+    private void fireBusy(boolean busy) {
+        if (busyListener == null) return;
+        if (SwingUtilities.isEventDispatchThread()) busyListener.busyChanged(busy);
+        else SwingUtilities.invokeLater(() -> busyListener.busyChanged(busy));
+    }
+
+    // ─── Executor ─────────────────────────────────────────────────────────────
+
+    /**
+     * Hilos virtuales si la JVM los tiene (Java 21+) y no se desactivaron con
+     * -Dbizstock.ui.virtualThreads=false; si no, un pool fijo de hilos daemon.
+     */
+    private static ExecutorService createExecutor() {
+        if (Boolean.parseBoolean(System.getProperty("bizstock.ui.virtualThreads", "true"))) {
+            try {
+                return (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException ex) {
+                // Java 17: no hay hilos virtuales
+            }
+        }
+
+        AtomicInteger n = new AtomicInteger();
+        return Executors.newFixedThreadPool(Integer.getInteger("bizstock.ui.loaderThreads", 4), r -> {
+            Thread t = new Thread(r, "bizstock-loader-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+}
@@ -0,0 +1,43 @@
+package bizstock.ui;
+
+import javax.swing.JTable;
+import javax.swing.table.TableCellRenderer;
+import javax.swing.table.TableModel;
+import java.awt.Component;
+
+/**
+ * JTable para ColumnarTableModel y WindowedTableModel. Las columnas int y de
+ * centavos se pintan con un NumberCellRenderer que recibe el valor primitivo
+ * del modelo: JTable.prepareRenderer llamaría a getValueAt, que crea un
+ * Integer o un BigDecimal por celda en cada repintado.
+ */
+public class ColumnarTable extends JTable {
+
+    public ColumnarTable(TableModel model) {
+        super(model);
+        setDefaultRenderer(Object.class, new NumberCellRenderer());
+    }
+
+    @Override
+    public Component prepareRenderer(TableCellRenderer renderer, int row, int column) {
+        if (renderer instanceof NumberCellRenderer numbers
+                && getModel() instanceof NumericCells cells) {
+            int col = convertColumnIndexToModel(column);
+            NumericCells.NumberKind kind = cells.numberKind(col);
+            if (kind != null) {
+                // Igual que JTable.prepareRenderer
+                boolean isSelected = false;
+                boolean hasFocus = false;
+                if (!isPaintingForPrint()) {
+                    isSelected = isCellSelected(row, column);
+                    hasFocus = selectionModel.getLeadSelectionIndex() == row
+                            && columnModel.getSelectionModel().getLeadSelectionIndex() == column
+                            && isFocusOwner();
+                }
+                long value = cells.getNumber(convertRowIndexToModel(row), col);
+                return numbers.render(this, value, kind, isSelected, hasFocus, row, column);
+            }
+        }
+        return super.prepareRenderer(renderer, row, column);
+    }
+}
@@ -0,0 +1,282 @@
+package bizstock.ui;
+
+import javax.swing.table.AbstractTableModel;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * TableModel de solo lectura que guarda cada columna en un arreglo primitivo
+ * (int[], centavos en long[], String[]) en vez de un Vector de Object[] por fila.
+ *
+ * Los datos se convierten a columnas con {@link #toColumns(List)}, que puede
+ * correr fuera del EDT, y se cambian de una vez con {@link #setData(Data)}:
+ * un solo fireTableDataChanged por carga, no uno por fila.
+ *
+ * Al pintar, {@link ColumnarTable} lee las columnas int y de centavos con
+ * {@link #getNumber(int, int)}; getValueAt (Integer, BigDecimal) queda para
+ * quien lee celdas sueltas.
+ */
+public final class ColumnarTableModel<T> extends AbstractTableModel implements NumericCells {
+
+    /** Definición de una columna: nombre y cómo leer el valor de un elemento. */
+    public abstract static class Column<T> {
+        final String name;
+
+        Column(String name) { this.name = name; }
+
+        abstract Object newArray(int size);
+        abstract Object grow(Object array, int size);
+        abstract void   set(Object array, int row, T item);
+        abstract Object get(Object array, int row);
+
+        NumberKind kind()                     { return null; }
+        long       number(Object a, int row)  { throw new UnsupportedOperationException(name); }
+    }
+
+    public static <T> Column<T> intColumn(String name, ToIntFunction<T> getter) {
+        return new IntColumn<>(name, getter);
+    }
+
+    /** Importe con 2 decimales guardado en centavos; null se conserva. */
+    public static <T> Column<T> priceColumn(String name, Function<T, BigDecimal> getter) {
+        return new CentsColumn<>(name, getter);
+    }
+
+    public static <T> Column<T> textColumn(String name, Function<T, String> getter) {
+        return new TextColumn<>(name, getter);
+    }
+
+    /** Compara el elemento a insertar con una fila del modelo (negativo = va antes). */
+    public interface RowOrder {
+        int compareToRow(int row);
+    }
+
+    /** Columnas ya armadas, listas para {@link #setData(Data)} (el modelo se queda con los arreglos). */
+    public static final class Data {
+        final int      rows;
+        final Object[] arrays;
+
+        Data(int rows, Object[] arrays) {
+            this.rows = rows;
+            this.arrays = arrays;
+        }
+
+        public int getRowCount() { return rows; }
+    }
+
+    private final List<Column<T>> columns;
+    private Object[] arrays;
+    private int      rowCount;
+    private int      capacity;     // largo de los arreglos (>= rowCount después de append)
+
+    @SafeVarargs
+    public ColumnarTableModel(Column<T>... columns) {
+        List<Column<T>> list = new ArrayList<>(columns.length);
+        for (Column<T> col : columns) list.add(col);
+        this.columns = list;
+        this.arrays  = emptyArrays(0);
+    }
+
+    // ─── Carga ────────────────────────────────────────────────────────────────
+
+    /** Convierte la lista a columnas. No toca el modelo: se puede llamar desde cualquier hilo. */
+    public Data toColumns(List<? extends T> items) {
+        int n = items.size();
+        Object[] fresh = emptyArrays(n);
+        for (int c = 0; c < columns.size(); c++) {
+            Column<T> col = columns.get(c);
+            Object array = fresh[c];
+            for (int r = 0; r < n; r++) col.set(array, r, items.get(r));
+        }
+        return new Data(n, fresh);
+    }
+
+    /** Reemplaza todo el contenido. Debe llamarse desde el EDT. */
+    public void setData(Data data) {
+        arrays   = data.arrays;
+        rowCount = data.rows;
+        capacity = data.rows;
+        fireTableDataChanged();
+    }
+
+    public void setAll(List<? extends T> items) {
+        setData(toColumns(items));
+    }
+
+    /** Agrega filas al final (por ejemplo, la siguiente página) con un solo evento. */
+    public void append(List<? extends T> items) {
+        if (items.isEmpty()) return;
+        int first = rowCount;
+        int needed = rowCount + items.size();
+        ensureCapacity(needed);
+        for (int c = 0; c < columns.size(); c++) {
+            Column<T> col = columns.get(c);
+            for (int i = 0; i < items.size(); i++) col.set(arrays[c], first + i, items.get(i));
+        }
+        rowCount = needed;
+        fireTableRowsInserted(first, needed - 1);
+    }
+
+    // ─── Cambios puntuales (refresco incremental) ─────────────────────────────
+
+    /** Primera fila cuyo valor en la columna int col es value, o -1. */
+    public int indexOf(int col, int value) {
+        int[] a = (int[]) arrays[col];
+        for (int r = 0; r < rowCount; r++) if (a[r] == value) return r;
+        return -1;
+    }
+
+    public void removeRow(int row) {
+        checkRow(row);
+        int tail = rowCount - row - 1;
+        for (Object a : arrays) {
+            System.arraycopy(a, row + 1, a, row, tail);
+            if (a instanceof Object[]) ((Object[]) a)[rowCount - 1] = null;
+        }
+        rowCount--;
+        fireTableRowsDeleted(row, row);
+    }
+
+    /**
+     * Inserta item en su lugar dentro de filas ya ordenadas (búsqueda binaria
+     * con order) y devuelve la fila donde quedó.
+     */
+    public int insertSorted(T item, RowOrder order) {
+        int lo = 0, hi = rowCount;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (order.compareToRow(mid) < 0) hi = mid;
+            else lo = mid + 1;
+        }
+        ensureCapacity(rowCount + 1);
+        for (int c = 0; c < columns.size(); c++) {
+            System.arraycopy(arrays[c], lo, arrays[c], lo + 1, rowCount - lo);
+            columns.get(c).set(arrays[c], lo, item);
+        }
+        rowCount++;
+        fireTableRowsInserted(lo, lo);
+        return lo;
+    }
+
+    public void clear() {
+        if (rowCount == 0) return;
+        arrays   = emptyArrays(0);
+        rowCount = 0;
+        capacity = 0;
+        fireTableDataChanged();
+    }
+
+    // ─── Lectura ──────────────────────────────────────────────────────────────
+
+    @Override public int getRowCount()    { return rowCount; }
+    @Override public int getColumnCount() { return columns.size(); }
+    @Override public String getColumnName(int col) { return columns.get(col).name; }
+
+    @Override
+    public Object getValueAt(int row, int col) {
+        checkRow(row);
+        return columns.get(col).get(arrays[col], row);
+    }
+
+    @Override
+    public NumberKind numberKind(int col) { return columns.get(col).kind(); }
+
+    @Override
+    public long getNumber(int row, int col) {
+        checkRow(row);
+        return columns.get(col).number(arrays[col], row);
+    }
+
+    /** Valor de una columna int sin pasar por Integer. */
+    public int getInt(int row, int col) {
+        checkRow(row);
+        return ((int[]) arrays[col])[row];
+    }
+
+    public String getText(int row, int col) {
+        checkRow(row);
+        return ((String[]) arrays[col])[row];
+    }
+
+    /** Lee una celda de un Data que no está cargado en este modelo (ventanas de WindowedTableModel). */
+    Object valueAt(Data data, int row, int col) {
+        return columns.get(col).get(data.arrays[col], row);
+    }
+
+    long numberAt(Data data, int row, int col) {
+        return columns.get(col).number(data.arrays[col], row);
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= rowCount) throw new IndexOutOfBoundsException("Fila " + row);
+    }
+
+    private void ensureCapacity(int needed) {
+        if (needed <= capacity) return;
+        capacity = Math.max(needed, capacity * 2);
+        for (int c = 0; c < columns.size(); c++) arrays[c] = columns.get(c).grow(arrays[c], capacity);
+    }
+
+    private Object[] emptyArrays(int size) {
+        Object[] a = new Object[columns.size()];
+        for (int c = 0; c < columns.size(); c++) a[c] = columns.get(c).newArray(size);
+        return a;
+    }
+
+    // ─── Tipos de columna ─────────────────────────────────────────────────────
+
+    private static final class IntColumn<T> extends Column<T> {
+        private final ToIntFunction<T> getter;
+
+        IntColumn(String name, ToIntFunction<T> getter) { super(name); this.getter = getter; }
+
+        @Override Object newArray(int size)            { return new int[size]; }
+        @Override Object grow(Object a, int size)      { return Arrays.copyOf((int[]) a, size); }
+        @Override void   set(Object a, int row, T item) { ((int[]) a)[row] = getter.applyAsInt(item); }
+        @Override Object get(Object a, int row)        { return ((int[]) a)[row]; }
+        @Override NumberKind kind()                    { return NumberKind.INT; }
+        @Override long   number(Object a, int row)     { return ((int[]) a)[row]; }
+    }
+
+    private static final class CentsColumn<T> extends Column<T> {
+        private static final long NULL = NO_VALUE;
+        private final Function<T, BigDecimal> getter;
+
+        CentsColumn(String name, Function<T, BigDecimal> getter) { super(name); this.getter = getter; }
+
+        @Override Object newArray(int size)       { return new long[size]; }
+        @Override Object grow(Object a, int size) { return Arrays.copyOf((long[]) a, size); }
+
+        @Override
+        void set(Object a, int row, T item) {
+            BigDecimal v = getter.apply(item);
+            ((long[]) a)[row] = v == null ? NULL
+                              : v.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+        }
+
+        @Override
+        Object get(Object a, int row) {
+            long cents = ((long[]) a)[row];
+            return cents == NULL ? null : BigDecimal.valueOf(cents, 2);
+        }
+
+        @Override NumberKind kind()                 { return NumberKind.CENTS; }
+        @Override long   number(Object a, int row) { return ((long[]) a)[row]; }
+    }
+
+    private static final class TextColumn<T> extends Column<T> {
+        private final Function<T, String> getter;
+
+        TextColumn(String name, Function<T, String> getter) { super(name); this.getter = getter; }
+
+        @Override Object newArray(int size)            { return new String[size]; }
+        @Override Object grow(Object a, int size)      { return Arrays.copyOf((String[]) a, size); }
+        @Override void   set(Object a, int row, T item) { ((String[]) a)[row] = getter.apply(item); }
+        @Override Object get(Object a, int row)        { return ((String[]) a)[row]; }
+    }
+}
@@ -184,6 +184,11 @@ public class MainFrame extends JFrame {
         private final MainFrame    owner;
         private final JLabel       lblUser  = new JLabel();
         private final JTabbedPane  tabs     = new JTabbedPane(JTabbedPane.LEFT);
+        private final JLabel       lblPdf   = new JLabel();
+        private final BackgroundLoader loader = new BackgroundLoader();
+
+        private JButton btnPdfInv;
+        private JButton btnPdfReorder;
 
         private ProductsPanel  productsPanel;
         private MovementsPanel movementsPanel;
@@ -203,7 +208,7 @@ public class MainFrame extends JFrame {
             // Cargar datos frescos al entrar
             productsPanel.loadProducts();
             alertsPanel.loadAlerts();
-            movementsPanel.loadProducts();
+            movementsPanel.reset();
             tabs.setSelectedIndex(0);
         }
 
@@ -239,8 +244,8 @@ public class MainFrame extends JFrame {
             JPanel right = new JPanel(new FlowLayout(FlowLayout.RIGHT, 8, 0));
             right.setOpaque(false);
 
-            JButton btnPdfInv    = makeBarButton("📄 PDF Inventario");
-            JButton btnPdfReorder= makeBarButton("📄 PDF Reorden");
+            btnPdfInv            = makeBarButton("📄 PDF Inventario");
+            btnPdfReorder        = makeBarButton("📄 PDF Reorden");
             JButton btnLogout    = makeBarButton("⬅ Salir");
             btnLogout.setForeground(new Color(255, 180, 180));
 
@@ -248,6 +253,10 @@ public class MainFrame extends JFrame {
             btnPdfReorder.addActionListener(e -> exportPdf(true));
             btnLogout.addActionListener(e -> owner.showLogin());
 
+            lblPdf.setFont(new Font("Arial", Font.PLAIN, 11));
+            lblPdf.setForeground(new Color(200, 220, 255));
+
+            right.add(lblPdf);
             right.add(lblUser);
             right.add(btnPdfInv);
             right.add(btnPdfReorder);
@@ -270,17 +279,39 @@ public class MainFrame extends JFrame {
             return b;
         }
 
+        /** Genera el PDF en segundo plano; la ventana sigue respondiendo mientras tanto. */
         private void exportPdf(boolean reorder) {
-            try {
-                String path = reorder ? PdfExporter.exportReorder() : PdfExporter.exportInventory();
-                JOptionPane.showMessageDialog(owner,
-                    "✅ PDF generado:\n" + path, "Exportación exitosa",
-                    JOptionPane.INFORMATION_MESSAGE);
-            } catch (Exception ex) {
-                JOptionPane.showMessageDialog(owner,
-                    "Error al generar PDF:\n" + ex.getMessage(), "Error",
-                    JOptionPane.ERROR_MESSAGE);
-            }
+            setPdfButtonsEnabled(false);
+            lblPdf.setText("Generando PDF…");
+
+            // Se avisa por página: basta con refrescar la etiqueta cada 10
+            PdfExporter.Progress progress = (rows, pages) -> {
+                if (pages % 10 != 0) return;
+                SwingUtilities.invokeLater(() ->
+                    lblPdf.setText("Generando PDF… " + rows + " filas, " + pages + " páginas"));
+            };
+
+            loader.submit(() -> reorder ? PdfExporter.exportReorder(progress)
+                                        : PdfExporter.exportInventory(progress),
+                path -> {
+                    setPdfButtonsEnabled(true);
+                    lblPdf.setText("");
+                    JOptionPane.showMessageDialog(owner,
+                        "✅ PDF generado:\n" + path, "Exportación exitosa",
+                        JOptionPane.INFORMATION_MESSAGE);
+                },
+                ex -> {
+                    setPdfButtonsEnabled(true);
+                    lblPdf.setText("");
+                    JOptionPane.showMessageDialog(owner,
+                        "Error al generar PDF:\n" + ex.getMessage(), "Error",
+                        JOptionPane.ERROR_MESSAGE);
+                });
+        }
+
+        private void setPdfButtonsEnabled(boolean enabled) {
+            btnPdfInv.setEnabled(enabled);
+            btnPdfReorder.setEnabled(enabled);
         }
     }
 }
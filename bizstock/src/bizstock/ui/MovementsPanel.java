@@ -1,6 +1,7 @@
 package bizstock.ui;
 
 import bizstock.dao.InventoryMovementDAO;
+import bizstock.dao.Page;
 import bizstock.dao.ProductDAO;
 import bizstock.model.InventoryMovement;
 import bizstock.model.Product;
@@ -8,9 +9,7 @@ import bizstock.service.InventoryService;
 
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
-import javax.swing.table.DefaultTableModel;
 import java.awt.*;
-import java.util.List;
 
 /**
  * Panel de movimientos de inventario (entradas / salidas).
@@ -22,14 +21,22 @@ public class MovementsPanel extends JPanel {
     private final InventoryMovementDAO movementDAO = new InventoryMovementDAO();
     private final InventoryService     service     = new InventoryService();
 
-    private final JComboBox<ProductItem> cboProducts  = new JComboBox<>();
-    private final JTextField             txtQty       = new JTextField(8);
-    private final JTextField             txtNote      = new JTextField(26);
-    private final JLabel                 lblAvailable = new JLabel("—");
+    private final ProductPicker picker       = new ProductPicker(productDAO);
+    private final JTextField    txtQty       = new JTextField(8);
+    private final JTextField    txtNote      = new JTextField(26);
+    private final JLabel        lblAvailable = new JLabel("—");
 
-    private final DefaultTableModel historyModel;
+    private final ColumnarTableModel<InventoryMovement> historyModel;
     private final JTable            historyTable;
     private final JLabel            lblStatus = new JLabel("Listo.");
+    private final JButton           btnMore   = new JButton("Ver más antiguos");
+    private final BackgroundLoader  loader    = new BackgroundLoader();
+
+    private static final int HISTORY_PAGE = 50;
+    private String historyToken;     // cursor de la siguiente página del historial
+
+    private JButton btnIn;
+    private JButton btnOut;
 
     private int currentUserId = 1;
 
@@ -37,11 +44,14 @@ public class MovementsPanel extends JPanel {
         setLayout(new BorderLayout(0, 0));
         setBorder(new EmptyBorder(8, 8, 8, 8));
 
-        String[] cols = {"Fecha / Hora", "Tipo", "Cantidad", "Usuario ID", "Nota"};
-        historyModel = new DefaultTableModel(cols, 0) {
-            @Override public boolean isCellEditable(int r, int c) { return false; }
-        };
-        historyTable = new JTable(historyModel);
+        historyModel = new ColumnarTableModel<>(
+            ColumnarTableModel.textColumn("Fecha / Hora", m -> m.getCreatedAt() != null ? m.getCreatedAt().toString().replace('T', ' ') : ""),
+            ColumnarTableModel.textColumn("Tipo",         InventoryMovement::getMovementType),
+            ColumnarTableModel.intColumn("Cantidad",      InventoryMovement::getQuantity),
+            ColumnarTableModel.intColumn("Usuario ID",    InventoryMovement::getUserId),
+            ColumnarTableModel.textColumn("Nota",         InventoryMovement::getNote)
+        );
+        historyTable = new ColumnarTable(historyModel);
         historyTable.setRowHeight(22);
         historyTable.setFont(new Font("Arial", Font.PLAIN, 12));
         historyTable.getTableHeader().setFont(new Font("Arial", Font.BOLD, 12));
@@ -51,22 +61,23 @@ public class MovementsPanel extends JPanel {
         add(buildHistoryPanel(),         BorderLayout.CENTER);
         add(buildStatusBar(),            BorderLayout.SOUTH);
 
-        // Al cambiar de producto, refresca disponible e historial
-        cboProducts.addActionListener(e -> refreshAll());
+        // Disponible e historial solo se consultan al elegir un producto
+        picker.setChoiceListener(p -> refreshAll());
+
+        loader.setBusyListener(busy -> {
+            setCursor(busy ? Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR) : null);
+            if (busy) lblStatus.setText("Cargando…");
+            else if (lblStatus.getText().equals("Cargando…")) lblStatus.setText("Listo.");
+        });
     }
 
     public void setCurrentUserId(int id) { this.currentUserId = id; }
 
-    // ─── Cargar productos en el combo ─────────────────────────────────────────
-    public void loadProducts() {
-        try {
-            cboProducts.removeAllItems();
-            List<Product> list = productDAO.findAllActive();
-            for (Product p : list) cboProducts.addItem(new ProductItem(p.getId(), p.getName()));
-            if (cboProducts.getItemCount() > 0) cboProducts.setSelectedIndex(0);
-        } catch (Exception ex) {
-            showError(ex);
-        }
+    // ─── Estado inicial ───────────────────────────────────────────────────────
+    /** Al iniciar sesión: sin producto elegido (el selector busca bajo demanda). */
+    public void reset() {
+        picker.clear();
+        refreshAll();
     }
 
     // ─── Panel de formulario (arriba) ─────────────────────────────────────────
@@ -87,7 +98,7 @@ public class MovementsPanel extends JPanel {
         c.gridx = 0; c.gridy = 0;
         form.add(label("Producto:"), c);
         c.gridx = 1; c.fill = GridBagConstraints.HORIZONTAL; c.weightx = 1.0;
-        form.add(cboProducts, c);
+        form.add(picker, c);
         c.gridx = 2; c.fill = GridBagConstraints.NONE; c.weightx = 0;
         JPanel dispPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 4, 0));
         dispPanel.setOpaque(false);
@@ -109,13 +120,13 @@ public class MovementsPanel extends JPanel {
         form.add(txtNote, c);
 
         // Botones
-        JButton btnIn      = actionBtn("⬆ Entrada",  new Color(40, 140, 70));
-        JButton btnOut     = actionBtn("⬇ Salida",   new Color(180, 40, 40));
+        btnIn  = actionBtn("⬆ Entrada",  new Color(40, 140, 70));
+        btnOut = actionBtn("⬇ Salida",   new Color(180, 40, 40));
         JButton btnRefresh = actionBtn("🔄 Refrescar", new Color(46, 116, 181));
 
         btnIn.addActionListener(e -> doMovement(true));
         btnOut.addActionListener(e -> doMovement(false));
-        btnRefresh.addActionListener(e -> { loadProducts(); refreshAll(); });
+        btnRefresh.addActionListener(e -> refreshAll());
 
         JPanel btnBar = new JPanel(new FlowLayout(FlowLayout.LEFT, 8, 6));
         btnBar.setOpaque(false);
@@ -132,11 +143,20 @@ public class MovementsPanel extends JPanel {
     private JPanel buildHistoryPanel() {
         JPanel p = new JPanel(new BorderLayout(0, 4));
         p.setBorder(new EmptyBorder(8, 0, 0, 0));
-        JLabel title = new JLabel("Historial de movimientos (últimos 50)");
+        JLabel title = new JLabel("Historial de movimientos");
         title.setFont(new Font("Arial", Font.BOLD, 12));
         title.setForeground(new Color(60, 80, 120));
+
+        btnMore.setFont(new Font("Arial", Font.PLAIN, 11));
+        btnMore.setFocusPainted(false);
+        btnMore.setEnabled(false);
+        btnMore.addActionListener(e -> loadMoreHistory());
+        JPanel more = new JPanel(new FlowLayout(FlowLayout.RIGHT, 0, 2));
+        more.add(btnMore);
+
         p.add(title, BorderLayout.NORTH);
         p.add(new JScrollPane(historyTable), BorderLayout.CENTER);
+        p.add(more, BorderLayout.SOUTH);
         return p;
     }
 
@@ -158,59 +178,91 @@ public class MovementsPanel extends JPanel {
         String qtyText = txtQty.getText().trim();
         if (qtyText.isEmpty()) { tip("Ingresa una cantidad."); return; }
 
+        int qty;
         try {
-            int qty = Integer.parseInt(qtyText);
-            String note = txtNote.getText().trim();
+            qty = Integer.parseInt(qtyText);
+        } catch (NumberFormatException ex) {
+            tip("La cantidad debe ser un número entero.");
+            return;
+        }
+        String note = txtNote.getText().trim();
 
+        // Sin doble envío mientras el movimiento está en curso
+        setMovementButtonsEnabled(false);
+        loader.submit(() -> {
             if (isIn) service.registerIn(productId, qty, currentUserId, note);
             else      service.registerOut(productId, qty, currentUserId, note);
-
+            return null;
+        }, ignored -> {
+            setMovementButtonsEnabled(true);
             txtQty.setText("");
             txtNote.setText("");
             refreshAll();
 
             String tipo = isIn ? "Entrada" : "Salida";
             lblStatus.setText(tipo + " de " + qty + " unidades registrada.");
-
-        } catch (NumberFormatException ex) {
-            tip("La cantidad debe ser un número entero.");
-        } catch (Exception ex) {
+        }, ex -> {
+            setMovementButtonsEnabled(true);
             showError(ex);
-        }
+        });
+    }
+
+    private void setMovementButtonsEnabled(boolean enabled) {
+        btnIn.setEnabled(enabled);
+        btnOut.setEnabled(enabled);
     }
 
     private void refreshAll() {
         Integer pid = selectedProductId();
-        if (pid == null) { lblAvailable.setText("—"); historyModel.setRowCount(0); return; }
+        if (pid == null) {
+            loader.cancelAll();
+            lblAvailable.setText("—"); historyModel.clear(); historyToken = null; btnMore.setEnabled(false);
+            return;
+        }
         refreshAvailable(pid);
         refreshHistory(pid);
     }
 
     private void refreshAvailable(int pid) {
-        try {
-            int qty = service.getCurrentQty(pid);
+        lblAvailable.setText("…");
+        loader.load("disponible", () -> service.getCurrentQty(pid), qty -> {
             lblAvailable.setText(String.valueOf(qty));
             lblAvailable.setForeground(qty <= 5 ? new Color(180, 40, 40)
                                      : qty <= 10 ? new Color(180, 120, 0)
                                      : new Color(31, 78, 121));
-        } catch (Exception ex) { lblAvailable.setText("?"); }
+        }, ex -> lblAvailable.setText("?"));
     }
 
+    // "historial" cubre la primera página y las siguientes: cambiar de producto
+    // descarta también un "Ver más antiguos" que siga en curso.
     private void refreshHistory(int pid) {
-        try {
-            List<InventoryMovement> list = movementDAO.findByProduct(pid, 50);
-            historyModel.setRowCount(0);
-            for (InventoryMovement m : list) {
-                String date = m.getCreatedAt() != null ? m.getCreatedAt().toString().replace('T', ' ') : "";
-                historyModel.addRow(new Object[]{date, m.getMovementType(), m.getQuantity(), m.getUserId(), m.getNote()});
-            }
-        } catch (Exception ex) { showError(ex); }
+        btnMore.setEnabled(false);
+        loader.load("historial", () -> movementDAO.findByProductPage(pid, null, HISTORY_PAGE), page -> {
+            historyModel.clear();
+            appendHistory(page);
+        }, this::showError);
+    }
+
+    /** Agrega la siguiente página (más antigua) al final del historial. */
+    private void loadMoreHistory() {
+        Integer pid = selectedProductId();
+        String token = historyToken;
+        if (pid == null || token == null) return;
+        btnMore.setEnabled(false);
+        loader.load("historial", () -> movementDAO.findByProductPage(pid, token, HISTORY_PAGE),
+                    this::appendHistory, this::showError);
+    }
+
+    private void appendHistory(Page<InventoryMovement> page) {
+        historyModel.append(page.getItems());
+        historyToken = page.getNextToken();
+        btnMore.setEnabled(page.hasNext());
     }
 
     // ─── Helpers ──────────────────────────────────────────────────────────────
     private Integer selectedProductId() {
-        ProductItem item = (ProductItem) cboProducts.getSelectedItem();
-        return item == null ? null : item.id;
+        Product p = picker.getSelected();
+        return p == null ? null : p.getId();
     }
 
     private JLabel label(String t) {
@@ -227,11 +279,4 @@ public class MovementsPanel extends JPanel {
 
     private void tip(String msg) { JOptionPane.showMessageDialog(this, msg, "Aviso", JOptionPane.INFORMATION_MESSAGE); }
     private void showError(Exception ex) { ex.printStackTrace(); JOptionPane.showMessageDialog(this, ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE); }
-
-    // ─── Inner class item combo ────────────────────────────────────────────────
-    private static class ProductItem {
-        final int id; final String name;
-        ProductItem(int id, String name) { this.id = id; this.name = name; }
-        @Override public String toString() { return id + " – " + name; }
-    }
 }
@@ -0,0 +1,78 @@
+package bizstock.ui;
+
+import javax.swing.JTable;
+import javax.swing.table.DefaultTableCellRenderer;
+import java.awt.Component;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Insets;
+import java.awt.Toolkit;
+import java.util.Map;
+
+/**
+ * Renderer para las columnas int y de centavos de ColumnarTableModel.
+ * ColumnarTable le pasa el valor primitivo; el texto se arma en un buffer que
+ * se reutiliza y se dibuja directo, sin Integer, BigDecimal ni String por
+ * celda. Las demás columnas se pintan igual que con DefaultTableCellRenderer.
+ *
+ * Quien necesite colores propios lo extiende y sobreescribe
+ * getTableCellRendererComponent: render() lo llama (con value null) antes de
+ * poner el número.
+ */
+public class NumberCellRenderer extends DefaultTableCellRenderer {
+
+    private final char[] buf = new char[24];   // signo, 19 dígitos y el punto
+    private int     start;                     // el texto es buf[start..]
+    private boolean direct;                    // la celda actual se dibuja desde buf
+
+    /** Prepara la celda con el valor de getNumber (NO_VALUE = vacía). */
+    Component render(JTable table, long value, NumericCells.NumberKind kind,
+                     boolean isSelected, boolean hasFocus, int row, int col) {
+        getTableCellRendererComponent(table, null, isSelected, hasFocus, row, col);
+        if (value != NumericCells.NO_VALUE) {
+            format(value, kind);
+            direct = true;
+        }
+        return this;
+    }
+
+    @Override
+    public Component getTableCellRendererComponent(JTable table, Object value,
+            boolean isSelected, boolean hasFocus, int row, int col) {
+        direct = false;
+        return super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, col);
+    }
+
+    /** Mismo texto que Integer.toString o BigDecimal.valueOf(cents, 2).toString(). */
+    private void format(long value, NumericCells.NumberKind kind) {
+        boolean cents = kind == NumericCells.NumberKind.CENTS;
+        long n = Math.abs(value);   // value nunca es NO_VALUE (Long.MIN_VALUE)
+        int pos = buf.length;
+        for (int d = 0; n > 0 || d < (cents ? 3 : 1); d++) {
+            if (cents && d == 2) buf[--pos] = '.';
+            buf[--pos] = (char) ('0' + n % 10);
+            n /= 10;
+        }
+        if (value < 0) buf[--pos] = '-';
+        start = pos;
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);   // fondo; el texto de la etiqueta está vacío
+        if (!direct) return;
+
+        Graphics2D g2 = (Graphics2D) g;
+        // Mismo suavizado que usa JLabel para su texto
+        if (Toolkit.getDefaultToolkit().getDesktopProperty("awt.font.desktophints") instanceof Map<?, ?> hints) {
+            g2.addRenderingHints(hints);
+        }
+        FontMetrics fm = g2.getFontMetrics(getFont());
+        Insets in = getInsets();
+        int y = in.top + (getHeight() - in.top - in.bottom - fm.getHeight()) / 2 + fm.getAscent();
+        g2.setFont(getFont());
+        g2.setColor(getForeground());
+        g2.drawChars(buf, start, buf.length - start, in.left, y);
+    }
+}
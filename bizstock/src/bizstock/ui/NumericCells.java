@@ -0,0 +1,20 @@
+package bizstock.ui;
+
+/**
+ * Modelo de tabla que entrega sus celdas numéricas como long, sin crear
+ * Integer ni BigDecimal (ver ColumnarTable).
+ */
+public interface NumericCells {
+
+    /** Columnas numéricas que se leen sin crear objetos. */
+    enum NumberKind { INT, CENTS }
+
+    /** Valor de getNumber para una celda null o que todavía no se cargó. */
+    long NO_VALUE = Long.MIN_VALUE;
+
+    /** INT o CENTS si la columna es numérica; null si no. */
+    NumberKind numberKind(int col);
+
+    /** El int o los centavos de la celda, o NO_VALUE. */
+    long getNumber(int row, int col);
+}
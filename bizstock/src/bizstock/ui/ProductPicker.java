@@ -0,0 +1,200 @@
+package bizstock.ui;
+
+import bizstock.dao.ProductDAO;
+import bizstock.model.Product;
+
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Selector de producto con autocompletado, en lugar de un JComboBox con todo
+ * el catálogo cargado.
+ *
+ * Al escribir se busca (con una pausa corta) en el índice compartido de
+ * ProductDAO.search y se muestran las sugerencias en un popup; la flecha abre
+ * los primeros productos por nombre. Cada resultado reemplaza el modelo de la
+ * lista de una vez. El listener solo se avisa cuando se elige un producto
+ * (Enter o clic), o con null si se borra la elección.
+ */
+public class ProductPicker extends JPanel {
+
+    private static final int LIMIT    = 30;
+    private static final int DELAY_MS = 150;
+
+    private final ProductDAO       productDAO;
+    private final JTextField       txt    = new JTextField(28);
+    private final JList<Product>   list   = new JList<>();
+    private final JScrollPane      scroll = new JScrollPane(list);
+    private final JPopupMenu       popup  = new JPopupMenu();
+    private final Timer            timer;
+    private final BackgroundLoader loader = new BackgroundLoader();
+
+    private Consumer<Product> choiceListener = p -> {};
+    private Product selected;
+    private boolean settingText;   // el texto lo pone choose(): no es una búsqueda
+
+    public ProductPicker(ProductDAO productDAO) {
+        this.productDAO = productDAO;
+        setLayout(new BorderLayout(2, 0));
+        setOpaque(false);
+
+        JButton btnBrowse = new JButton("▾");
+        btnBrowse.setFocusable(false);
+        btnBrowse.setMargin(new Insets(0, 6, 0, 6));
+        btnBrowse.addActionListener(e -> browse());
+
+        add(txt,       BorderLayout.CENTER);
+        add(btnBrowse, BorderLayout.EAST);
+
+        list.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        list.setFocusable(false);
+        list.setFont(new Font("Arial", Font.PLAIN, 12));
+        list.setCellRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList<?> l, Object value, int index,
+                                                          boolean isSelected, boolean hasFocus) {
+                return super.getListCellRendererComponent(l, label((Product) value), index, isSelected, hasFocus);
+            }
+        });
+        list.addMouseListener(new MouseAdapter() {
+            @Override public void mouseClicked(MouseEvent e) { choose(list.getSelectedValue()); }
+        });
+
+        scroll.setBorder(BorderFactory.createEmptyBorder());
+        popup.setFocusable(false);
+        popup.add(scroll);
+
+        timer = new Timer(DELAY_MS, e -> suggest());
+        timer.setRepeats(false);
+
+        txt.getDocument().addDocumentListener(new DocumentListener() {
+            @Override public void insertUpdate(DocumentEvent e)  { textEdited(); }
+            @Override public void removeUpdate(DocumentEvent e)  { textEdited(); }
+            @Override public void changedUpdate(DocumentEvent e) { textEdited(); }
+        });
+
+        bind("DOWN",   "siguiente", () -> { if (popup.isVisible()) move(1); else suggestNow(); });
+        bind("UP",     "anterior",  () -> move(-1));
+        bind("ENTER",  "elegir",    () -> { if (popup.isVisible()) choose(list.getSelectedValue()); });
+        bind("ESCAPE", "cerrar",    () -> popup.setVisible(false));
+    }
+
+    public void setChoiceListener(Consumer<Product> listener) { this.choiceListener = listener; }
+
+    /** Producto elegido, o null. */
+    public Product getSelected() { return selected; }
+
+    /** Borra la elección y el texto (sin avisar al listener). */
+    public void clear() {
+        timer.stop();
+        popup.setVisible(false);
+        selected = null;
+        settingText = true;
+        txt.setText("");
+        settingText = false;
+    }
+
+    // ─── Sugerencias ──────────────────────────────────────────────────────────
+
+    private void textEdited() {
+        if (settingText) return;
+        // Editar el texto anula la elección anterior: no registrar sobre un producto que ya no se ve
+        if (selected != null) {
+            selected = null;
+            choiceListener.accept(null);
+        }
+        timer.restart();
+    }
+
+    private void suggestNow() {
+        timer.stop();
+        suggest();
+    }
+
+    private void suggest() {
+        String q = txt.getText().trim();
+        if (q.isEmpty()) {
+            popup.setVisible(false);
+            return;
+        }
+        loader.load("sugerencias", () -> productDAO.search(q, LIMIT), items -> {
+            if (q.equals(txt.getText().trim())) show(items);
+        }, this::showError);
+    }
+
+    /** Primeros productos por nombre (botón ▾). */
+    private void browse() {
+        timer.stop();
+        loader.load("sugerencias", () -> productDAO.findActiveWindow(0, LIMIT), this::show, this::showError);
+    }
+
+    private void show(List<Product> items) {
+        if (items.isEmpty() || !isShowing()) {
+            popup.setVisible(false);
+            return;
+        }
+        // Un solo cambio de modelo por resultado, sin eventos intermedios
+        list.setModel(new Items(items));
+        list.setSelectedIndex(0);
+        list.setVisibleRowCount(Math.min(10, items.size()));
+        scroll.setPreferredSize(null);
+        scroll.setPreferredSize(new Dimension(getWidth(), scroll.getPreferredSize().height));
+        popup.pack();
+        if (!popup.isVisible()) popup.show(this, 0, getHeight());
+        txt.requestFocusInWindow();
+    }
+
+    private void move(int delta) {
+        int size = list.getModel().getSize();
+        if (size == 0) return;
+        int i = Math.max(0, Math.min(size - 1, list.getSelectedIndex() + delta));
+        list.setSelectedIndex(i);
+        list.ensureIndexIsVisible(i);
+    }
+
+    private void choose(Product p) {
+        if (p == null) return;
+        popup.setVisible(false);
+        selected = p;
+        settingText = true;
+        txt.setText(label(p));
+        settingText = false;
+        choiceListener.accept(p);
+    }
+
+    // ─── Helpers ──────────────────────────────────────────────────────────────
+
+    private static String label(Product p) {
+        return p == null ? "" : p.getId() + " – " + p.getName();
+    }
+
+    private void bind(String key, String name, Runnable action) {
+        txt.getInputMap().put(KeyStroke.getKeyStroke(key), name);
+        txt.getActionMap().put(name, new AbstractAction() {
+            @Override public void actionPerformed(ActionEvent e) { action.run(); }
+        });
+    }
+
+    private void showError(Exception ex) {
+        ex.printStackTrace();
+        popup.setVisible(false);
+        JOptionPane.showMessageDialog(this, ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+    }
+
+    /** Modelo inmutable de la lista de sugerencias. */
+    private static final class Items extends AbstractListModel<Product> {
+        private final List<Product> items;
+
+        Items(List<Product> items) { this.items = items; }
+
+        @Override public int getSize() { return items.size(); }
+        @Override public Product getElementAt(int i) { return items.get(i); }
+    }
+}
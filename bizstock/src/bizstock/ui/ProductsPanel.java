@@ -6,9 +6,12 @@ import bizstock.util.Session;
 
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
-import javax.swing.table.DefaultTableModel;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.table.TableModel;
 import java.awt.*;
 import java.math.BigDecimal;
+import java.sql.Timestamp;
 import java.util.List;
 
 /**
@@ -17,21 +20,50 @@ import java.util.List;
  */
 public class ProductsPanel extends JPanel {
 
+    // Con más productos activos que esto la tabla se carga por ventanas al hacer scroll
+    private static final int WINDOWED_ROWS = Integer.getInteger("bizstock.ui.windowedThreshold", 20000);
+
+    private static final int SEARCH_LIMIT     = 200;
+    private static final int SEARCH_DELAY_MS  = 200;
+
     private final ProductDAO       productDAO = new ProductDAO();
-    private final DefaultTableModel tableModel;
+    private final ColumnarTableModel<Product> tableModel;
+    private final WindowedTableModel<Product> windowedModel;
+    private final ColumnarTableModel<Product> searchModel;
     private final JTable            table;
+    private final JTextField        txtSearch  = new JTextField(18);
+    private final Timer             searchTimer;
     private final JLabel            lblStatus  = new JLabel("Listo.");
+    private final BackgroundLoader  loader     = new BackgroundLoader();
+    private JButton btnAdd;
+    private JButton btnEdit;
+    private JButton btnDelete;
+    private Timestamp version;   // updated_at de la última carga; null = aún no se cargó
+    private TableModel baseModel;  // tableModel o windowedModel; se muestra cuando no hay búsqueda
 
     public ProductsPanel() {
         setLayout(new BorderLayout(0, 0));
         setBorder(new EmptyBorder(8, 8, 8, 8));
 
-        String[] cols = {"ID", "Nombre", "Precio", "Cantidad", "Reorden", "Crítico", "CategoríaID", "MarcaID"};
-        tableModel = new DefaultTableModel(cols, 0) {
-            @Override public boolean isCellEditable(int r, int c) { return false; }
-        };
+        tableModel  = buildModel();
+        searchModel = buildModel();
+        baseModel   = tableModel;
+
+        windowedModel = new WindowedTableModel<>(tableModel, new WindowedTableModel.Source<>() {
+            @Override public int count() throws Exception { return productDAO.countActive(); }
+
+            @Override
+            public List<Product> fetch(int offset, int limit, Product after) throws Exception {
+                // Siguiendo a la ventana anterior se usa keyset; si no, OFFSET. Las dos
+                // consultas van a la BD con el mismo ORDER BY name, id
+                return after != null ? productDAO.findActivePage(productDAO.tokenAfter(after), limit).getItems()
+                                     : productDAO.findActiveWindow(offset, limit);
+            }
+        });
 
-        table = new JTable(tableModel);
+        windowedModel.setErrorListener(ex -> showError("Error cargando productos (Refrescar vuelve a intentar)", ex));
+
+        table = new ColumnarTable(tableModel);
         table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
         table.setRowHeight(24);
         table.setFont(new Font("Arial", Font.PLAIN, 13));
@@ -41,6 +73,33 @@ public class ProductsPanel extends JPanel {
         add(buildToolbar(),       BorderLayout.NORTH);
         add(new JScrollPane(table), BorderLayout.CENTER);
         add(buildStatusBar(),     BorderLayout.SOUTH);
+
+        loader.setBusyListener(busy -> {
+            setCursor(busy ? Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR) : null);
+            if (busy) lblStatus.setText("Cargando…");
+        });
+
+        // Búsqueda mientras se escribe: espera una pausa corta antes de consultar
+        searchTimer = new Timer(SEARCH_DELAY_MS, e -> runSearch());
+        searchTimer.setRepeats(false);
+        txtSearch.getDocument().addDocumentListener(new DocumentListener() {
+            @Override public void insertUpdate(DocumentEvent e)  { searchTimer.restart(); }
+            @Override public void removeUpdate(DocumentEvent e)  { searchTimer.restart(); }
+            @Override public void changedUpdate(DocumentEvent e) { searchTimer.restart(); }
+        });
+    }
+
+    private ColumnarTableModel<Product> buildModel() {
+        return new ColumnarTableModel<>(
+            ColumnarTableModel.intColumn("ID",            Product::getId),
+            ColumnarTableModel.textColumn("Nombre",       Product::getName),
+            ColumnarTableModel.priceColumn("Precio",      Product::getPrice),
+            ColumnarTableModel.intColumn("Cantidad",      Product::getQuantity),
+            ColumnarTableModel.intColumn("Reorden",       Product::getReorderLevel),
+            ColumnarTableModel.intColumn("Crítico",       Product::getCriticalLevel),
+            ColumnarTableModel.intColumn("CategoríaID",   Product::getCategoryId),
+            ColumnarTableModel.intColumn("MarcaID",       Product::getBrandId)
+        );
     }
 
     // ─── Toolbar ───────────────────────────────────────────────────────────────
@@ -50,11 +109,11 @@ public class ProductsPanel extends JPanel {
         bar.setBorder(BorderFactory.createMatteBorder(0, 0, 1, 0, new Color(200, 215, 235)));
 
         JButton btnRefresh = btn("🔄 Refrescar",  new Color(46, 116, 181));
-        JButton btnAdd     = btn("➕ Agregar",     new Color(40, 140, 70));
-        JButton btnEdit    = btn("✏️ Editar",      new Color(180, 120, 20));
-        JButton btnDelete  = btn("🗑️ Eliminar",    new Color(180, 40, 40));
+        btnAdd             = btn("➕ Agregar",     new Color(40, 140, 70));
+        btnEdit            = btn("✏️ Editar",      new Color(180, 120, 20));
+        btnDelete          = btn("🗑️ Eliminar",    new Color(180, 40, 40));
 
-        btnRefresh.addActionListener(e -> loadProducts());
+        btnRefresh.addActionListener(e -> refreshProducts(null));
         btnAdd    .addActionListener(e -> showAddDialog());
         btnEdit   .addActionListener(e -> showEditDialog());
         btnDelete .addActionListener(e -> doDelete());
@@ -66,10 +125,22 @@ public class ProductsPanel extends JPanel {
             }
         });
 
+        JLabel lblSearch = new JLabel("🔍 Buscar:");
+        lblSearch.setFont(new Font("Arial", Font.PLAIN, 12));
+        txtSearch.setToolTipText("Nombre o descripción (Esc para limpiar)");
+        txtSearch.addActionListener(e -> { searchTimer.stop(); runSearch(); });
+        txtSearch.getInputMap().put(KeyStroke.getKeyStroke("ESCAPE"), "limpiar");
+        txtSearch.getActionMap().put("limpiar", new AbstractAction() {
+            @Override public void actionPerformed(java.awt.event.ActionEvent e) { txtSearch.setText(""); }
+        });
+
         bar.add(btnRefresh);
         bar.add(btnAdd);
         bar.add(btnEdit);
         bar.add(btnDelete);
+        bar.add(Box.createHorizontalStrut(16));
+        bar.add(lblSearch);
+        bar.add(txtSearch);
         return bar;
     }
 
@@ -79,6 +150,13 @@ public class ProductsPanel extends JPanel {
         }
     }
 
+    private void setEditButtonsEnabled(boolean enabled) {
+        btnAdd.setEnabled(enabled);
+        btnEdit.setEnabled(enabled);
+        if (enabled) updateDeleteVisibility(btnDelete);
+        else         btnDelete.setEnabled(false);
+    }
+
     private JPanel buildStatusBar() {
         JPanel bar = new JPanel(new FlowLayout(FlowLayout.LEFT, 8, 2));
         bar.setBackground(new Color(248, 250, 255));
@@ -104,19 +182,93 @@ public class ProductsPanel extends JPanel {
 
     // ─── Carga de datos ────────────────────────────────────────────────────────
     public void loadProducts() {
-        try {
-            List<Product> products = productDAO.findAllActive();
-            tableModel.setRowCount(0);
-            for (Product p : products) {
-                tableModel.addRow(new Object[]{
-                    p.getId(), p.getName(), p.getPrice(), p.getQuantity(),
-                    p.getReorderLevel(), p.getCriticalLevel(), p.getCategoryId(), p.getBrandId()
-                });
+        // Las columnas se arman en el hilo de carga; en el EDT solo se cambia el modelo.
+        // data == null: catálogo grande, se muestra con el modelo por ventanas.
+        record Loaded(Timestamp version, int count, ColumnarTableModel.Data data) {}
+
+        loader.load("productos", () -> {
+            Timestamp v = productDAO.currentVersion();   // antes de leer: lo que cambie después llega en el refresco
+            int count = productDAO.countActive();
+            return new Loaded(v, count, count > WINDOWED_ROWS ? null : tableModel.toColumns(productDAO.findAllActive()));
+        }, loaded -> {
+            version = loaded.version();
+            if (loaded.data() == null) {
+                tableModel.clear();
+                windowedModel.setRowCount(loaded.count());
+                baseModel = windowedModel;
+                lblStatus.setText(loaded.count() + " productos activos (carga por ventanas).");
+            } else {
+                windowedModel.setRowCount(0);
+                tableModel.setData(loaded.data());
+                baseModel = tableModel;
+                lblStatus.setText(loaded.count() + " productos activos.");
             }
-            lblStatus.setText(products.size() + " productos activos.");
-        } catch (Exception ex) {
-            showError("Error cargando productos", ex);
+            if (isSearching()) runSearch();
+            else               showModel(baseModel);
+        }, ex -> showError("Error cargando productos", ex));
+    }
+
+    /**
+     * Refresco incremental: pide solo los productos con updated_at posterior a
+     * la última carga y los ubica en la tabla. status (opcional) se muestra al terminar.
+     */
+    private void refreshProducts(String status) {
+        Timestamp since = version;
+        if (since == null) { loadProducts(); return; }
+
+        loader.load("productos", () -> productDAO.findChangedSince(since), changes -> {
+            // Demasiados cambios, o tabla por ventanas (no se puede ubicar una fila): recarga
+            if (!changes.isComplete() || (!changes.getChanged().isEmpty() && baseModel == windowedModel)) {
+                loadProducts();
+                return;
+            }
+            version = changes.getVersion();
+            for (Product p : changes.getChanged()) merge(p);
+            windowedModel.retryFailed();
+
+            lblStatus.setText(status != null ? status
+                : tableModel.getRowCount() + " productos activos (" + changes.getChanged().size() + " con cambios).");
+            if (isSearching() && !changes.getChanged().isEmpty()) runSearch();
+        }, ex -> showError("Error actualizando productos", ex));
+    }
+
+    // ─── Búsqueda ──────────────────────────────────────────────────────────────
+    private boolean isSearching() {
+        return !txtSearch.getText().trim().isEmpty();
+    }
+
+    private void runSearch() {
+        String q = txtSearch.getText().trim();
+        if (q.isEmpty()) {
+            showModel(baseModel);
+            lblStatus.setText(baseModel.getRowCount() + " productos activos.");
+            return;
         }
+
+        loader.load("busqueda", () -> searchModel.toColumns(productDAO.search(q, SEARCH_LIMIT)), data -> {
+            if (!q.equals(txtSearch.getText().trim())) return;   // ya se escribió otra cosa
+            searchModel.setData(data);
+            showModel(searchModel);
+            int n = data.getRowCount();
+            lblStatus.setText(n == SEARCH_LIMIT ? "Primeros " + n + " resultados para «" + q + "»."
+                                                : n + " resultados para «" + q + "».");
+        }, ex -> showError("Error buscando productos", ex));
+    }
+
+    private void showModel(TableModel model) {
+        if (table.getModel() != model) table.setModel(model);
+    }
+
+    /** Quita la versión anterior de p (si estaba) y, si sigue activo, lo inserta en orden por nombre. */
+    private void merge(Product p) {
+        int row = tableModel.indexOf(0, p.getId());
+        if (row >= 0) tableModel.removeRow(row);
+        if (!p.isActive()) return;
+
+        tableModel.insertSorted(p, r -> {
+            int c = String.CASE_INSENSITIVE_ORDER.compare(p.getName(), tableModel.getText(r, 1));
+            return c != 0 ? c : Integer.compare(p.getId(), tableModel.getInt(r, 0));
+        });
     }
 
     // ─── Agregar producto ──────────────────────────────────────────────────────
@@ -152,9 +304,8 @@ public class ProductsPanel extends JPanel {
             p.setCategoryId(Integer.parseInt(fCatId.getText().trim()));
             p.setBrandId(Integer.parseInt(fBrandId.getText().trim()));
 
-            int newId = productDAO.insert(p);
-            loadProducts();
-            lblStatus.setText("Producto agregado con ID " + newId + ".");
+            write(() -> "Producto agregado con ID " + productDAO.insert(p) + ".",
+                  null, "No se pudo agregar el producto");
         } catch (Exception ex) {
             showError("No se pudo agregar el producto", ex);
         }
@@ -165,15 +316,20 @@ public class ProductsPanel extends JPanel {
         int row = table.getSelectedRow();
         if (row < 0) { tip("Selecciona un producto primero."); return; }
 
-        int id = (int) tableModel.getValueAt(row, 0);
+        if (cell(row, 0) == null) { tip("Espera a que carguen los datos."); return; }
+        int id = (int) cell(row, 0);
+
+        JTextField fName   = new JTextField(str(cell(row, 1)), 20);
+        JTextField fPrice  = new JTextField(str(cell(row, 2)), 10);
+        JTextField fQty    = new JTextField(str(cell(row, 3)), 6);
+        JTextField fReord  = new JTextField(str(cell(row, 4)), 6);
 
-        JTextField fName   = new JTextField(str(tableModel.getValueAt(row, 1)), 20);
-        JTextField fPrice  = new JTextField(str(tableModel.getValueAt(row, 2)), 10);
-        JTextField fQty    = new JTextField(str(tableModel.getValueAt(row, 3)), 6);
-        JTextField fReord  = new JTextField(str(tableModel.getValueAt(row, 4)), 6);
-        JTextField fCrit   = new JTextField(str(tableModel.getValueAt(row, 5)), 6);
-        JTextField fCatId  = new JTextField(str(tableModel.getValueAt(row, 6)), 4);
-        JTextField fBrandId= new JTextField(str(tableModel.getValueAt(row, 7)), 4);
+        // La cantidad solo cambia con entradas y salidas, que quedan en el historial
+        fQty.setEditable(false);
+        fQty.setToolTipText("Se cambia desde Movimientos (entrada o salida).");
+        JTextField fCrit   = new JTextField(str(cell(row, 5)), 6);
+        JTextField fCatId  = new JTextField(str(cell(row, 6)), 4);
+        JTextField fBrandId= new JTextField(str(cell(row, 7)), 4);
 
         JPanel form = buildForm(
             "Nombre:", fName, "Precio:", fPrice,
@@ -192,15 +348,13 @@ public class ProductsPanel extends JPanel {
             p.setName(fName.getText().trim());
             p.setDescription("");
             p.setPrice(new BigDecimal(fPrice.getText().trim()));
-            p.setQuantity(Integer.parseInt(fQty.getText().trim()));
             p.setReorderLevel(Integer.parseInt(fReord.getText().trim()));
             p.setCriticalLevel(Integer.parseInt(fCrit.getText().trim()));
             p.setCategoryId(Integer.parseInt(fCatId.getText().trim()));
             p.setBrandId(Integer.parseInt(fBrandId.getText().trim()));
 
-            boolean ok = productDAO.update(p);
-            if (ok) { loadProducts(); lblStatus.setText("Producto ID " + id + " actualizado."); }
-            else    { tip("No se pudo actualizar."); }
+            write(() -> productDAO.update(p) ? "Producto ID " + id + " actualizado." : null,
+                  "No se pudo actualizar.", "Error editando producto");
         } catch (Exception ex) {
             showError("Error editando producto", ex);
         }
@@ -211,21 +365,34 @@ public class ProductsPanel extends JPanel {
         int row = table.getSelectedRow();
         if (row < 0) { tip("Selecciona un producto primero."); return; }
 
-        int id     = (int) tableModel.getValueAt(row, 0);
-        String name = str(tableModel.getValueAt(row, 1));
+        if (cell(row, 0) == null) { tip("Espera a que carguen los datos."); return; }
+        int id      = (int) cell(row, 0);
+        String name = str(cell(row, 1));
 
         int confirm = JOptionPane.showConfirmDialog(this,
             "¿Desactivar el producto «" + name + "»?\n(No se borra de la BD, solo se desactiva.)",
             "Confirmar eliminación", JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE);
         if (confirm != JOptionPane.YES_OPTION) return;
 
-        try {
-            boolean ok = productDAO.softDelete(id);
-            if (ok) { loadProducts(); lblStatus.setText("Producto ID " + id + " desactivado."); }
-            else    { tip("No se pudo eliminar."); }
-        } catch (Exception ex) {
-            showError("Error eliminando producto", ex);
-        }
+        write(() -> productDAO.softDelete(id) ? "Producto ID " + id + " desactivado." : null,
+              "No se pudo eliminar.", "Error eliminando producto");
+    }
+
+    /**
+     * Escritura en la BD fuera del EDT, con los botones de edición
+     * desactivados mientras corre (sin doble envío). task devuelve el mensaje
+     * para el refresco, o null si no se aplicó (se avisa notApplied).
+     */
+    private void write(BackgroundLoader.Task<String> task, String notApplied, String errorMsg) {
+        setEditButtonsEnabled(false);
+        loader.submit(task, status -> {
+            setEditButtonsEnabled(true);
+            if (status != null) refreshProducts(status);
+            else                tip(notApplied);
+        }, ex -> {
+            setEditButtonsEnabled(true);
+            showError(errorMsg, ex);
+        });
     }
 
     // ─── Helpers de UI ────────────────────────────────────────────────────────
@@ -254,5 +421,8 @@ public class ProductsPanel extends JPanel {
         JOptionPane.showMessageDialog(this, msg + "\n" + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
     }
 
+    /** Celda del modelo que esté en uso (completo o por ventanas). */
+    private Object cell(int row, int col) { return table.getModel().getValueAt(row, col); }
+
     private String str(Object o) { return o == null ? "" : o.toString(); }
 }
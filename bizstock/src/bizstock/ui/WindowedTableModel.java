@@ -0,0 +1,201 @@
+package bizstock.ui;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * TableModel virtual para tablas muy grandes: conoce el total de filas pero
+ * solo tiene en memoria unas pocas ventanas de tamaño fijo, que pide a la
+ * fuente a medida que el viewport pasa por ellas.
+ *
+ * Las ventanas viven en un LRU; al mostrar una ventana se pide la siguiente
+ * en segundo plano. Mientras una ventana no llega, sus celdas se ven vacías.
+ * Se piden pocas a la vez y primero la más reciente; una ventana en espera
+ * que ya quedó lejos de lo que se ve (al arrastrar la barra) se descarta sin
+ * consultarla, y se vuelve a pedir si se vuelve a ver.
+ * Si una ventana falla no se vuelve a pedir (cada repintado lo haría) hasta
+ * retryFailed() o un nuevo conteo; el error se avisa una sola vez.
+ * Las columnas (nombres y conversión) se toman de un ColumnarTableModel.
+ */
+public final class WindowedTableModel<T> extends AbstractTableModel implements NumericCells {
+
+    /** De dónde salen las filas. Se llama fuera del EDT. */
+    public interface Source<T> {
+        int count() throws Exception;
+
+        /**
+         * Filas [offset, offset + limit). after es la última fila de la ventana
+         * anterior si está en memoria (permite seguir por keyset), o null.
+         */
+        List<T> fetch(int offset, int limit, T after) throws Exception;
+    }
+
+    private static final int WINDOW_ROWS = Integer.getInteger("bizstock.ui.windowRows", 200);
+    private static final int MAX_WINDOWS = Integer.getInteger("bizstock.ui.windowCache", 8);
+    private static final int MAX_FETCHES = Integer.getInteger("bizstock.ui.windowFetches", 2);
+
+    private static final class Window<T> {
+        final ColumnarTableModel.Data data;
+        final T last;
+
+        Window(ColumnarTableModel.Data data, T last) {
+            this.data = data;
+            this.last = last;
+        }
+    }
+
+    private final ColumnarTableModel<T> columns;
+    private final Source<T>             source;
+    private final BackgroundLoader      loader = new BackgroundLoader();
+
+    // Todo esto se toca solo en el EDT
+    private final Map<Integer, Window<T>> windows = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override protected boolean removeEldestEntry(Map.Entry<Integer, Window<T>> e) {
+            return size() > MAX_WINDOWS;
+        }
+    };
+    private final Set<Integer> pending = new HashSet<>();   // en espera o en curso
+    private final Deque<Integer> queued = new ArrayDeque<>();   // en espera, la más reciente primero
+    private final Set<Integer> failed  = new HashSet<>();
+    private Consumer<Exception> errorListener;
+    private int  fetching;      // consultas en curso
+    private int  lastShown;     // ventana de la última fila pintada
+    private int  rowCount;
+    private long generation;   // descarta ventanas pedidas antes de un reload()
+
+    public WindowedTableModel(ColumnarTableModel<T> columns, Source<T> source) {
+        this.columns = columns;
+        this.source  = source;
+    }
+
+    /** Recibe el primer error al pedir ventanas (en el EDT); los siguientes se callan hasta retryFailed(). */
+    public void setErrorListener(Consumer<Exception> listener) { this.errorListener = listener; }
+
+    /** Vuelve a pedir las ventanas que fallaron cuando se vuelvan a ver. Debe llamarse desde el EDT. */
+    public void retryFailed() {
+        if (failed.isEmpty()) return;
+        failed.clear();
+        fireTableDataChanged();
+    }
+
+    /** Vuelve a contar las filas y descarta todas las ventanas. */
+    public void reload(Runnable onLoaded, Consumer<Exception> onError) {
+        loader.load("conteo", source::count, count -> {
+            setRowCount(count);
+            if (onLoaded != null) onLoaded.run();
+        }, onError);
+    }
+
+    /** Igual que reload() pero con el total ya conocido. Debe llamarse desde el EDT. */
+    public void setRowCount(int count) {
+        generation++;
+        windows.clear();
+        pending.clear();
+        queued.clear();
+        failed.clear();
+        rowCount = count;
+        fireTableDataChanged();
+    }
+
+    @Override public int getRowCount()    { return rowCount; }
+    @Override public int getColumnCount() { return columns.getColumnCount(); }
+    @Override public String getColumnName(int col) { return columns.getColumnName(col); }
+
+    @Override
+    public Object getValueAt(int row, int col) {
+        Window<T> window = windowOf(row);
+        int offset = row % WINDOW_ROWS;
+        return window == null ? null : columns.valueAt(window.data, offset, col);
+    }
+
+    @Override
+    public NumberKind numberKind(int col) { return columns.numberKind(col); }
+
+    @Override
+    public long getNumber(int row, int col) {
+        Window<T> window = windowOf(row);
+        int offset = row % WINDOW_ROWS;
+        return window == null ? NO_VALUE : columns.numberAt(window.data, offset, col);
+    }
+
+    /** Ventana de la fila si ya llegó (y la tiene); si no la pide y devuelve null. */
+    private Window<T> windowOf(int row) {
+        int w = row / WINDOW_ROWS;
+        lastShown = w;
+        Window<T> window = windows.get(w);
+        if (window == null) {
+            request(w);
+            return null;
+        }
+        if (!windows.containsKey(w + 1)) request(w + 1);   // prefetch de la siguiente
+
+        // La tabla se achicó desde el conteo
+        return row - w * WINDOW_ROWS < window.data.getRowCount() ? window : null;
+    }
+
+    /** true si la fila ya está en memoria (para no editar/borrar algo que aún no llegó). */
+    public boolean isLoaded(int row) {
+        return windows.containsKey(row / WINDOW_ROWS);
+    }
+
+    private void request(int w) {
+        if (w * WINDOW_ROWS >= rowCount || failed.contains(w) || !pending.add(w)) return;
+        queued.addFirst(w);
+        startQueued();
+    }
+
+    /** Lanza ventanas en espera mientras haya lugar; descarta las que quedaron lejos. */
+    private void startQueued() {
+        while (fetching < MAX_FETCHES && !queued.isEmpty()) {
+            int w = queued.pollFirst();
+            // La de arriba del viewport puede estar un par de ventanas antes; la del prefetch, una después
+            if (w < lastShown - 2 || w > lastShown + 1) {
+                pending.remove(w);
+                continue;
+            }
+            fetch(w);
+        }
+    }
+
+    private void fetch(int w) {
+        int offset = w * WINDOW_ROWS;
+        Window<T> previous = windows.get(w - 1);
+        T after = previous != null ? previous.last : null;
+        long gen = generation;
+        fetching++;
+
+        loader.submit(() -> {
+            List<T> items = source.fetch(offset, WINDOW_ROWS, after);
+            T last = items.isEmpty() ? null : items.get(items.size() - 1);
+            return new Window<>(columns.toColumns(items), last);
+        }, window -> {
+            fetching--;
+            if (gen == generation) {
+                pending.remove(w);
+                windows.put(w, window);
+                int end = Math.min(rowCount, offset + WINDOW_ROWS) - 1;
+                if (end >= offset) fireTableRowsUpdated(offset, end);
+            }
+            startQueued();
+        }, ex -> {
+            fetching--;
+            if (gen == generation) {
+                pending.remove(w);
+                boolean first = failed.isEmpty();
+                failed.add(w);
+                if (first) {
+                    if (errorListener != null) errorListener.accept(ex);
+                    else                       ex.printStackTrace();
+                }
+            }
+            startQueued();
+        });
+    }
+}
@@ -0,0 +1,599 @@
+package bizstock.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pool acotado de conexiones JDBC.
+ *
+ * Cada préstamo devuelve un proxy de {@link Connection}; al cerrarlo (por ejemplo
+ * al salir de un try-with-resources) la conexión física regresa al pool en vez de
+ * cerrarse. Valida al prestar, expulsa conexiones ociosas o demasiado viejas y
+ * avisa de fugas mostrando dónde se pidió la conexión (una vez por préstamo, y
+ * la traza solo la primera vez por lugar de origen).
+ *
+ * Cada conexión física guarda además sus sentencias preparadas (LRU por
+ * texto SQL): cerrar un PreparedStatement lo deja listo para el siguiente
+ * prepareStatement con el mismo SQL, en este préstamo o en otro. Con
+ * useServerPrepStmts=true MySQL parsea cada sentencia una sola vez por
+ * conexión en lugar de una vez por llamada.
+ */
+public final class ConnectionPool {
+
+  private final String url;
+  private final String user;
+  private final String pass;
+
+  private final int  maxSize;
+  private final long borrowTimeoutMs;
+  private final int  validationTimeoutSec;
+  private final long idleTimeoutMs;
+  private final long maxLifetimeMs;
+  private final long leakThresholdMs;
+  private final int  stmtCacheSize;
+
+  private final Semaphore          permits;
+  private final Deque<PooledEntry> idle   = new ArrayDeque<>();
+  private final Set<PooledEntry>   leased = ConcurrentHashMap.newKeySet();
+  private final Set<String>        leakSites = ConcurrentHashMap.newKeySet();   // ya mostrados con traza
+  private final ScheduledExecutorService housekeeper;
+
+  private volatile boolean closed;
+
+  // ── Contadores ─────────────────────────────────────────────────────────────
+  private final LongAdder  borrows        = new LongAdder();
+  private final LongAdder  borrowWaitNs   = new LongAdder();
+  private final AtomicLong maxBorrowWaitNs = new AtomicLong();
+  private final LongAdder  timeouts       = new LongAdder();
+  private final LongAdder  created        = new LongAdder();
+  private final LongAdder  destroyed      = new LongAdder();
+  private final LongAdder  validationFails = new LongAdder();
+  private final LongAdder  leaks          = new LongAdder();
+  private final LongAdder  stmtHits       = new LongAdder();
+  private final LongAdder  stmtMisses     = new LongAdder();
+  private final LongAdder  stmtEvictions  = new LongAdder();
+
+  public ConnectionPool(String url, String user, String pass) {
+    this.user = user;
+    this.pass = pass;
+
+    this.maxSize              = Math.max(1, Integer.getInteger("bizstock.pool.maxSize", 10));
+    this.borrowTimeoutMs      = Long.getLong("bizstock.pool.borrowTimeoutMs", 10_000L);
+    this.validationTimeoutSec = Integer.getInteger("bizstock.pool.validationTimeoutSec", 2);
+    this.idleTimeoutMs        = Long.getLong("bizstock.pool.idleTimeoutMs", 5 * 60_000L);
+    this.maxLifetimeMs        = Long.getLong("bizstock.pool.maxLifetimeMs", 30 * 60_000L);
+    this.leakThresholdMs      = Long.getLong("bizstock.pool.leakThresholdMs", 60_000L);
+    this.stmtCacheSize        = Math.max(0, Integer.getInteger("bizstock.pool.stmtCacheSize", 64));
+
+    // La caché solo se ahorra el parseo si las sentencias se preparan en el
+    // servidor. cachePrepStmts del driver queda apagado: haría lo mismo que
+    // la caché de aquí, pero sin sus contadores.
+    this.url = stmtCacheSize > 0 && !url.contains("useServerPrepStmts")
+        ? url + (url.contains("?") ? "&" : "?") + "useServerPrepStmts=true"
+        : url;
+
+    this.permits = new Semaphore(maxSize, true);
+
+    this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread t = new Thread(r, "bizstock-pool-housekeeper");
+      t.setDaemon(true);
+      return t;
+    });
+    this.housekeeper.scheduleWithFixedDelay(this::housekeep, 15, 15, TimeUnit.SECONDS);
+  }
+
+  // ─────────────────────────────────────────────────────────────────────────
+  // Préstamo y devolución
+  // ─────────────────────────────────────────────────────────────────────────
+
+  public Connection borrow() throws SQLException {
+    if (closed) throw new SQLException("El pool de conexiones está cerrado.");
+
+    long t0 = System.nanoTime();
+    try {
+      if (!permits.tryAcquire(borrowTimeoutMs, TimeUnit.MILLISECONDS)) {
+        timeouts.increment();
+        throw new SQLException("No hay conexiones disponibles (espera de "
+            + borrowTimeoutMs + " ms agotada, máximo " + maxSize + ").");
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new SQLException("Interrumpido esperando una conexión.", ex);
+    }
+
+    try {
+      PooledEntry entry = takeValidEntry();
+      long waited = System.nanoTime() - t0;
+      borrows.increment();
+      borrowWaitNs.add(waited);
+      maxBorrowWaitNs.accumulateAndGet(waited, Math::max);
+
+      entry.borrowedAt = System.currentTimeMillis();
+      entry.borrower   = leakThresholdMs > 0
+          ? new Throwable("Conexión prestada por hilo " + Thread.currentThread().getName())
+          : null;
+      entry.leakReported = false;
+      leased.add(entry);
+      return entry.newLease();
+    } catch (SQLException | RuntimeException ex) {
+      permits.release();
+      throw ex;
+    }
+  }
+
+  private PooledEntry takeValidEntry() throws SQLException {
+    while (true) {
+      PooledEntry entry;
+      synchronized (idle) {
+        entry = idle.pollFirst();
+      }
+      if (entry == null) return createEntry();
+
+      if (entry.isExpired(maxLifetimeMs) || !isValid(entry)) {
+        destroy(entry);
+        continue;
+      }
+      return entry;
+    }
+  }
+
+  private boolean isValid(PooledEntry entry) {
+    try {
+      if (entry.physical.isValid(validationTimeoutSec)) return true;
+    } catch (SQLException ignored) {
+      // se trata igual que una conexión inválida
+    }
+    validationFails.increment();
+    return false;
+  }
+
+  private PooledEntry createEntry() throws SQLException {
+    Connection physical = DriverManager.getConnection(url, user, pass);
+    created.increment();
+    return new PooledEntry(physical);
+  }
+
+  private void release(PooledEntry entry) {
+    leased.remove(entry);
+    entry.borrower = null;
+    try {
+      if (closed || entry.physical.isClosed() || entry.isExpired(maxLifetimeMs)) {
+        destroy(entry);
+        return;
+      }
+      entry.resetState();
+      entry.lastUsedAt = System.currentTimeMillis();
+      synchronized (idle) {
+        idle.addFirst(entry);
+      }
+    } catch (SQLException ex) {
+      destroy(entry);
+    } finally {
+      permits.release();
+    }
+  }
+
+  /** abort() sobre un préstamo: la conexión no vuelve al pool, pero el permiso sí. */
+  private void discard(PooledEntry entry, Executor executor) throws SQLException {
+    leased.remove(entry);
+    entry.borrower = null;
+    destroyed.increment();
+    try {
+      entry.physical.abort(executor);
+    } finally {
+      permits.release();
+    }
+  }
+
+  private void destroy(PooledEntry entry) {
+    destroyed.increment();
+    try {
+      entry.physical.close();
+    } catch (SQLException ignored) {
+      // la conexión ya no sirve; no hay nada más que hacer
+    }
+  }
+
+  // ─────────────────────────────────────────────────────────────────────────
+  // Mantenimiento periódico
+  // ─────────────────────────────────────────────────────────────────────────
+
+  private void housekeep() {
+    long now = System.currentTimeMillis();
+
+    // Expulsar ociosas y vencidas (las más viejas están al final)
+    Deque<PooledEntry> evicted = new ArrayDeque<>();
+    synchronized (idle) {
+      idle.removeIf(e -> {
+        boolean evict = now - e.lastUsedAt > idleTimeoutMs || e.isExpired(maxLifetimeMs);
+        if (evict) evicted.add(e);
+        return evict;
+      });
+    }
+    evicted.forEach(this::destroy);
+
+    // Detección de fugas
+    if (leakThresholdMs > 0) {
+      for (PooledEntry e : leased) {
+        Throwable who = e.borrower;
+        if (!e.leakReported && who != null && now - e.borrowedAt > leakThresholdMs) {
+          e.leakReported = true;
+          leaks.increment();
+          reportLeak(who, now - e.borrowedAt);
+        }
+      }
+    }
+  }
+
+  /**
+   * Una línea por conexión, con el primer método de la app que la pidió. Las
+   * líneas de la traza (sin las del pool) solo la primera vez por lugar.
+   */
+  private void reportLeak(Throwable who, long heldMs) {
+    StackTraceElement[] frames = who.getStackTrace();
+    int first = 0;
+    while (first < frames.length - 1 && isPoolFrame(frames[first])) first++;
+    String site = frames.length == 0 ? "?" : frames[first].toString();
+
+    StringBuilder msg = new StringBuilder("[BizStock] Posible fuga de conexión: prestada hace ")
+        .append(heldMs).append(" ms sin devolverse, desde ").append(site)
+        .append(" (").append(who.getMessage()).append(')');
+    if (leakSites.add(site)) {
+      for (int i = first + 1; i < Math.min(frames.length, first + 8); i++) msg.append("\n\tat ").append(frames[i]);
+    }
+    System.err.println(msg);
+  }
+
+  private static boolean isPoolFrame(StackTraceElement f) {
+    String c = f.getClassName();
+    return c.startsWith(ConnectionPool.class.getName()) || c.equals(DatabaseConnection.class.getName());
+  }
+
+  public void shutdown() {
+    closed = true;
+    housekeeper.shutdownNow();
+    synchronized (idle) {
+      idle.forEach(this::destroy);
+      idle.clear();
+    }
+  }
+
+  // ─────────────────────────────────────────────────────────────────────────
+  // Estadísticas
+  // ─────────────────────────────────────────────────────────────────────────
+
+  public int  getMaxSize()           { return maxSize; }
+  public int  getActiveCount()       { return leased.size(); }
+  public int  getIdleCount()         { synchronized (idle) { return idle.size(); } }
+  public long getBorrowCount()       { return borrows.sum(); }
+  public long getBorrowWaitTotalNs() { return borrowWaitNs.sum(); }
+  public long getBorrowWaitMaxNs()   { return maxBorrowWaitNs.get(); }
+  public long getTimeoutCount()      { return timeouts.sum(); }
+  public long getCreatedCount()      { return created.sum(); }
+  public long getDestroyedCount()    { return destroyed.sum(); }
+  public long getValidationFailCount() { return validationFails.sum(); }
+  public long getLeakCount()         { return leaks.sum(); }
+  public int  getStatementCacheSize() { return stmtCacheSize; }
+  public long getStatementHits()     { return stmtHits.sum(); }
+  public long getStatementMisses()   { return stmtMisses.sum(); }
+  public long getStatementEvictions() { return stmtEvictions.sum(); }
+
+  @Override
+  public String toString() {
+    long n = getBorrowCount();
+    return "ConnectionPool[activas=" + getActiveCount() + ", ociosas=" + getIdleCount()
+        + ", max=" + maxSize + ", préstamos=" + n
+        + ", esperaProm=" + (n == 0 ? 0 : getBorrowWaitTotalNs() / n / 1000) + "µs"
+        + ", esperaMax=" + getBorrowWaitMaxNs() / 1000 + "µs"
+        + ", timeouts=" + getTimeoutCount() + ", fugas=" + getLeakCount()
+        + ", sentencias=" + getStatementHits() + "/" + (getStatementHits() + getStatementMisses()) + " reusadas]";
+  }
+
+  // ─────────────────────────────────────────────────────────────────────────
+  // Conexión física + préstamo
+  // ─────────────────────────────────────────────────────────────────────────
+
+  private final class PooledEntry {
+    final Connection physical;
+    final long       createdAt = System.currentTimeMillis();
+    volatile long    lastUsedAt = createdAt;
+    volatile long    borrowedAt;
+    volatile Throwable borrower;
+    volatile boolean leakReported;
+
+    // Sentencias ociosas por clave (SQL + opciones), de la más vieja a la más nueva
+    private final Map<String, PreparedStatement> statements = new LinkedHashMap<>();
+
+    // Estado que el usuario pudo cambiar y hay que restaurar al devolver
+    boolean dirtyAutoCommit;
+    boolean dirtyReadOnly;
+    boolean dirtyIsolation;
+    boolean dirtyCatalog;
+    boolean dirtySchema;
+    boolean dirtyHoldability;
+    final int    defaultIsolation;
+    final String defaultCatalog;
+    final String defaultSchema;
+    final int    defaultHoldability;
+
+    PooledEntry(Connection physical) throws SQLException {
+      this.physical = physical;
+      this.defaultIsolation   = physical.getTransactionIsolation();
+      this.defaultCatalog     = physical.getCatalog();
+      this.defaultSchema      = physical.getSchema();
+      this.defaultHoldability = physical.getHoldability();
+    }
+
+    boolean isExpired(long lifetimeMs) {
+      return lifetimeMs > 0 && System.currentTimeMillis() - createdAt > lifetimeMs;
+    }
+
+    Connection newLease() {
+      return (Connection) Proxy.newProxyInstance(
+          Connection.class.getClassLoader(),
+          new Class<?>[]{ Connection.class },
+          new Lease(this));
+    }
+
+    /**
+     * prepareStatement a través de la caché. Solo las variantes (sql),
+     * (sql, autoGeneratedKeys) y (sql, tipo, concurrencia); las demás van
+     * directo al driver y se cierran de verdad.
+     */
+    Object prepare(Connection lease, Method method, Object[] args) throws Throwable {
+      String key = statementKey(args);
+      if (key == null) return invokePhysical(method, args);
+
+      PreparedStatement ps;
+      synchronized (statements) {
+        ps = statements.remove(key);
+      }
+      if (ps != null && !ps.isClosed()) {
+        stmtHits.increment();
+      } else {
+        stmtMisses.increment();
+        ps = (PreparedStatement) invokePhysical(method, args);
+      }
+      return Proxy.newProxyInstance(
+          PreparedStatement.class.getClassLoader(),
+          new Class<?>[]{ PreparedStatement.class },
+          new CachedStatement(this, lease, key, ps));
+    }
+
+    private String statementKey(Object[] args) {
+      if (args == null || !(args[0] instanceof String sql)) return null;
+      return switch (args.length) {
+        case 1 -> sql;
+        case 2 -> args[1] instanceof Integer ? sql + '\0' + args[1] : null;
+        case 3 -> sql + '\0' + args[1] + '\0' + args[2];
+        default -> null;
+      };
+    }
+
+    /** Deja la sentencia lista para reusarse, o la cierra si cambió algo que no se restaura. */
+    void giveBack(String key, PreparedStatement ps, boolean reusable) {
+      if (reusable) {
+        try {
+          ResultSet rs = ps.getResultSet();
+          if (rs != null) rs.close();
+          ps.clearParameters();
+          ps.clearBatch();
+          ps.clearWarnings();
+        } catch (SQLException ex) {
+          reusable = false;
+        }
+      }
+      if (!reusable || closed) {
+        closeQuietly(ps);
+        return;
+      }
+
+      synchronized (statements) {
+        // La misma sentencia abierta dos veces a la vez: se guarda solo una
+        if (statements.putIfAbsent(key, ps) != null) {
+          closeQuietly(ps);
+          return;
+        }
+        Iterator<PreparedStatement> eldest = statements.values().iterator();
+        while (statements.size() > stmtCacheSize) {
+          closeQuietly(eldest.next());
+          eldest.remove();
+          stmtEvictions.increment();
+        }
+      }
+    }
+
+    private Object invokePhysical(Method method, Object[] args) throws Throwable {
+      try {
+        return method.invoke(physical, args);
+      } catch (InvocationTargetException ex) {
+        throw ex.getCause();
+      }
+    }
+
+    void resetState() throws SQLException {
+      if (dirtyAutoCommit || !physical.getAutoCommit()) {
+        if (!physical.getAutoCommit()) physical.rollback();
+        physical.setAutoCommit(true);
+      }
+      if (dirtyReadOnly)  physical.setReadOnly(false);
+      if (dirtyIsolation) physical.setTransactionIsolation(defaultIsolation);
+      if (dirtyCatalog && defaultCatalog != null) physical.setCatalog(defaultCatalog);
+      if (dirtySchema && defaultSchema != null)   physical.setSchema(defaultSchema);
+      if (dirtyHoldability) physical.setHoldability(defaultHoldability);
+      physical.clearWarnings();
+      dirtyAutoCommit = dirtyReadOnly = dirtyIsolation = false;
+      dirtyCatalog = dirtySchema = dirtyHoldability = false;
+    }
+  }
+
+  /**
+   * Handler de un préstamo: close() devuelve la conexión al pool una sola vez;
+   * abort() la descarta y devuelve el permiso. unwrap() no entrega la conexión
+   * física: quien la tuviera podría usarla después de devolver el préstamo.
+   */
+  private final class Lease implements InvocationHandler {
+    private final PooledEntry entry;
+    private boolean returned;
+
+    Lease(PooledEntry entry) { this.entry = entry; }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      switch (method.getName()) {
+        case "close":
+          if (!returned) {
+            returned = true;
+            release(entry);
+          }
+          return null;
+        case "abort":
+          if (args[0] == null) throw new SQLException("abort() necesita un Executor.");
+          if (!returned) {
+            returned = true;
+            discard(entry, (Executor) args[0]);
+          }
+          return null;
+        case "isClosed":
+          return returned || entry.physical.isClosed();
+        case "unwrap":
+          if (((Class<?>) args[0]).isInstance(proxy)) return proxy;
+          throw new SQLException("El pool no expone la conexión física (" + ((Class<?>) args[0]).getName() + ").");
+        case "isWrapperFor":
+          return ((Class<?>) args[0]).isInstance(proxy);
+        case "equals":
+          return proxy == args[0];
+        case "hashCode":
+          return System.identityHashCode(proxy);
+        case "toString":
+          return "PooledConnection[" + entry.physical + "]";
+        case "setAutoCommit":
+          entry.dirtyAutoCommit = true;
+          break;
+        case "setReadOnly":
+          entry.dirtyReadOnly = true;
+          break;
+        case "setTransactionIsolation":
+          entry.dirtyIsolation = true;
+          break;
+        case "setCatalog":
+          entry.dirtyCatalog = true;
+          break;
+        case "setSchema":
+          entry.dirtySchema = true;
+          break;
+        case "setHoldability":
+          entry.dirtyHoldability = true;
+          break;
+        default:
+          break;
+      }
+
+      if (returned) throw new SQLException("La conexión ya fue devuelta al pool.");
+
+      if (stmtCacheSize > 0 && method.getName().equals("prepareStatement")) {
+        return entry.prepare((Connection) proxy, method, args);
+      }
+
+      try {
+        return method.invoke(entry.physical, args);
+      } catch (InvocationTargetException ex) {
+        throw ex.getCause();
+      }
+    }
+  }
+
+  /**
+   * PreparedStatement prestado de la caché: close() lo devuelve a su conexión.
+   * Si se cambió algo que no se restaura al devolverlo (fetch size, máximo de
+   * filas, timeout...), se cierra de verdad.
+   */
+  private final class CachedStatement implements InvocationHandler {
+    private final PooledEntry       entry;
+    private final Connection        lease;
+    private final String            key;
+    private final PreparedStatement ps;
+    private boolean closed;
+    private boolean reusable = true;
+
+    CachedStatement(PooledEntry entry, Connection lease, String key, PreparedStatement ps) {
+      this.entry = entry;
+      this.lease = lease;
+      this.key = key;
+      this.ps = ps;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      switch (method.getName()) {
+        case "close":
+          if (!closed) {
+            closed = true;
+            entry.giveBack(key, ps, reusable);
+          }
+          return null;
+        case "isClosed":
+          return closed || ps.isClosed();
+        case "getConnection":
+          return lease;
+        case "equals":
+          return proxy == args[0];
+        case "hashCode":
+          return System.identityHashCode(proxy);
+        case "toString":
+          return "CachedStatement[" + ps + "]";
+        case "setFetchSize":
+        case "setFetchDirection":
+        case "setMaxRows":
+        case "setLargeMaxRows":
+        case "setMaxFieldSize":
+        case "setQueryTimeout":
+        case "setEscapeProcessing":
+        case "setCursorName":
+        case "setPoolable":
+        case "closeOnCompletion":
+          reusable = false;
+          break;
+        default:
+          break;
+      }
+
+      if (closed) throw new SQLException("La sentencia ya está cerrada.");
+
+      try {
+        return method.invoke(ps, args);
+      } catch (InvocationTargetException ex) {
+        throw ex.getCause();
+      }
+    }
+  }
+
+  private static void closeQuietly(PreparedStatement ps) {
+    try {
+      ps.close();
+    } catch (SQLException ignored) {
+      // se descarta igual
+    }
+  }
+}
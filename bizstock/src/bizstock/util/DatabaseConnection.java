@@ -7,13 +7,55 @@ import java.sql.SQLException;
 public final class DatabaseConnection {
 
   private static final String URL =
-    "jdbc:mysql://localhost:3306/bizstock?useSSL=false&serverTimezone=UTC";
+    "jdbc:mysql://localhost:3306/bizstock?useSSL=false&serverTimezone=UTC&rewriteBatchedStatements=true";
 private static final String USER = "root";
 private static final String PASS = "Acf121203";
 
+  // -Dbizstock.pool.enabled=false vuelve a abrir una conexión nueva por llamada
+  private static final boolean POOL_ENABLED =
+    Boolean.parseBoolean(System.getProperty("bizstock.pool.enabled", "true"));
+
+  // Tiempo de obtener una conexión: espera del pool, o el connect completo sin pool
+  private static final Metrics.Timer T_ACQUIRE = Metrics.timer("DatabaseConnection.getConnection");
+
   private DatabaseConnection() {}
 
+  /** Se crea al primer uso para no abrir nada si la app nunca toca la BD. */
+  private static final class PoolHolder {
+    static final ConnectionPool POOL = new ConnectionPool(URL, USER, PASS);
+    static {
+      Runtime.getRuntime().addShutdownHook(new Thread(POOL::shutdown, "bizstock-pool-shutdown"));
+      Metrics.gauge("ConnectionPool.active", POOL::getActiveCount);
+      Metrics.gauge("ConnectionPool.idle", POOL::getIdleCount);
+      Metrics.gauge("ConnectionPool.timeouts", POOL::getTimeoutCount);
+      Metrics.gauge("ConnectionPool.created", POOL::getCreatedCount);
+      Metrics.gauge("ConnectionPool.leaks", POOL::getLeakCount);
+      Metrics.gauge("ConnectionPool.statementHits", POOL::getStatementHits);
+      Metrics.gauge("ConnectionPool.statementMisses", POOL::getStatementMisses);
+      Metrics.gauge("ConnectionPool.statementEvictions", POOL::getStatementEvictions);
+    }
+  }
+
+  /**
+   * Devuelve una conexión del pool. Cerrarla (try-with-resources) la regresa
+   * al pool en lugar de cerrar el socket. Con -Dbizstock.sqltrace.enabled=true
+   * viene envuelta por SqlTrace.
+   */
   public static Connection getConnection() throws SQLException {
-    return DriverManager.getConnection(URL, USER, PASS);
+    long t0 = T_ACQUIRE.start();
+    try {
+      Connection cn = POOL_ENABLED ? PoolHolder.POOL.borrow() : DriverManager.getConnection(URL, USER, PASS);
+      return SqlTrace.isEnabled() ? SqlTrace.wrap(cn) : cn;
+    } catch (SQLException ex) {
+      T_ACQUIRE.error();
+      throw ex;
+    } finally {
+      T_ACQUIRE.stop(t0);
+    }
+  }
+
+  /** Pool compartido, o null si está deshabilitado. */
+  public static ConnectionPool getPool() {
+    return POOL_ENABLED ? PoolHolder.POOL : null;
   }
 }
@@ -0,0 +1,57 @@
+package bizstock.util;
+
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Valor de LAST_INSERT_ID() después de una sentencia.
+ *
+ * Connector/J lo trae en el paquete OK del servidor y lo expone en
+ * StatementImpl.getLastInsertID(), así que se lee sin otro viaje. La clase se
+ * busca por nombre: el resto de la app no depende de las clases internas del
+ * driver. Con otro driver (o si cambia) se pregunta con SELECT LAST_INSERT_ID(),
+ * que es por sesión y da lo mismo.
+ */
+public final class LastInsertId {
+
+  private static final String MYSQL_STATEMENT = "com.mysql.cj.jdbc.StatementImpl";
+
+  private LastInsertId() {}
+
+  /** null si el driver no está o no tiene el método. */
+  private static final class Driver {
+    static final Class<?> STATEMENT;
+    static final Method   GET;
+    static {
+      Class<?> type = null;
+      Method get = null;
+      try {
+        type = Class.forName(MYSQL_STATEMENT);
+        get  = type.getMethod("getLastInsertID");
+      } catch (ReflectiveOperationException | LinkageError ex) {
+        type = null;
+      }
+      STATEMENT = type;
+      GET = get;
+    }
+  }
+
+  /** LAST_INSERT_ID() de la sesión de cn, tal como quedó después de st. */
+  public static long read(Connection cn, Statement st) throws SQLException {
+    if (Driver.STATEMENT != null && st.isWrapperFor(Driver.STATEMENT)) {
+      try {
+        return ((Number) Driver.GET.invoke(st.unwrap(Driver.STATEMENT))).longValue();
+      } catch (ReflectiveOperationException ex) {
+        // se pregunta al servidor
+      }
+    }
+    try (Statement q = cn.createStatement();
+         ResultSet rs = q.executeQuery("SELECT LAST_INSERT_ID()")) {
+      rs.next();
+      return rs.getLong(1);
+    }
+  }
+}
@@ -0,0 +1,237 @@
+package bizstock.util;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanParameterInfo;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+
+/**
+ * Métricas de la aplicación: tiempos (histogramas), contadores y gauges, con
+ * nombre "Clase.metodo". Se publican como MBean bizstock:type=Metrics, así
+ * JConsole o JDK Mission Control las leen sin nada más.
+ *
+ * Los objetos se crean una vez (campos static final en quien mide); registrar
+ * un valor no crea objetos:
+ *
+ *   private static final Metrics.Timer T_FIND = Metrics.timer("ProductDAO.findAllActive");
+ *   ...
+ *   long t0 = T_FIND.start();
+ *   try { ... } finally { T_FIND.stop(t0); }
+ *
+ * Con -Dbizstock.metrics.enabled=false no se toma el tiempo ni se registra el MBean.
+ */
+public final class Metrics {
+
+  private static final boolean ENABLED =
+      Boolean.parseBoolean(System.getProperty("bizstock.metrics.enabled", "true"));
+
+  private static final String OBJECT_NAME = "bizstock:type=Metrics";
+
+  private static final Map<String, Timer>        TIMERS   = new ConcurrentSkipListMap<>();
+  private static final Map<String, Counter>      COUNTERS = new ConcurrentSkipListMap<>();
+  private static final Map<String, LongSupplier> GAUGES   = new ConcurrentSkipListMap<>();
+
+  static {
+    if (ENABLED) {
+      try {
+        ManagementFactory.getPlatformMBeanServer().registerMBean(new MetricsMBean(), new ObjectName(OBJECT_NAME));
+      } catch (Exception ex) {
+        System.err.println("[BizStock] No se pudo registrar el MBean de métricas: " + ex.getMessage());
+      }
+    }
+  }
+
+  private Metrics() {}
+
+  public static boolean isEnabled() { return ENABLED; }
+
+  public static Timer timer(String name) {
+    return TIMERS.computeIfAbsent(name, n -> new Timer());
+  }
+
+  public static Counter counter(String name) {
+    return COUNTERS.computeIfAbsent(name, n -> new Counter());
+  }
+
+  /** Valor que se lee al consultarlo (tamaño de una cola, conexiones activas...). */
+  public static void gauge(String name, LongSupplier value) {
+    GAUGES.put(name, value);
+  }
+
+  /** Pone en cero los tiempos y contadores (los gauges no guardan estado). */
+  public static void reset() {
+    TIMERS.values().forEach(Timer::reset);
+    COUNTERS.values().forEach(c -> c.count.reset());
+  }
+
+  /** Todas las métricas, una por línea; para logs y soporte. */
+  public static String dump() {
+    StringBuilder sb = new StringBuilder();
+    TIMERS.forEach((name, t) -> sb.append(name).append(": ").append(t.histogram.summary())
+        .append(" errores=").append(t.errors.sum()).append('\n'));
+    COUNTERS.forEach((name, c) -> sb.append(name).append(": ").append(c.get()).append('\n'));
+    GAUGES.forEach((name, g) -> sb.append(name).append(": ").append(g.getAsLong()).append('\n'));
+    return sb.toString();
+  }
+
+  // ─── Tipos ─────────────────────────────────────────────────────────────────
+
+  /** Tiempos de una operación y cuántas veces terminó con error. */
+  public static final class Timer {
+    private final LatencyHistogram histogram = new LatencyHistogram();
+    private final LongAdder        errors    = new LongAdder();
+
+    private Timer() {}
+
+    /** Marca de inicio para stop(); 0 si las métricas están desactivadas. */
+    public long start() {
+      return ENABLED ? System.nanoTime() : 0;
+    }
+
+    public void stop(long startNanos) {
+      if (startNanos != 0) histogram.recordSince(startNanos);
+    }
+
+    /** Para duraciones que ya midió otro (por ejemplo, las de ExportStats). */
+    public void record(long nanos) {
+      if (ENABLED) histogram.record(nanos);
+    }
+
+    public void error() {
+      if (ENABLED) errors.increment();
+    }
+
+    public LatencyHistogram getHistogram() { return histogram; }
+    public long getErrors()                { return errors.sum(); }
+
+    private void reset() {
+      histogram.reset();
+      errors.reset();
+    }
+  }
+
+  public static final class Counter {
+    private final LongAdder count = new LongAdder();
+
+    private Counter() {}
+
+    public void inc()        { if (ENABLED) count.increment(); }
+    public void add(long n)  { if (ENABLED) count.add(n); }
+    public long get()        { return count.sum(); }
+  }
+
+  // ─── MBean ─────────────────────────────────────────────────────────────────
+
+  /**
+   * Atributos de solo lectura generados al consultar: por cada tiempo
+   * "nombre.count", ".meanMs", ".p50Ms", ".p99Ms", ".p999Ms", ".maxMs" y
+   * ".errors"; los contadores y gauges con su nombre. Así aparecen también
+   * las métricas que se crean después de registrar el MBean.
+   */
+  private static final class MetricsMBean implements DynamicMBean {
+
+    private static final String[] TIMER_FIELDS = {"count", "meanMs", "p50Ms", "p99Ms", "p999Ms", "maxMs", "errors"};
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+      Counter c = COUNTERS.get(attribute);
+      if (c != null) return c.get();
+      LongSupplier g = GAUGES.get(attribute);
+      if (g != null) return g.getAsLong();
+
+      int dot = attribute.lastIndexOf('.');
+      Timer t = dot < 0 ? null : TIMERS.get(attribute.substring(0, dot));
+      if (t == null) throw new AttributeNotFoundException(attribute);
+
+      LatencyHistogram h = t.histogram;
+      return switch (attribute.substring(dot + 1)) {
+        case "count"  -> Long.valueOf(h.getCount());
+        case "meanMs" -> Double.valueOf(h.getMean() / 1e6);
+        case "p50Ms"  -> Double.valueOf(h.getPercentile(50) / 1e6);
+        case "p99Ms"  -> Double.valueOf(h.getPercentile(99) / 1e6);
+        case "p999Ms" -> Double.valueOf(h.getPercentile(99.9) / 1e6);
+        case "maxMs"  -> Double.valueOf(h.getMax() / 1e6);
+        case "errors" -> Long.valueOf(t.errors.sum());
+        default -> throw new AttributeNotFoundException(attribute);
+      };
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+      AttributeList list = new AttributeList();
+      for (String name : attributes) {
+        try {
+          list.add(new Attribute(name, getAttribute(name)));
+        } catch (AttributeNotFoundException ignored) {
+          // según el contrato de DynamicMBean, los que no existen se omiten
+        }
+      }
+      return list;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+      throw new AttributeNotFoundException("Las métricas son de solo lectura: " + attribute.getName());
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+      return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+      switch (actionName) {
+        case "reset":
+          reset();
+          return null;
+        case "dump":
+          return dump();
+        default:
+          throw new ReflectionException(new NoSuchMethodException(actionName));
+      }
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+      List<MBeanAttributeInfo> attrs = new ArrayList<>();
+      for (String name : TIMERS.keySet()) {
+        for (String f : TIMER_FIELDS) {
+          boolean integral = f.equals("count") || f.equals("errors");
+          attrs.add(new MBeanAttributeInfo(name + "." + f, integral ? "long" : "double",
+              f + " de " + name, true, false, false));
+        }
+      }
+      for (String name : COUNTERS.keySet()) {
+        attrs.add(new MBeanAttributeInfo(name, "long", "Contador " + name, true, false, false));
+      }
+      for (String name : GAUGES.keySet()) {
+        attrs.add(new MBeanAttributeInfo(name, "long", "Gauge " + name, true, false, false));
+      }
+
+      MBeanOperationInfo[] ops = {
+          new MBeanOperationInfo("reset", "Pone en cero tiempos y contadores",
+              new MBeanParameterInfo[0], "void", MBeanOperationInfo.ACTION),
+          new MBeanOperationInfo("dump", "Todas las métricas como texto",
+              new MBeanParameterInfo[0], "java.lang.String", MBeanOperationInfo.INFO)
+      };
+
+      return new MBeanInfo(Metrics.class.getName(), "Métricas de BizStock",
+          attrs.toArray(new MBeanAttributeInfo[0]), null, ops, null);
+    }
+  }
+}
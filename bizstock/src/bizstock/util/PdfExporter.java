@@ -1,21 +1,34 @@
 package bizstock.util;
 
+import bizstock.dao.AlertSnapshot;
+import bizstock.dao.Page;
 import bizstock.dao.ProductDAO;
 import bizstock.model.Product;
 
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.io.MemoryUsageSetting;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.PDResources;
 import org.apache.pdfbox.pdmodel.common.PDRectangle;
 import org.apache.pdfbox.pdmodel.font.PDType1Font;
 import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
 
 import java.awt.Color;
 import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 public final class PdfExporter {
 
@@ -50,6 +63,26 @@ public final class PdfExporter {
     private static final Color C_BORDER    = new Color(180, 200, 220);
     private static final Color C_TITLE     = new Color(31,  78, 121);
 
+    // ── Exportación en streaming ───────────────────────────────────────────────
+    private static final boolean STREAMING =
+        Boolean.parseBoolean(System.getProperty("bizstock.pdf.streaming", "true"));
+    private static final int  FETCH_ROWS     = Integer.getInteger("bizstock.pdf.fetchRows", 1000);
+    private static final long MAX_HEAP_BYTES = Long.getLong("bizstock.pdf.maxHeapMb", 16L) * 1024 * 1024;
+
+    // ── Render en paralelo ─────────────────────────────────────────────────────
+    // 1 = secuencial; más de 1 arma las hojas en un ForkJoinPool de ese tamaño
+    private static final int RENDER_THREADS =
+        Integer.getInteger("bizstock.pdf.threads", Runtime.getRuntime().availableProcessors());
+    private static final int WAVE_PER_THREAD = 8;   // hojas por hilo que se arman antes de copiarlas
+
+    private static volatile ExportStats lastStats;
+
+    private static final Metrics.Timer   T_RENDER = Metrics.timer("PdfExporter.render");
+    private static final Metrics.Timer   T_EXPORT = Metrics.timer("PdfExporter.export");
+    private static final Metrics.Counter PAGES    = Metrics.counter("PdfExporter.pages");
+    private static final Metrics.Counter ROWS     = Metrics.counter("PdfExporter.rows");
+    private static final Metrics.Counter BYTES    = Metrics.counter("PdfExporter.bytes");
+
     private PdfExporter() {}
 
     // ─────────────────────────────────────────────────────────────────────────
@@ -57,77 +90,336 @@ public final class PdfExporter {
     // ─────────────────────────────────────────────────────────────────────────
 
     public static String exportInventory() throws Exception {
+        return exportInventory(null);
+    }
+
+    /**
+     * Inventario completo. En modo streaming (por defecto) lee el catálogo por
+     * páginas desde la BD y guarda las páginas del PDF en un archivo temporal,
+     * así el heap no crece con el número de productos.
+     */
+    public static String exportInventory(Progress progress) throws Exception {
         ProductDAO dao = new ProductDAO();
+        if (STREAMING) {
+            return writePdfStreaming("Inventario_Completo", "Reporte de Inventario",
+                                     token -> dao.findActivePage(token, FETCH_ROWS), progress);
+        }
         List<Product> list = dao.findAllActive();
-        return writePdf("Inventario_Completo", "Reporte de Inventario", list);
+        return writePdf("Inventario_Completo", "Reporte de Inventario", list, progress);
     }
 
     public static String exportReorder() throws Exception {
+        return exportReorder(null);
+    }
+
+    public static String exportReorder(Progress progress) throws Exception {
         ProductDAO dao = new ProductDAO();
-        List<Product> list = new ArrayList<>();
-        list.addAll(dao.findCriticalAlerts());
-        list.addAll(dao.findLowAlerts());
-        return writePdf("Productos_a_Reorden", "Productos a Reordenar", list);
+        AlertSnapshot alerts = dao.findAlerts();
+        List<Product> list = new ArrayList<>(alerts.getTotal());
+        list.addAll(alerts.getCritical());
+        list.addAll(alerts.getLow());
+        return writePdf("Productos_a_Reorden", "Productos a Reordenar", list, progress);
+    }
+
+    /** Avance de una exportación: filas escritas y páginas generadas hasta ahora. */
+    public interface Progress {
+        void onProgress(long rows, int pages);
+    }
+
+    /** Fuente de filas por páginas (cursor keyset). */
+    private interface PageSource {
+        Page<Product> next(String token) throws Exception;
     }
 
     // ─────────────────────────────────────────────────────────────────────────
     // Generación del PDF
     // ─────────────────────────────────────────────────────────────────────────
 
-    private static String writePdf(String filePrefix, String reportTitle,
-                                   List<Product> products) throws Exception {
+    // Visible en el paquete para bench/bizstock/util/PdfExporterBench
+    static String writePdf(String filePrefix, String reportTitle,
+                           List<Product> products, Progress progress) throws Exception {
+        long t0 = System.nanoTime();
+        File out = newOutputFile(filePrefix);
+
+        try (PDDocument doc = new PDDocument();
+             PageWriter pages = new PageWriter(doc, reportTitle, progress)) {
+
+            int rowsPerPage = rowsPerPage();
+            for (int i = 0; i < products.size(); i += rowsPerPage) {
+                pages.add(products.subList(i, Math.min(i + rowsPerPage, products.size())));
+            }
+            pages.finish();
+
+            doc.save(out);
+            record(pages.stats(System.nanoTime() - t0, out.length()));
+        }
+
+        return out.getAbsolutePath();
+    }
+
+    /**
+     * Igual que writePdf pero sin tener todas las filas en memoria: pide filas
+     * a la fuente página por página y solo retiene las que faltan para
+     * completar la siguiente hoja. Los streams de las páginas van al archivo
+     * temporal de PDFBox (scratch) en cuanto superan MAX_HEAP_BYTES.
+     */
+    private static String writePdfStreaming(String filePrefix, String reportTitle,
+                                            PageSource source, Progress progress) throws Exception {
+        long t0 = System.nanoTime();
+        File out = newOutputFile(filePrefix);
+
+        try (PDDocument doc = new PDDocument(MemoryUsageSetting.setupMixed(MAX_HEAP_BYTES).streamCache);
+             PageWriter pages = new PageWriter(doc, reportTitle, progress)) {
+
+            int rowsPerPage = rowsPerPage();
+            List<Product> pending = new ArrayList<>(FETCH_ROWS + rowsPerPage);
+
+            String token = null;
+            do {
+                Page<Product> page = source.next(token);
+                pending.addAll(page.getItems());
+                token = page.getNextToken();
+
+                // Emitir hojas completas; la última puede ir incompleta
+                while (pending.size() >= rowsPerPage || (token == null && !pending.isEmpty())) {
+                    List<Product> pageRows = pending.subList(0, Math.min(rowsPerPage, pending.size()));
+                    pages.add(pageRows);
+                    pageRows.clear();
+                }
+            } while (token != null);
+            pages.finish();
+
+            doc.save(out);
+            record(pages.stats(System.nanoTime() - t0, out.length()));
+        }
+
+        return out.getAbsolutePath();
+    }
+
+    /** Guarda las estadísticas para getLastStats() y las suma a las métricas. */
+    private static void record(ExportStats stats) {
+        lastStats = stats;
+        T_RENDER.record(stats.getRenderNanos());
+        T_EXPORT.record(stats.getTotalNanos());
+        PAGES.add(stats.getPages());
+        ROWS.add(stats.getRows());
+        BYTES.add(stats.getBytes());
+    }
+
+    private static File newOutputFile(String filePrefix) {
         // Crear carpeta si no existe
         File dir = new File(OUTPUT_DIR);
         dir.mkdirs();
 
         String stamp = LocalDateTime.now()
             .format(DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss"));
-        File out = new File(dir, filePrefix + "_" + stamp + ".pdf");
+        return new File(dir, filePrefix + "_" + stamp + ".pdf");
+    }
 
-        PDType1Font fontBold    = new PDType1Font(Standard14Fonts.FontName.HELVETICA_BOLD);
-        PDType1Font fontRegular = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
+    /** Filas de datos que caben en una hoja debajo del título y el encabezado. */
+    private static int rowsPerPage() {
+        float titleBlock = 65f;
+        float usable     = PAGE_HEIGHT - MARGIN * 2 - titleBlock - HEADER_H;
+        return Math.max(1, (int) (usable / ROW_H));
+    }
 
-        try (PDDocument doc = new PDDocument()) {
+    // ─────────────────────────────────────────────────────────────────────────
+    // Armado de páginas (secuencial o en paralelo)
+    // ─────────────────────────────────────────────────────────────────────────
 
-            if (products.isEmpty()) {
-                addEmptyPage(doc, reportTitle, fontBold, fontRegular);
+    /**
+     * Agrega hojas de tabla al documento en orden.
+     *
+     * Con un solo hilo dibuja cada hoja directamente en doc. Con varios junta
+     * una "ola" de hojas, construye sus content streams en un ForkJoinPool
+     * (cada hoja en un PDDocument temporal en memoria, con fuentes propias del
+     * hilo) y luego copia los bytes ya comprimidos al documento final en el
+     * mismo orden. Los operadores de dibujo son los mismos en ambos modos.
+     */
+    private static final class PageWriter implements AutoCloseable {
+        private final PDDocument  doc;
+        private final String      title;
+        private final String      generated;
+        private final Progress    progress;
+        private final PDType1Font bold    = new PDType1Font(Standard14Fonts.FontName.HELVETICA_BOLD);
+        private final PDType1Font regular = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
+
+        private final int          threads;
+        private final ForkJoinPool pool;
+        private final PDResources  sharedResources;
+        private final List<List<Product>> wave = new ArrayList<>();
+
+        private int  pageIndex;
+        private long rows;
+        private long renderNanos;
+
+        PageWriter(PDDocument doc, String title, Progress progress) {
+            this.doc       = doc;
+            this.title     = title;
+            this.progress  = progress;
+            this.generated = LocalDateTime.now().format(DateTimeFormatter.ofPattern("dd/MM/yyyy  HH:mm:ss"));
+            this.threads   = Math.max(1, RENDER_THREADS);
+
+            if (threads > 1) {
+                pool = new ForkJoinPool(threads);
+                // Mismo orden de registro que en cada hoja: F1 = negrita, F2 = regular
+                sharedResources = new PDResources();
+                sharedResources.add(bold);
+                sharedResources.add(regular);
             } else {
-                // Calcular filas por página
-                float titleBlock   = 65f;
-                float usable       = PAGE_HEIGHT - MARGIN * 2 - titleBlock - HEADER_H;
-                int   rowsPerPage  = Math.max(1, (int) (usable / ROW_H));
-
-                int pageIndex = 0;
-                int i = 0;
-                while (i < products.size()) {
-                    int end      = Math.min(i + rowsPerPage, products.size());
-                    List<Product> pageRows = products.subList(i, end);
-
-                    PDPage page = new PDPage(PDRectangle.LETTER);
-                    doc.addPage(page);
-
-                    try (PDPageContentStream cs = new PDPageContentStream(doc, page)) {
-                        float y = PAGE_HEIGHT - MARGIN;
-                        y = drawTitle(cs, reportTitle, pageIndex, y, fontBold, fontRegular);
-                        drawTable(cs, pageRows, y, fontBold, fontRegular);
-                    }
-
-                    i = end;
-                    pageIndex++;
+                pool = null;
+                sharedResources = null;
+            }
+        }
+
+        void add(List<Product> pageRows) throws Exception {
+            if (pool == null) {
+                long t = System.nanoTime();
+                PDPage page = new PDPage(PDRectangle.LETTER);
+                doc.addPage(page);
+                try (PDPageContentStream cs = new PDPageContentStream(doc, page)) {
+                    float y = drawTitle(cs, title, generated, pageIndex, PAGE_HEIGHT - MARGIN, bold, regular);
+                    drawTable(cs, pageRows, y, bold, regular);
                 }
+                renderNanos += System.nanoTime() - t;
+                pageDone(pageRows.size());
+                return;
             }
 
-            doc.save(out);
+            wave.add(new ArrayList<>(pageRows));
+            if (wave.size() >= threads * WAVE_PER_THREAD) flushWave();
         }
 
-        return out.getAbsolutePath();
+        void finish() throws Exception {
+            flushWave();
+            if (pageIndex == 0) addEmptyPage(doc, title, generated, bold, regular);
+        }
+
+        private void flushWave() throws Exception {
+            if (wave.isEmpty()) return;
+            long t = System.nanoTime();
+
+            List<Callable<byte[]>> tasks = new ArrayList<>(wave.size());
+            for (int i = 0; i < wave.size(); i++) {
+                final int index = pageIndex + i;
+                final List<Product> pageRows = wave.get(i);
+                tasks.add(() -> renderDetached(title, generated, index, pageRows));
+            }
+
+            List<Future<byte[]>> results = pool.invokeAll(tasks);
+            for (int i = 0; i < results.size(); i++) {
+                byte[] raw;
+                try {
+                    raw = results.get(i).get();
+                } catch (ExecutionException ex) {
+                    throw ex.getCause() instanceof Exception ? (Exception) ex.getCause() : ex;
+                }
+
+                COSStream contents = doc.getDocument().createCOSStream();
+                contents.setItem(COSName.FILTER, COSName.FLATE_DECODE);
+                try (OutputStream os = contents.createRawOutputStream()) {
+                    os.write(raw);
+                }
+
+                PDPage page = new PDPage(PDRectangle.LETTER);
+                page.getCOSObject().setItem(COSName.CONTENTS, contents);
+                page.setResources(sharedResources);
+                doc.addPage(page);
+                pageDone(wave.get(i).size());
+            }
+
+            wave.clear();
+            renderNanos += System.nanoTime() - t;
+        }
+
+        private void pageDone(int pageRows) {
+            rows += pageRows;
+            pageIndex++;
+            if (progress != null) progress.onProgress(rows, pageIndex);
+        }
+
+        ExportStats stats(long totalNanos, long bytes) {
+            return new ExportStats(rows, pageIndex, threads, renderNanos, totalNanos, bytes);
+        }
+
+        @Override
+        public void close() {
+            if (pool != null) pool.shutdownNow();
+        }
     }
 
+    /** Fuentes por hilo: PDFont cachea anchos en mapas no sincronizados. */
+    private static final ThreadLocal<PDType1Font[]> THREAD_FONTS = ThreadLocal.withInitial(() ->
+        new PDType1Font[]{
+            new PDType1Font(Standard14Fonts.FontName.HELVETICA_BOLD),
+            new PDType1Font(Standard14Fonts.FontName.HELVETICA)
+        });
+
+    /** Dibuja una hoja en un documento temporal y devuelve su content stream comprimido. */
+    private static byte[] renderDetached(String title, String generated, int pageIndex,
+                                         List<Product> pageRows) throws Exception {
+        PDType1Font[] fonts = THREAD_FONTS.get();
+
+        try (PDDocument tmp = new PDDocument(IOUtils.createMemoryOnlyStreamCache())) {
+            PDPage page = new PDPage(PDRectangle.LETTER);
+            PDResources res = new PDResources();
+            res.add(fonts[0]);
+            res.add(fonts[1]);
+            page.setResources(res);
+            tmp.addPage(page);
+
+            try (PDPageContentStream cs = new PDPageContentStream(tmp, page)) {
+                float y = drawTitle(cs, title, generated, pageIndex, PAGE_HEIGHT - MARGIN, fonts[0], fonts[1]);
+                drawTable(cs, pageRows, y, fonts[0], fonts[1]);
+            }
+
+            COSStream contents = (COSStream) page.getCOSObject().getDictionaryObject(COSName.CONTENTS);
+            try (InputStream in = contents.createRawInputStream()) {
+                return in.readAllBytes();
+            }
+        }
+    }
+
+    /** Tiempos y tamaño de la última exportación. */
+    public static final class ExportStats {
+        private final long rows;
+        private final int  pages;
+        private final int  threads;
+        private final long renderNanos;
+        private final long totalNanos;
+        private final long bytes;
+
+        ExportStats(long rows, int pages, int threads, long renderNanos, long totalNanos, long bytes) {
+            this.rows = rows;
+            this.pages = pages;
+            this.threads = threads;
+            this.renderNanos = renderNanos;
+            this.totalNanos = totalNanos;
+            this.bytes = bytes;
+        }
+
+        public long getRows()        { return rows; }
+        public int  getPages()       { return pages; }
+        public int  getThreads()     { return threads; }
+        public long getRenderNanos() { return renderNanos; }
+        public long getTotalNanos()  { return totalNanos; }
+        public long getBytes()       { return bytes; }
+
+        @Override
+        public String toString() {
+            return pages + " páginas, " + rows + " filas, " + threads + " hilo(s), render "
+                + renderNanos / 1_000_000 + " ms, total " + totalNanos / 1_000_000 + " ms, "
+                + bytes / 1024 + " KB";
+        }
+    }
+
+    public static ExportStats getLastStats() { return lastStats; }
+
     // ─────────────────────────────────────────────────────────────────────────
     // Título del reporte
     // ─────────────────────────────────────────────────────────────────────────
 
-    private static float drawTitle(PDPageContentStream cs, String title, int pageNum,
+    private static float drawTitle(PDPageContentStream cs, String title, String generated, int pageNum,
                                    float y, PDType1Font bold, PDType1Font regular) throws Exception {
         // Título
         cs.beginText();
@@ -139,8 +431,7 @@ public final class PdfExporter {
         y -= 28;
 
         // Subtítulo
-        String sub = "Generado: "
-            + LocalDateTime.now().format(DateTimeFormatter.ofPattern("dd/MM/yyyy  HH:mm:ss"))
+        String sub = "Generado: " + generated
             + (pageNum > 0 ? "     Página " + (pageNum + 1) : "");
         cs.beginText();
         cs.setFont(regular, 9);
@@ -255,12 +546,12 @@ public final class PdfExporter {
     // Página vacía
     // ─────────────────────────────────────────────────────────────────────────
 
-    private static void addEmptyPage(PDDocument doc, String title,
+    private static void addEmptyPage(PDDocument doc, String title, String generated,
                                      PDType1Font bold, PDType1Font regular) throws Exception {
         PDPage page = new PDPage(PDRectangle.LETTER);
         doc.addPage(page);
         try (PDPageContentStream cs = new PDPageContentStream(doc, page)) {
-            drawTitle(cs, title, 0, PAGE_HEIGHT - MARGIN, bold, regular);
+            drawTitle(cs, title, generated, 0, PAGE_HEIGHT - MARGIN, bold, regular);
             cs.beginText();
             cs.setFont(regular, 12);
             setColor(cs, Color.GRAY);
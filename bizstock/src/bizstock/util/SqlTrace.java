@@ -0,0 +1,404 @@
+package bizstock.util;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Traza de SQL: con -Dbizstock.sqltrace.enabled=true, DatabaseConnection
+ * envuelve cada conexión en un proxy que mide cada sentencia (ejecución,
+ * filas leídas y tiempo dentro de ResultSet.next()) y manda las que pasan
+ * del umbral a un log rotativo. El archivo lo escribe un hilo aparte, así
+ * quien ejecuta la consulta no espera al disco.
+ *
+ * Desactivada (lo normal) no se envuelve nada: el único costo es un if en
+ * getConnection().
+ *
+ * Cada línea del log:
+ *   2026-01-01T10:00:00.123 total=152.3ms exec=150.1ms fetch=2.2ms abierto=40.0ms filas=1000
+ *     hilo=AWT-EventQueue-0 sql="SELECT ..." binds=[1, 'abc', NULL]
+ * (en una sola línea). "fetch" es el tiempo dentro de next() y "abierto"
+ * desde que se ejecutó hasta que se cerró el ResultSet, incluido lo que hizo
+ * la aplicación con cada fila. Lento = exec + fetch >= umbral.
+ */
+public final class SqlTrace {
+
+  private static final boolean ENABLED =
+      Boolean.parseBoolean(System.getProperty("bizstock.sqltrace.enabled", "false"));
+  private static final long THRESHOLD_NS = Long.getLong("bizstock.sqltrace.thresholdMs", 100L) * 1_000_000;
+
+  private static final int MAX_BINDS      = 20;   // en el log; el resto se resume como "…"
+  private static final int MAX_BIND_CHARS = 40;
+
+  private static final Metrics.Timer   T_STATEMENT = Metrics.timer("SqlTrace.statement");
+  private static final Metrics.Counter SLOW        = Metrics.counter("SqlTrace.slow");
+  private static final Metrics.Counter DROPPED     = Metrics.counter("SqlTrace.dropped");
+
+  private SqlTrace() {}
+
+  public static boolean isEnabled() { return ENABLED; }
+
+  /** La conexión envuelta; al cerrarla se cierra (o vuelve al pool) la original. */
+  public static Connection wrap(Connection cn) {
+    return (Connection) Proxy.newProxyInstance(
+        Connection.class.getClassLoader(),
+        new Class<?>[]{ Connection.class },
+        new ConnectionHandler(cn));
+  }
+
+  private static Object forward(Object target, Method method, Object[] args) throws Throwable {
+    try {
+      return method.invoke(target, args);
+    } catch (InvocationTargetException ex) {
+      throw ex.getCause();
+    }
+  }
+
+  // ─── Proxies ───────────────────────────────────────────────────────────────
+
+  private static final class ConnectionHandler implements InvocationHandler {
+    private final Connection target;
+
+    ConnectionHandler(Connection target) { this.target = target; }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      switch (method.getName()) {
+        case "equals":
+          return proxy == args[0];
+        case "hashCode":
+          return System.identityHashCode(proxy);
+        case "toString":
+          return "TracedConnection[" + target + "]";
+        default:
+          break;
+      }
+
+      Object result = forward(target, method, args);
+      return switch (method.getName()) {
+        case "prepareStatement" -> traced(result, PreparedStatement.class, (String) args[0]);
+        case "prepareCall"      -> traced(result, CallableStatement.class, (String) args[0]);
+        case "createStatement"  -> traced(result, Statement.class, null);
+        default -> result;
+      };
+    }
+
+    private static Object traced(Object statement, Class<?> type, String sql) {
+      return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{ type },
+          new StatementHandler((Statement) statement, sql));
+    }
+  }
+
+  /** Guarda los parámetros (set*) y mide cada execute*. */
+  private static final class StatementHandler implements InvocationHandler {
+    private final Statement target;
+    private final String    sql;          // null en un Statement simple: viene en execute(sql)
+    private Object[] binds = new Object[8];
+    private int      bindCount;
+    private int      batchCount;
+    private Execution open;               // la del ResultSet que sigue abierto, si hay
+
+    StatementHandler(Statement target, String sql) {
+      this.target = target;
+      this.sql = sql;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      String name = method.getName();
+
+      if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index) {
+        bind(index, name.equals("setNull") ? null : args[1]);
+      } else if (name.equals("clearParameters")) {
+        Arrays.fill(binds, null);
+        bindCount = 0;
+      } else if (name.equals("addBatch")) {
+        batchCount++;
+      } else if (name.equals("clearBatch")) {
+        batchCount = 0;
+      } else if (name.equals("close")) {
+        finishOpen();
+      } else if (name.startsWith("execute")) {
+        return execute(method, args);
+      }
+      return forward(target, method, args);
+    }
+
+    private void bind(int index, Object value) {
+      if (index < 1) return;
+      if (index > binds.length) binds = Arrays.copyOf(binds, Math.max(index, binds.length * 2));
+      binds[index - 1] = value;
+      bindCount = Math.max(bindCount, index);
+    }
+
+    private Object execute(Method method, Object[] args) throws Throwable {
+      finishOpen();
+      String text = args != null && args.length > 0 && args[0] instanceof String s ? s : sql;
+      Execution ex = new Execution(text, Arrays.copyOf(binds, bindCount), batchCount);
+      if (method.getName().contains("Batch")) batchCount = 0;   // el driver vacía el lote al ejecutarlo
+
+      long t0 = System.nanoTime();
+      Object result;
+      try {
+        result = forward(target, method, args);
+        ex.execNanos = System.nanoTime() - t0;
+      } catch (Throwable t) {
+        // también interesan las que fallan tarde (lock wait timeout, deadlock)
+        ex.execNanos = System.nanoTime() - t0;
+        ex.error = t.getMessage();
+        ex.finish();
+        throw t;
+      }
+
+      if (result instanceof ResultSet rs) {
+        open = ex;
+        ex.openedAt = System.nanoTime();
+        return Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+            new Class<?>[]{ ResultSet.class }, new ResultSetHandler(rs, ex));
+      }
+      if (result instanceof Integer n) ex.rows = n;
+      else if (result instanceof Long n) ex.rows = n;
+      else if (result instanceof int[] counts) ex.rows = counts.length;
+      else if (result instanceof long[] counts) ex.rows = counts.length;
+      ex.finish();
+      return result;
+    }
+
+    private void finishOpen() {
+      if (open != null) {
+        open.finish();
+        open = null;
+      }
+    }
+  }
+
+  /** Cuenta filas y el tiempo dentro de next(). */
+  private static final class ResultSetHandler implements InvocationHandler {
+    private final ResultSet target;
+    private final Execution execution;
+
+    ResultSetHandler(ResultSet target, Execution execution) {
+      this.target = target;
+      this.execution = execution;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      switch (method.getName()) {
+        case "next": {
+          long t0 = System.nanoTime();
+          try {
+            Object more = forward(target, method, args);
+            if (Boolean.TRUE.equals(more)) execution.rows++;
+            return more;
+          } finally {
+            execution.fetchNanos += System.nanoTime() - t0;
+          }
+        }
+        case "close":
+          try {
+            return forward(target, method, args);
+          } finally {
+            execution.finish();
+          }
+        default:
+          return forward(target, method, args);
+      }
+    }
+  }
+
+  // ─── Registro ──────────────────────────────────────────────────────────────
+
+  /** Una ejecución de una sentencia; se cierra al terminar o al cerrar su ResultSet. */
+  private static final class Execution {
+    final String   sql;
+    final Object[] binds;
+    final int      batch;
+    long execNanos;
+    long fetchNanos;
+    long openedAt;
+    long rows;
+    String error;
+    boolean finished;
+
+    Execution(String sql, Object[] binds, int batch) {
+      this.sql = sql;
+      this.binds = binds;
+      this.batch = batch;
+    }
+
+    void finish() {
+      if (finished) return;
+      finished = true;
+
+      long total = execNanos + fetchNanos;
+      T_STATEMENT.record(total);
+      if (total < THRESHOLD_NS) return;
+
+      SLOW.inc();
+      long openNanos = openedAt == 0 ? 0 : System.nanoTime() - openedAt;
+      StringBuilder line = new StringBuilder(256)
+          .append(LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS))
+          .append(" total=").append(ms(total))
+          .append(" exec=").append(ms(execNanos))
+          .append(" fetch=").append(ms(fetchNanos))
+          .append(" abierto=").append(ms(openNanos))
+          .append(" filas=").append(rows);
+      if (batch > 0) line.append(" lote=").append(batch);
+      if (error != null) line.append(" error=\"").append(error.replace('\n', ' ')).append('"');
+      line.append(" hilo=").append(Thread.currentThread().getName())
+          .append(" sql=\"").append(sql == null ? "?" : sql.strip().replaceAll("\\s+", " ")).append('"')
+          .append(" binds=").append(summary(binds))
+          .append('\n');
+      SlowLog.INSTANCE.offer(line.toString());
+    }
+
+    private static String ms(long nanos) {
+      return String.format(Locale.ROOT, "%.1fms", nanos / 1e6);
+    }
+
+    private static String summary(Object[] binds) {
+      StringBuilder sb = new StringBuilder("[");
+      for (int i = 0; i < binds.length; i++) {
+        if (i > 0) sb.append(", ");
+        if (i == MAX_BINDS) {
+          sb.append("… (").append(binds.length).append(')');
+          break;
+        }
+        Object v = binds[i];
+        if (v == null) {
+          sb.append("NULL");
+        } else if (v instanceof CharSequence || v instanceof java.util.Date || v instanceof java.time.temporal.Temporal) {
+          String s = v.toString();
+          if (s.length() > MAX_BIND_CHARS) s = s.substring(0, MAX_BIND_CHARS) + "…";
+          sb.append('\'').append(s).append('\'');
+        } else if (v instanceof Number || v instanceof Boolean) {
+          sb.append(v);
+        } else {
+          sb.append('<').append(v.getClass().getSimpleName()).append('>');
+        }
+      }
+      return sb.append(']').toString();
+    }
+  }
+
+  /**
+   * Log rotativo de sentencias lentas: slow-sql.log, .1, .2... Las líneas se
+   * encolan y las escribe un hilo daemon; si la cola se llena (disco lento)
+   * se descartan y se cuentan en SqlTrace.dropped.
+   */
+  private static final class SlowLog {
+    static final SlowLog INSTANCE = new SlowLog();
+
+    private final File file = new File(System.getProperty("bizstock.sqltrace.file",
+        System.getProperty("user.home") + File.separator + ".bizstock" + File.separator + "slow-sql.log"));
+    private final long maxBytes = Long.getLong("bizstock.sqltrace.maxSizeMb", 10L) * 1024 * 1024;
+    private final int  files    = Math.max(1, Integer.getInteger("bizstock.sqltrace.files", 5));
+
+    private final BlockingQueue<String> queue = new ArrayBlockingQueue<>(10_000);
+    private final Thread writer;
+    private Writer out;
+    private long   size;
+
+    private SlowLog() {
+      writer = new Thread(this::run, "bizstock-sqltrace-writer");
+      writer.setDaemon(true);
+      writer.start();
+      Runtime.getRuntime().addShutdownHook(new Thread(this::close, "bizstock-sqltrace-shutdown"));
+    }
+
+    void offer(String line) {
+      if (!queue.offer(line)) DROPPED.inc();
+    }
+
+    private void run() {
+      try {
+        while (true) {
+          write(queue.take());
+          for (String more; (more = queue.poll()) != null; ) write(more);
+          flush();
+        }
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    private synchronized void write(String line) {
+      try {
+        if (out == null) open();
+        if (size > 0 && size + line.length() > maxBytes) {
+          rotate();
+          open();
+        }
+        out.write(line);
+        size += line.getBytes(StandardCharsets.UTF_8).length;
+      } catch (IOException ex) {
+        System.err.println("[BizStock] No se pudo escribir el log de SQL lento: " + ex.getMessage());
+        out = null;
+      }
+    }
+
+    private synchronized void flush() {
+      try {
+        if (out != null) out.flush();
+      } catch (IOException ex) {
+        System.err.println("[BizStock] No se pudo escribir el log de SQL lento: " + ex.getMessage());
+      }
+    }
+
+    private void open() throws IOException {
+      File dir = file.getAbsoluteFile().getParentFile();
+      if (dir != null) dir.mkdirs();
+      size = file.length();
+      // FileOutputStream y no Files.newOutputStream: un canal NIO se cierra si interrumpen al hilo
+      out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8));
+    }
+
+    /** slow-sql.log → .1 → .2 ...; el más viejo se pierde. */
+    private void rotate() throws IOException {
+      out.close();
+      out = null;
+      for (int i = files - 1; i >= 1; i--) {
+        File from = i == 1 ? file : new File(file.getPath() + "." + (i - 1));
+        if (from.exists()) {
+          Files.move(from.toPath(), new File(file.getPath() + "." + i).toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+      }
+      if (files == 1) Files.deleteIfExists(file.toPath());
+    }
+
+    /** Escribe lo que quedó en la cola (al salir de la app). */
+    private void close() {
+      for (String line; (line = queue.poll()) != null; ) write(line);
+      synchronized (this) {
+        try {
+          if (out != null) out.close();
+        } catch (IOException ignored) {
+          // la app está saliendo
+        }
+        out = null;
+      }
+    }
+  }
+}